@@ -44,6 +44,9 @@ public class ActionStates {
                 unvotedFullnames.add(fullname);
                 break;
         }
+        if (s instanceof Submission) {
+            SubmissionCache.invalidate(fullname);
+        }
     }
 
     public static boolean isSaved(Submission s) {
@@ -74,6 +77,7 @@ public class ActionStates {
         } else {
             unSavedFullnames.add(fullname);
         }
+        SubmissionCache.invalidate(fullname);
     }
 
     public static void setSaved(Comment s, boolean b) {
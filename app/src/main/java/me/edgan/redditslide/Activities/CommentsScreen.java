@@ -71,7 +71,7 @@ public class CommentsScreen extends BaseActivityAnim implements SubmissionDispla
     @Override
     public boolean dispatchKeyEvent(KeyEvent event) {
         int keyCode = event.getKeyCode();
-        if (SettingValues.commentVolumeNav) {
+        if (SettingValues.commentVolumeNav && comments != null) {
             switch (keyCode) {
                 case KeyEvent.KEYCODE_VOLUME_UP:
                 case KeyEvent.KEYCODE_VOLUME_DOWN:
@@ -94,7 +94,7 @@ public class CommentsScreen extends BaseActivityAnim implements SubmissionDispla
     @Override
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
-        if (requestCode == 14) {
+        if (requestCode == 14 && comments != null) {
             comments.notifyDataSetChanged();
         }
     }
@@ -183,8 +183,26 @@ public class CommentsScreen extends BaseActivityAnim implements SubmissionDispla
                             CommentsScreen.this);
             subredditPosts.getPosts().addAll(o.submissions);
             currentPosts.addAll(subredditPosts.getPosts());
+            if (o.hasUnloaded()) {
+                // The post can be past the first window of the snapshot, so wait for the rest
+                o.loadAllAsync(
+                        this,
+                        added -> {
+                            if (isDestroyed()) {
+                                return;
+                            }
+                            subredditPosts.getPosts().addAll(added);
+                            currentPosts.addAll(added);
+                            showPosts();
+                        });
+                return;
+            }
         }
+        showPosts();
+    }
 
+    /** Opens the pager at the post asked for, once the posts around it are in currentPosts */
+    private void showPosts() {
         if (getIntent().hasExtra("fullname")) {
             String fullname = getIntent().getStringExtra("fullname");
             for (int i = 0; i < currentPosts.size(); i++) {
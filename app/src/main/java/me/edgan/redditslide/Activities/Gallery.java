@@ -66,15 +66,20 @@ public class Gallery extends FullScreenActivity implements SubmissionDisplay {
                 OfflineSubreddit.getSubreddit(subreddit, offline, !Authentication.didOnline, this);
 
         baseSubs = new ArrayList<>();
-
-        for (Submission s : submissions.submissions) {
-            if (s.getThumbnails() != null && s.getThumbnails().getSource() != null) {
-                baseSubs.add(s);
-            } else if (ContentType.getContentType(s) == ContentType.Type.IMAGE) {
-                baseSubs.add(s);
-            }
-            subredditPosts.getPosts().add(s);
-        }
+        addOffline(submissions.submissions);
+
+        // Only the first window of the snapshot is parsed, the rest is added once it is
+        submissions.loadAllAsync(
+                this,
+                added -> {
+                    if (isDestroyed()) {
+                        return;
+                    }
+                    int startSize = baseSubs.size();
+                    addOffline(added);
+                    recyclerAdapter.notifyItemRangeInserted(
+                            startSize, baseSubs.size() - startSize);
+                });
 
         rv = (RecyclerView) findViewById(R.id.content_view);
         recyclerAdapter = new GalleryView(this, baseSubs, subreddit);
@@ -116,6 +121,17 @@ public class Gallery extends FullScreenActivity implements SubmissionDisplay {
                 });
     }
 
+    private void addOffline(List<Submission> submissions) {
+        for (Submission s : submissions) {
+            if (s.getThumbnails() != null && s.getThumbnails().getSource() != null) {
+                baseSubs.add(s);
+            } else if (ContentType.getContentType(s) == ContentType.Type.IMAGE) {
+                baseSubs.add(s);
+            }
+            subredditPosts.getPosts().add(s);
+        }
+    }
+
     GalleryView recyclerAdapter;
     public int pastVisiblesItems;
     public int visibleItemCount;
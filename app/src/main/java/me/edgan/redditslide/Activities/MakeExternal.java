@@ -4,6 +4,7 @@ import android.app.Activity;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 
+import me.edgan.redditslide.ContentType;
 import me.edgan.redditslide.SettingValues;
 
 import java.net.MalformedURLException;
@@ -19,6 +20,7 @@ public class MakeExternal extends Activity {
             try {
                 URL u = new URL(url);
                 SettingValues.alwaysExternal.add(u.getHost());
+                ContentType.invalidateTypeCache();
                 SharedPreferences.Editor e = SettingValues.prefs.edit();
                 e.putStringSet(SettingValues.PREF_ALWAYS_EXTERNAL, SettingValues.alwaysExternal);
                 e.apply();
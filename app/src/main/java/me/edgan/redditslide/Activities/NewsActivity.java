@@ -88,28 +88,28 @@ public class NewsActivity extends BaseActivity
         super.onPause();
         changed = false;
         if (!SettingValues.synccitName.isEmpty()) {
-            new MySynccitUpdateTask().execute(SynccitRead.newVisited.toArray(new String[0]));
+            new MySynccitUpdateTask().execute();
         }
         if (Authentication.isLoggedIn
                 && Authentication.me != null
                 && Authentication.me.hasGold()
-                && !SynccitRead.newVisited.isEmpty()) {
+                && SynccitRead.hasAccountVisits()) {
             new AsyncTask<Void, Void, Void>() {
                 @Override
                 protected Void doInBackground(Void... params) {
+                    String[] visits = SynccitRead.drainAccountVisits();
                     try {
-                        String[] returned = new String[SynccitRead.newVisited.size()];
-                        int i = 0;
-                        for (String s : SynccitRead.newVisited) {
+                        String[] returned = new String[visits.length];
+                        for (int i = 0; i < visits.length; i++) {
+                            String s = visits[i];
                             if (!s.contains("t3_")) {
                                 s = "t3_" + s;
                             }
                             returned[i] = s;
-                            i++;
                         }
                         new AccountManager(Authentication.reddit).storeVisits(returned);
-                        SynccitRead.newVisited = new ArrayList<>();
                     } catch (Exception e) {
+                        SynccitRead.requeueAccountVisits(visits);
                         e.printStackTrace();
                     }
                     return null;
@@ -71,6 +71,22 @@ public class Shadowbox extends FullScreenActivity implements SubmissionDisplay {
 
         subredditPosts.getPosts().addAll(submissions.submissions);
         count = subredditPosts.getPosts().size();
+        final int shown = count;
+
+        // Only the first window of the snapshot is parsed, the rest is added once it is
+        submissions.loadAllAsync(
+                this,
+                added -> {
+                    if (isDestroyed()) {
+                        return;
+                    }
+                    subredditPosts.getPosts().addAll(added);
+                    count = subredditPosts.getPosts().size();
+                    submissionsPager.notifyDataSetChanged();
+                    if (firstPage >= shown && firstPage < count) {
+                        pager.setCurrentItem(firstPage, false);
+                    }
+                });
 
         pager = (ViewPager) findViewById(R.id.content_view);
         submissionsPager = new ShadowboxPagerAdapter(getSupportFragmentManager());
@@ -828,6 +828,9 @@ public class Submit extends BaseActivity {
         @Override
         protected void onPostExecute(final String result) {
             dialog.dismiss();
+            if (!reportFailures()) {
+                return;
+            }
             try {
                 ((RadioButton) findViewById(R.id.linkradio)).setChecked(true);
                 link.setVisibility(View.VISIBLE);
@@ -4,7 +4,6 @@ import android.app.Dialog;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.res.Configuration;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
@@ -445,17 +444,13 @@ public class SubredditView extends BaseActivity {
         super.onDestroy();
         if (sub != null) {
             if (sub.isNsfw() && (!SettingValues.storeHistory || !SettingValues.storeNSFWHistory)) {
-                SharedPreferences.Editor e = Reddit.cachedData.edit();
                 for (String s : OfflineSubreddit.getAll(sub.getDisplayName())) {
-                    e.remove(s);
+                    OfflineSubreddit.removeSnapshot(s);
                 }
-                e.apply();
             } else if (!SettingValues.storeHistory) {
-                SharedPreferences.Editor e = Reddit.cachedData.edit();
                 for (String s : OfflineSubreddit.getAll(sub.getDisplayName())) {
-                    e.remove(s);
+                    OfflineSubreddit.removeSnapshot(s);
                 }
-                e.apply();
             }
         }
     }
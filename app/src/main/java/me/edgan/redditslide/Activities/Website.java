@@ -1,6 +1,7 @@
 package me.edgan.redditslide.Activities;
 
 import android.content.Intent;
+import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
@@ -23,6 +24,7 @@ import android.widget.ProgressBar;
 import androidx.appcompat.widget.Toolbar;
 import androidx.webkit.WebViewClientCompat;
 
+import me.edgan.redditslide.BuildConfig;
 import me.edgan.redditslide.ContentType;
 import me.edgan.redditslide.Fragments.SubmissionsView;
 import me.edgan.redditslide.OpenRedditLink;
@@ -39,8 +41,8 @@ import me.edgan.redditslide.util.LogUtil;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Website extends BaseActivityAnim {
 
@@ -339,22 +341,41 @@ public class Website extends BaseActivityAnim {
 
     // Method adapted from http://www.hidroh.com/2016/05/19/hacking-up-ad-blocker-android/
     public class AdBlockWebViewClient extends WebViewClientCompat {
-        private Map<String, Boolean> loadedUrls = new HashMap<>();
+        // Requests are intercepted on WebView's own threads
+        private Map<String, Boolean> loadedUrls = new ConcurrentHashMap<>();
+        private final AdBlocker.PageStats stats = new AdBlocker.PageStats();
 
         @Override
         public WebResourceResponse shouldInterceptRequest(WebView view, String url) {
+            Boolean cached = loadedUrls.get(url);
             boolean ad;
-            if (!loadedUrls.containsKey(url)) {
+            if (cached == null) {
                 ad = AdBlocker.isAd(url, Website.this);
                 loadedUrls.put(url, ad);
             } else {
-                ad = loadedUrls.get(url);
+                ad = cached;
             }
-            return ad && (currentURL != null && !currentURL.contains("twitter.com"))
+            boolean block = ad && (currentURL != null && !currentURL.contains("twitter.com"));
+            stats.count(block);
+            return block
                     ? AdBlocker.createEmptyResource()
                     : super.shouldInterceptRequest(view, url);
         }
 
+        @Override
+        public void onPageStarted(WebView view, String url, Bitmap favicon) {
+            stats.reset();
+            super.onPageStarted(view, url, favicon);
+        }
+
+        @Override
+        public void onPageFinished(WebView view, String url) {
+            if (BuildConfig.DEBUG) {
+                LogUtil.v(stats + " requests on " + url);
+            }
+            super.onPageFinished(view, url);
+        }
+
         @Override
         public boolean shouldOverrideUrlLoading(WebView view, String url) {
             if (url.startsWith("intent://")) {
@@ -35,7 +35,6 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.devspark.robototextview.RobotoTypefaces;
-import com.lusfold.androidkeyvaluestore.KVStore;
 import com.mikepenz.itemanimators.AlphaInAnimator;
 import com.mikepenz.itemanimators.SlideRightAlphaAnimator;
 import com.nostra13.universalimageloader.utils.DiskCacheUtils;
@@ -47,6 +46,7 @@ import me.edgan.redditslide.Constants;
 import me.edgan.redditslide.Drafts;
 import me.edgan.redditslide.Fragments.CommentPage;
 import me.edgan.redditslide.HasSeen;
+import me.edgan.redditslide.HistoryStore;
 import me.edgan.redditslide.ImageFlairs;
 import me.edgan.redditslide.LastComments;
 import me.edgan.redditslide.OpenRedditLink;
@@ -119,7 +119,12 @@ public class CommentAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
     CommentPage mPage;
     int shifted;
     int toShiftTo;
-    HashSet<String> hidden;
+    HiddenComments hidden;
+
+    /** Positions to jump between, or null while it's being built for the current list */
+    public CommentNavIndex navIndex;
+
+    private int navIndexVersion;
     ArrayList<String> hiddenPersons;
     ArrayList<String> toCollapse;
     private String backedText = "";
@@ -142,8 +147,10 @@ public class CommentAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         this.fm = fm;
 
         this.submission = submission;
-        hidden = new HashSet<>();
+        hidden = new HiddenComments();
         currentComments = dataSet.comments;
+        hidden.setComments(currentComments);
+        rebuildNavIndex();
         if (currentComments != null) {
             for (int i = 0; i < currentComments.size(); i++) {
                 keys.put(currentComments.get(i).getName(), i);
@@ -177,8 +184,10 @@ public class CommentAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         this.dataSet = dataSet;
 
         this.submission = submission;
-        hidden = new HashSet<>();
+        hidden = new HiddenComments();
         currentComments = dataSet.comments;
+        hidden.setComments(currentComments);
+        rebuildNavIndex();
         if (currentComments != null) {
             for (int i = 0; i < currentComments.size(); i++) {
                 keys.put(currentComments.get(i).getName(), i);
@@ -301,7 +310,7 @@ public class CommentAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
                 fullname = fullname.substring(3);
             }
             HasSeen.seenTimes.put(fullname, System.currentTimeMillis());
-            KVStore.getInstance().insert(fullname, String.valueOf(System.currentTimeMillis()));
+            HistoryStore.getInstance().queueSeen(fullname, System.currentTimeMillis(), false);
         }
         if (submission != null) {
             if (SettingValues.storeHistory) {
@@ -2019,7 +2028,7 @@ public class CommentAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         if (position == 0
                 || (currentComments != null
                         && !currentComments.isEmpty()
-                        && position == (currentComments.size() - hidden.size()) + 2)
+                        && position == hidden.getVisibleCount() + 2)
                 || (currentComments != null && currentComments.isEmpty() && position == 2)) {
             return SPACER;
         } else {
@@ -2037,7 +2046,7 @@ public class CommentAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         if (currentComments == null) {
             return 2;
         } else {
-            return 3 + (currentComments.size() - hidden.size());
+            return 3 + hidden.getVisibleCount();
         }
     }
 
@@ -2151,9 +2160,8 @@ public class CommentAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             if (!ignored.getComment().getFullName().equals(n.getComment().getFullName())) {
                 String fullname = ignored.getComment().getFullName();
 
-                if (!hidden.contains(fullname)) {
+                if (hidden.add(fullname)) {
                     i++;
-                    hidden.add(fullname);
                 }
                 if (ignored.hasMoreComments() && dataSet.online) {
                     if (currentLoading != null && currentLoading.fullname.equals(fullname)) {
@@ -2162,9 +2170,8 @@ public class CommentAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
 
                     fullname = fullname + "more";
 
-                    if (!hidden.contains(fullname)) {
+                    if (hidden.add(fullname)) {
                         i++;
-                        hidden.add(fullname);
                     }
                 }
                 i += hideNumber(ignored, 0);
@@ -2172,9 +2179,8 @@ public class CommentAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         }
         if (n.hasMoreComments() && dataSet.online) {
             String fullname = n.getComment().getFullName() + "more";
-            if (!hidden.contains(fullname)) {
+            if (hidden.add(fullname)) {
                 i++;
-                hidden.add(fullname);
             }
         }
         return i;
@@ -2206,26 +2212,52 @@ public class CommentAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
     }
 
     public int getRealPosition(int position) {
-        int hElements = getHiddenCountUpTo(position);
-        int diff = 0;
-        for (int i = 0; i < hElements; i++) {
-            diff++;
-            if ((currentComments.size() > position + diff)
-                    && hidden.contains(currentComments.get(position + diff).getName())) {
-                i--;
-            }
-        }
-        return (position + diff);
+        return hidden.getRealPosition(position);
     }
 
-    private int getHiddenCountUpTo(int location) {
-        int count = 0;
-        for (int i = 0; (i <= location && i < currentComments.size()); i++) {
-            if (currentComments.size() > i && hidden.contains(currentComments.get(i).getName())) {
-                count++;
-            }
-        }
-        return count;
+    /** Returns the adapter position, without the header, of a visible list position */
+    public int getVisiblePosition(int index) {
+        return hidden.getVisiblePosition(index);
+    }
+
+    public boolean isHidden(int index) {
+        return hidden.contains(currentComments.get(index).getName());
+    }
+
+    /**
+     * Builds the navigation index for the comments in the background. Until it's done, navigation
+     * scans the list. Can be called from any thread; the list is copied on the UI thread.
+     */
+    private void rebuildNavIndex() {
+        navIndex = null;
+        new Handler(Looper.getMainLooper())
+                .post(
+                        () -> {
+                            if (currentComments == null) {
+                                return;
+                            }
+                            final ArrayList<CommentObject> snapshot =
+                                    new ArrayList<>(currentComments);
+                            final String op = submission == null ? null : submission.getAuthor();
+                            final String user = submission == null ? null : Authentication.name;
+                            final int version = ++navIndexVersion;
+                            AsyncTask.THREAD_POOL_EXECUTOR.execute(
+                                    () -> {
+                                        try {
+                                            final CommentNavIndex index =
+                                                    new CommentNavIndex(snapshot, op, user);
+                                            new Handler(Looper.getMainLooper())
+                                                    .post(
+                                                            () -> {
+                                                                if (version == navIndexVersion) {
+                                                                    navIndex = index;
+                                                                }
+                                                            });
+                                        } catch (Exception e) {
+                                            LogUtil.e(e, "Error building comment navigation");
+                                        }
+                                    });
+                        });
     }
 
     public class AsyncLoadMore extends AsyncTask<MoreChildItem, Void, Integer> {
@@ -2269,6 +2301,8 @@ public class CommentAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
                 for (int i2 = 0; i2 < currentComments.size(); i2++) {
                     keys.put(currentComments.get(i2).getName(), i2);
                 }
+                hidden.setComments(currentComments);
+                rebuildNavIndex();
                 data = newSize - oldSize;
                 listView.setItemAnimator(new SlideRightAlphaAnimator());
                 notifyItemRangeInserted(holderPos, data);
@@ -2490,6 +2524,8 @@ public class CommentAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
                     for (int i2 = 0; i2 < currentComments.size(); i2++) {
                         keys.put(currentComments.get(i2).getName(), i2);
                     }
+                    hidden.setComments(currentComments);
+                    rebuildNavIndex();
                 } else {
                     i = -1;
                 }
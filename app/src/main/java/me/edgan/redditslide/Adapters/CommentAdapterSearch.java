@@ -7,6 +7,7 @@ import android.content.Intent;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Typeface;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.text.Spannable;
 import android.text.SpannableStringBuilder;
@@ -35,6 +36,7 @@ import me.edgan.redditslide.Views.RoundedBackgroundSpan;
 import me.edgan.redditslide.Visuals.FontPreferences;
 import me.edgan.redditslide.Visuals.Palette;
 import me.edgan.redditslide.util.CompatUtil;
+import me.edgan.redditslide.util.LogUtil;
 import me.edgan.redditslide.util.MiscUtil;
 import me.edgan.redditslide.util.SubmissionParser;
 import me.edgan.redditslide.util.TimeUtils;
@@ -44,12 +46,12 @@ import net.dean.jraw.models.CommentNode;
 import net.dean.jraw.models.DistinguishedStatus;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.text.StringEscapeUtils;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 public class CommentAdapterSearch extends RecyclerView.Adapter<RecyclerView.ViewHolder>
         implements Filterable {
@@ -61,10 +63,17 @@ public class CommentAdapterSearch extends RecyclerView.Adapter<RecyclerView.View
     /// ... other methods
     private List<CommentNode> dataSet;
 
-    public CommentAdapterSearch(Context mContext, List<CommentNode> dataSet) {
+    /** Built in the background as soon as search opens, waited on by the first query */
+    private final FutureTask<CommentSearchIndex> searchIndex;
+
+    private UserFilter filter;
+
+    public CommentAdapterSearch(Context mContext, final List<CommentNode> dataSet) {
 
         this.mContext = mContext;
         this.originalDataSet = dataSet;
+        searchIndex = new FutureTask<>(() -> new CommentSearchIndex(dataSet));
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(searchIndex);
     }
 
     public void setResult(String result) {
@@ -73,7 +82,10 @@ public class CommentAdapterSearch extends RecyclerView.Adapter<RecyclerView.View
 
     @Override
     public Filter getFilter() {
-        return new UserFilter(this, originalDataSet);
+        if (filter == null) {
+            filter = new UserFilter(this, originalDataSet);
+        }
+        return filter;
     }
 
     @Override
@@ -413,32 +425,44 @@ public class CommentAdapterSearch extends RecyclerView.Adapter<RecyclerView.View
 
         private final List<CommentNode> originalList;
 
-        private final List<CommentNode> filteredList;
+        /** The previous query and its matches, to narrow down while the query grows */
+        private String lastPattern = "";
+
+        private int[] lastMatches;
 
         private UserFilter(CommentAdapterSearch adapter, List<CommentNode> originalList) {
             super();
             this.adapter = adapter;
-            this.originalList = new LinkedList<>(originalList);
-            this.filteredList = new ArrayList<>();
+            this.originalList = new ArrayList<>(originalList);
         }
 
         @Override
         protected FilterResults performFiltering(CharSequence constraint) {
-            filteredList.clear();
+            final List<CommentNode> filteredList = new ArrayList<>();
             final FilterResults results = new FilterResults();
 
             if (constraint.length() == 0) {
                 filteredList.addAll(originalList);
+                lastPattern = "";
+                lastMatches = null;
             } else {
                 final String filterPattern =
                         constraint.toString().toLowerCase(Locale.ENGLISH).trim();
 
-                for (final CommentNode user : originalList) {
-                    if (StringEscapeUtils.unescapeHtml4(
-                                    user.getComment().getBody().toLowerCase(Locale.ENGLISH))
-                            .contains(filterPattern)) {
-                        filteredList.add(user);
+                try {
+                    CommentSearchIndex index = adapter.searchIndex.get();
+                    int[] candidates =
+                            !lastPattern.isEmpty() && filterPattern.contains(lastPattern)
+                                    ? lastMatches
+                                    : null;
+                    int[] matches = index.search(filterPattern, candidates);
+                    for (int i : matches) {
+                        filteredList.add(originalList.get(i));
                     }
+                    lastPattern = filterPattern;
+                    lastMatches = matches;
+                } catch (InterruptedException | ExecutionException e) {
+                    LogUtil.e(e, "Error searching comments");
                 }
             }
             results.values = filteredList;
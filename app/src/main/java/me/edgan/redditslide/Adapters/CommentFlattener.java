@@ -0,0 +1,89 @@
+package me.edgan.redditslide.Adapters;
+
+import net.dean.jraw.models.CommentNode;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns a comment tree into the list shown by {@link CommentAdapter}: comments in tree order, each
+ * "load more" item placed after the last comment below the node it belongs to. The tree is walked
+ * once and can be flattened in steps, so the first comments can be shown before the rest of a
+ * large thread is done.
+ */
+public class CommentFlattener {
+    private final CommentNode base;
+    private final Iterator<CommentNode> nodes;
+    private final boolean loadMore;
+    private final Map<String, String> commentOPs;
+
+    /** Pending "load more" items, deepest on top */
+    private final ArrayDeque<MoreChildItem> waiting = new ArrayDeque<>();
+
+    private String currentOP = "";
+    private boolean done;
+
+    /**
+     * @param loadMore whether to add "load more" items, which need a connection
+     * @param commentOPs if not null, filled with the author of the top level comment of each
+     *     comment id
+     */
+    public CommentFlattener(CommentNode base, boolean loadMore, Map<String, String> commentOPs) {
+        this.base = base;
+        this.nodes = base.walkTree().iterator();
+        this.loadMore = loadMore;
+        this.commentOPs = commentOPs;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Appends the next items to out.
+     *
+     * @param limit how many comments to add at most, not counting "load more" items
+     * @return true once the whole tree was added
+     */
+    public boolean flatten(List<CommentObject> out, int limit) {
+        int added = 0;
+        while (added < limit && nodes.hasNext()) {
+            CommentNode n = nodes.next();
+            int depth = n.getDepth();
+            if (commentOPs != null) {
+                if (depth == 1) {
+                    currentOP = n.getComment().getAuthor();
+                }
+                if (currentOP != null) {
+                    commentOPs.put(n.getComment().getId(), currentOP);
+                }
+            }
+            while (!waiting.isEmpty() && waiting.peek().comment.getDepth() >= depth) {
+                out.add(waiting.pop());
+            }
+            out.add(new CommentItem(n));
+            added++;
+
+            if (n.hasMoreComments() && loadMore) {
+                waiting.push(new MoreChildItem(n, n.getMoreChildren()));
+            }
+        }
+        if (!nodes.hasNext() && !done) {
+            while (!waiting.isEmpty()) {
+                out.add(waiting.pop());
+            }
+            if (base.hasMoreComments() && loadMore) {
+                out.add(new MoreChildItem(base, base.getMoreChildren()));
+            }
+            done = true;
+        }
+        return done;
+    }
+
+    /** Appends everything that is left */
+    public void flattenAll(List<CommentObject> out) {
+        flatten(out, Integer.MAX_VALUE);
+    }
+}
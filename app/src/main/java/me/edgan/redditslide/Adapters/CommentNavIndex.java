@@ -0,0 +1,206 @@
+package me.edgan.redditslide.Adapters;
+
+import net.dean.jraw.models.Comment;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * List positions of the comments each {@link CommentNavType} jumps between, so a jump is a binary
+ * search instead of a scan of the whole thread. TIME uses a max tree of comment times, since its
+ * threshold is picked after the index is built. Built from a snapshot of the list, off the UI
+ * thread; a list change needs a new index.
+ */
+public class CommentNavIndex {
+    private static final int[] NONE = new int[0];
+
+    private final int size;
+    private final int[] parents;
+    private final int[] gilded;
+    private final int[] op;
+    private final int[] you;
+    private final int[] link;
+    private final HashMap<Integer, int[]> byDepth = new HashMap<>();
+
+    /** Max tree over comment times, leaves start at leafStart; -1 for non comments */
+    private final long[] times;
+
+    private final int leafStart;
+
+    public CommentNavIndex(List<CommentObject> comments, String opName, String userName) {
+        size = comments.size();
+        IntList parents = new IntList();
+        IntList gilded = new IntList();
+        IntList op = new IntList();
+        IntList you = new IntList();
+        IntList link = new IntList();
+        HashMap<Integer, IntList> depths = new HashMap<>();
+
+        int leaves = 1;
+        while (leaves < size) {
+            leaves <<= 1;
+        }
+        leafStart = leaves;
+        times = new long[leaves * 2];
+        Arrays.fill(times, -1);
+
+        for (int i = 0; i < size; i++) {
+            CommentObject o = comments.get(i);
+            if (!(o instanceof CommentItem)) {
+                continue;
+            }
+            Comment c = o.comment.getComment();
+            if (o.comment.isTopLevel()) {
+                parents.add(i);
+            }
+            IntList depth = depths.get(o.comment.getDepth());
+            if (depth == null) {
+                depth = new IntList();
+                depths.put(o.comment.getDepth(), depth);
+            }
+            depth.add(i);
+            if (c.getTimesGilded() > 0 || c.getTimesSilvered() > 0 || c.getTimesPlatinized() > 0) {
+                gilded.add(i);
+            }
+            if (c.getAuthor() != null) {
+                if (c.getAuthor().equals(opName)) {
+                    op.add(i);
+                }
+                if (c.getAuthor().equals(userName)) {
+                    you.add(i);
+                }
+            }
+            if (c.getDataNode().get("body_html").asText().contains("&lt;/a")) {
+                link.add(i);
+            }
+            if (c.getCreated() != null) {
+                times[leafStart + i] = c.getCreated().getTime();
+            }
+        }
+        for (int i = leafStart - 1; i > 0; i--) {
+            times[i] = Math.max(times[2 * i], times[2 * i + 1]);
+        }
+
+        this.parents = parents.toArray();
+        this.gilded = gilded.toArray();
+        this.op = op.toArray();
+        this.you = you.toArray();
+        this.link = link.toArray();
+        for (Integer depth : depths.keySet()) {
+            byDepth.put(depth, depths.get(depth).toArray());
+        }
+    }
+
+    /** Number of list items the index was built from */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the first matching list position at or after from, or -1.
+     *
+     * @param depth the depth CHILDREN jumps between, or -1 for top level comments
+     * @param sortTime the time TIME jumps to comments after
+     */
+    public int next(CommentNavType type, int depth, long sortTime, int from) {
+        if (from < 0) {
+            from = 0;
+        }
+        if (from >= size) {
+            return -1;
+        }
+        if (type == CommentNavType.TIME) {
+            return firstAfter(1, 0, leafStart, from, sortTime);
+        }
+        int[] positions = positions(type, depth);
+        int i = Arrays.binarySearch(positions, from);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return i < positions.length ? positions[i] : -1;
+    }
+
+    /** Returns the last matching list position at or before to, or -1 */
+    public int previous(CommentNavType type, int depth, long sortTime, int to) {
+        if (to >= size) {
+            to = size - 1;
+        }
+        if (to < 0) {
+            return -1;
+        }
+        if (type == CommentNavType.TIME) {
+            return lastBefore(1, 0, leafStart, to, sortTime);
+        }
+        int[] positions = positions(type, depth);
+        int i = Arrays.binarySearch(positions, to);
+        if (i < 0) {
+            i = -i - 2;
+        }
+        return i >= 0 ? positions[i] : -1;
+    }
+
+    private int[] positions(CommentNavType type, int depth) {
+        switch (type) {
+            case CHILDREN:
+                if (depth != -1) {
+                    int[] positions = byDepth.get(depth);
+                    return positions == null ? NONE : positions;
+                }
+                return parents;
+            case GILDED:
+                return gilded;
+            case OP:
+                return op;
+            case YOU:
+                return you;
+            case LINK:
+                return link;
+            case PARENTS:
+            default:
+                return parents;
+        }
+    }
+
+    /** First leaf at or after from in the node covering [start, end) with a time after t */
+    private int firstAfter(int node, int start, int end, int from, long t) {
+        if (end <= from || times[node] <= t) {
+            return -1;
+        }
+        if (end - start == 1) {
+            return start;
+        }
+        int mid = (start + end) / 2;
+        int found = firstAfter(2 * node, start, mid, from, t);
+        return found != -1 ? found : firstAfter(2 * node + 1, mid, end, from, t);
+    }
+
+    /** Last leaf at or before to in the node covering [start, end) with a time after t */
+    private int lastBefore(int node, int start, int end, int to, long t) {
+        if (start > to || times[node] <= t) {
+            return -1;
+        }
+        if (end - start == 1) {
+            return start;
+        }
+        int mid = (start + end) / 2;
+        int found = lastBefore(2 * node + 1, mid, end, to, t);
+        return found != -1 ? found : lastBefore(2 * node, start, mid, to, t);
+    }
+
+    private static class IntList {
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
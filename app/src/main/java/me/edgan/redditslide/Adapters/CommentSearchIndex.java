@@ -0,0 +1,115 @@
+package me.edgan.redditslide.Adapters;
+
+import net.dean.jraw.models.CommentNode;
+
+import org.apache.commons.text.StringEscapeUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Trigram index over the bodies of a thread's comments. A search only checks the comments that
+ * contain the rarest trigram of the query, or, while the query grows, the comments that matched
+ * the shorter query.
+ */
+public class CommentSearchIndex {
+    private static final int GRAM = 3;
+
+    /** Lowercased, unescaped bodies, as searched */
+    private final String[] texts;
+
+    /** Ascending positions of the comments containing each trigram */
+    private final HashMap<Long, int[]> postings = new HashMap<>();
+
+    private final int[] all;
+
+    public CommentSearchIndex(List<CommentNode> comments) {
+        texts = new String[comments.size()];
+        all = new int[texts.length];
+        HashMap<Long, Posting> building = new HashMap<>();
+        for (int i = 0; i < texts.length; i++) {
+            String body = comments.get(i).getComment().getBody();
+            texts[i] =
+                    body == null
+                            ? ""
+                            : StringEscapeUtils.unescapeHtml4(body.toLowerCase(Locale.ENGLISH));
+            all[i] = i;
+            String text = texts[i];
+            for (int j = 0; j + GRAM <= text.length(); j++) {
+                long gram = gram(text, j);
+                Posting posting = building.get(gram);
+                if (posting == null) {
+                    posting = new Posting();
+                    building.put(gram, posting);
+                }
+                posting.add(i);
+            }
+        }
+        for (Long gram : building.keySet()) {
+            postings.put(gram, building.get(gram).toArray());
+        }
+    }
+
+    /**
+     * Returns the ascending positions of the comments that contain query.
+     *
+     * @param query lowercased query
+     * @param candidates positions to search in, e.g. the results of a query this one contains, or
+     *     null to search every comment
+     */
+    public int[] search(String query, int[] candidates) {
+        if (query.isEmpty()) {
+            return candidates == null ? all : candidates;
+        }
+        if (candidates == null && query.length() >= GRAM) {
+            for (int j = 0; j + GRAM <= query.length(); j++) {
+                int[] list = postings.get(gram(query, j));
+                if (list == null) {
+                    return new int[0];
+                }
+                if (candidates == null || list.length < candidates.length) {
+                    candidates = list;
+                }
+            }
+        }
+        if (candidates == null) {
+            candidates = all;
+        }
+        int[] found = new int[candidates.length];
+        int count = 0;
+        for (int i : candidates) {
+            if (texts[i].contains(query)) {
+                found[count++] = i;
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    private static class Posting {
+        int[] positions = new int[4];
+        int size;
+
+        void add(int position) {
+            // Positions come in order, so a comment's repeats are next to each other
+            if (size > 0 && positions[size - 1] == position) {
+                return;
+            }
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(positions, size);
+        }
+    }
+
+    private static long gram(String text, int start) {
+        return ((long) text.charAt(start) << 32)
+                | ((long) text.charAt(start + 1) << 16)
+                | text.charAt(start + 2);
+    }
+}
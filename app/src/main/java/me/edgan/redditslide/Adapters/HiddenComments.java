@@ -0,0 +1,122 @@
+package me.edgan.redditslide.Adapters;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Names of the collapsed items of a comment list, with a Fenwick tree over which list positions
+ * are visible. Hiding, showing and mapping an adapter position to a list position take O(log n),
+ * however many subtrees are collapsed. The list has to be passed in again with {@link
+ * #setComments(List)} whenever items are added or removed.
+ */
+public class HiddenComments {
+    private final HashSet<String> hidden = new HashSet<>();
+    private final HashMap<String, Integer> positions = new HashMap<>();
+
+    /** 1-based Fenwick tree of 1 for a visible position and 0 for a hidden one */
+    private int[] tree = new int[1];
+
+    private int highestBit;
+
+    public void setComments(List<CommentObject> comments) {
+        positions.clear();
+        int size = comments == null ? 0 : comments.size();
+        int[] built = new int[size + 1];
+        for (int i = 1; i <= size; i++) {
+            String name = comments.get(i - 1).getName();
+            positions.put(name, i - 1);
+            built[i] += hidden.contains(name) ? 0 : 1;
+            int parent = i + (i & -i);
+            if (parent <= size) {
+                built[parent] += built[i];
+            }
+        }
+        highestBit = size == 0 ? 0 : Integer.highestOneBit(size);
+        tree = built;
+    }
+
+    public boolean contains(String name) {
+        return hidden.contains(name);
+    }
+
+    /** Returns false if name was already hidden */
+    public boolean add(String name) {
+        if (!hidden.add(name)) {
+            return false;
+        }
+        Integer position = positions.get(name);
+        if (position != null) {
+            update(position + 1, -1);
+        }
+        return true;
+    }
+
+    /** Returns false if name wasn't hidden */
+    public boolean remove(String name) {
+        if (!hidden.remove(name)) {
+            return false;
+        }
+        Integer position = positions.get(name);
+        if (position != null) {
+            update(position + 1, 1);
+        }
+        return true;
+    }
+
+    /** Number of list items that are shown */
+    public int getVisibleCount() {
+        return visibleUpTo(tree.length - 1);
+    }
+
+    /** Number of hidden items at list positions up to and including index */
+    public int getHiddenCountUpTo(int index) {
+        int end = Math.min(index + 1, tree.length - 1);
+        return end <= 0 ? 0 : end - visibleUpTo(end);
+    }
+
+    /** Returns the adapter position of the visible item at list position index */
+    public int getVisiblePosition(int index) {
+        return index - getHiddenCountUpTo(index);
+    }
+
+    /**
+     * Returns the list position of the visible item at visiblePosition. Positions past the last
+     * visible item are shifted by the hidden count, as if the list went on with visible items.
+     */
+    public int getRealPosition(int visiblePosition) {
+        int size = tree.length - 1;
+        int visible = visibleUpTo(size);
+        if (visiblePosition < 0) {
+            return visiblePosition;
+        }
+        if (visiblePosition >= visible) {
+            return visiblePosition + size - visible;
+        }
+        // Find the smallest prefix holding visiblePosition + 1 visible items
+        int remaining = visiblePosition + 1;
+        int index = 0;
+        for (int bit = highestBit; bit > 0; bit >>= 1) {
+            int next = index + bit;
+            if (next <= size && tree[next] < remaining) {
+                index = next;
+                remaining -= tree[next];
+            }
+        }
+        return index;
+    }
+
+    private int visibleUpTo(int end) {
+        int sum = 0;
+        for (int i = end; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private void update(int index, int delta) {
+        for (int i = index; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 import com.lusfold.androidkeyvaluestore.KVStore;
 
 import me.edgan.redditslide.Authentication;
+import me.edgan.redditslide.HistoryStore;
 import me.edgan.redditslide.PostMatch;
 
 import net.dean.jraw.models.Contribution;
@@ -108,46 +109,30 @@ public class HistoryPosts extends GeneralPosts {
             try {
                 if (reset || paginator == null) {
                     ArrayList<String> ids = new ArrayList<>();
-                    HashMap<Long, String> idsSorted = new HashMap<>();
-                    Map<String, String> values;
                     if (prefix.isEmpty()) {
-                        values = KVStore.getInstance().getByContains("");
+                        HistoryStore.getInstance().flush().get();
+                        // The history store already returns ids most recent first
+                        for (String id : HistoryStore.getInstance().getSeenIds()) {
+                            ids.add(id.contains("_") ? id : "t3_" + id);
+                        }
                     } else {
-                        values = KVStore.getInstance().getByPrefix(prefix);
-                    }
+                        HashMap<Long, String> idsSorted = new HashMap<>();
+                        Map<String, String> values = KVStore.getInstance().getByPrefix(prefix);
 
-                    for (Map.Entry<String, String> entry : values.entrySet()) {
-                        Object done;
-                        if (entry.getValue().equals("true") || entry.getValue().equals("false")) {
-                            done = Boolean.valueOf(entry.getValue());
-                        } else {
-                            done = Long.valueOf(entry.getValue());
-                        }
-                        if (prefix.isEmpty()) {
-                            if (!entry.getKey().contains("readLater")) {
-                                if (entry.getKey().length() == 6 && done instanceof Boolean) {
-                                    ids.add("t3_" + entry.getKey());
-                                } else if (done instanceof Long) {
-                                    if (entry.getKey().contains("_")) {
-                                        idsSorted.put((Long) done, entry.getKey());
-                                    } else {
-                                        idsSorted.put((Long) done, "t3_" + entry.getKey());
-                                    }
-                                }
-                            }
-                        } else {
+                        for (Map.Entry<String, String> entry : values.entrySet()) {
                             String key = entry.getKey();
                             if (!key.contains("_")) {
                                 key = "t3_" + key;
                             }
-                            idsSorted.put((Long) done, key.replace(prefix, ""));
+                            idsSorted.put(Long.valueOf(entry.getValue()), key.replace(prefix, ""));
                         }
-                    }
 
-                    if (!idsSorted.isEmpty()) {
-                        TreeMap<Long, String> result2 = new TreeMap<>(Collections.reverseOrder());
-                        result2.putAll(idsSorted);
-                        ids.addAll(0, result2.values());
+                        if (!idsSorted.isEmpty()) {
+                            TreeMap<Long, String> result2 =
+                                    new TreeMap<>(Collections.reverseOrder());
+                            result2.putAll(idsSorted);
+                            ids.addAll(result2.values());
+                        }
                     }
 
                     paginator =
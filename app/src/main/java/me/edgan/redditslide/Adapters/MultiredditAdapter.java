@@ -17,6 +17,7 @@ import com.google.android.material.snackbar.Snackbar;
 import me.edgan.redditslide.Activities.CommentsScreen;
 import me.edgan.redditslide.Authentication;
 import me.edgan.redditslide.Fragments.MultiredditView;
+import me.edgan.redditslide.OfflineSubreddit;
 import me.edgan.redditslide.R;
 import me.edgan.redditslide.SubmissionViews.PopulateSubmissionViewHolder;
 import me.edgan.redditslide.Views.CatchStaggeredGridLayoutManager;
@@ -160,7 +161,8 @@ public class MultiredditAdapter extends RecyclerView.Adapter<RecyclerView.ViewHo
                         @Override
                         public void onClick(View arg0) {
 
-                            if (Authentication.didOnline || submission.getComments() != null) {
+                            if (Authentication.didOnline
+                                    || OfflineSubreddit.hasCachedComments(submission)) {
                                 holder.title.setAlpha(0.65f);
                                 holder.leadImage.setAlpha(0.65f);
                                 holder.thumbimage.setAlpha(0.65f);
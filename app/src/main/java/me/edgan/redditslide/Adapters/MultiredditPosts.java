@@ -17,14 +17,12 @@ import me.edgan.redditslide.Synccit.MySynccitReadTask;
 import me.edgan.redditslide.UserSubscriptions;
 import me.edgan.redditslide.util.LogUtil;
 import me.edgan.redditslide.util.NetworkUtil;
-import me.edgan.redditslide.util.PhotoLoader;
 
 import net.dean.jraw.models.MultiReddit;
 import net.dean.jraw.models.Submission;
 import net.dean.jraw.paginators.MultiRedditPaginator;
 
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 
@@ -46,7 +44,7 @@ public class MultiredditPosts implements PostLoader {
     MultiredditAdapter adapter;
 
     public MultiredditPosts(String multireddit, String profile) {
-        posts = new ArrayList<>();
+        posts = new SubmissionList();
         LogUtil.e("MJWHITTA: Profile is " + profile + ".");
         LogUtil.e("MJWHITTA: Multireddit is " + multireddit + ".");
         if (profile.isEmpty()) {
@@ -112,11 +110,10 @@ public class MultiredditPosts implements PostLoader {
                 }
 
                 if (reset || offline || posts == null) {
-                    posts = new ArrayList<>(new LinkedHashSet<>(submissions));
+                    posts = new SubmissionList(submissions);
                     start = -1;
                 } else {
-                    posts.addAll(submissions);
-                    posts = new ArrayList<>(new LinkedHashSet<>(posts));
+                    posts = SubmissionList.append(posts, submissions);
                     offline = false;
                 }
                 if (!usedOffline)
@@ -164,6 +161,7 @@ public class MultiredditPosts implements PostLoader {
                                 "multi" + multiReddit.getDisplayName().toLowerCase(Locale.ENGLISH),
                                 true,
                                 context);
+                cached.loadAll(context);
 
                 List<Submission> finalSubs = new ArrayList<>();
                 for (Submission s : cached.submissions) {
@@ -247,11 +245,6 @@ public class MultiredditPosts implements PostLoader {
             SubmissionCache.cacheSubmissions(
                     filteredSubmissions, context, paginator.getMultiReddit().getDisplayName());
 
-            if (!(SettingValues.noImages
-                    && ((!NetworkUtil.isConnectedWifi(c) && SettingValues.lowResMobile)
-                            || SettingValues.lowResAlways)))
-                PhotoLoader.loadPhotos(c, filteredSubmissions);
-
             if (SettingValues.storeHistory) LastComments.setCommentsSince(filteredSubmissions);
 
             return filteredSubmissions;
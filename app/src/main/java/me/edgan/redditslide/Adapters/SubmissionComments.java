@@ -9,23 +9,22 @@ import com.fasterxml.jackson.databind.JsonNode;
 import me.edgan.redditslide.Authentication;
 import me.edgan.redditslide.Fragments.CommentPage;
 import me.edgan.redditslide.LastComments;
+import me.edgan.redditslide.SpoilerRobotoTextView;
 import me.edgan.redditslide.util.NetworkUtil;
 
 import net.dean.jraw.http.RestResponse;
 import net.dean.jraw.http.SubmissionRequest;
-import net.dean.jraw.models.CommentNode;
 import net.dean.jraw.models.CommentSort;
 import net.dean.jraw.models.Submission;
 import net.dean.jraw.models.meta.SubmissionSerializer;
 import net.dean.jraw.util.JrawUtils;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** Created by ccrama on 9/17/2015. */
 public class SubmissionComments {
@@ -35,7 +34,7 @@ public class SubmissionComments {
     private final String fullName;
     private final CommentPage page;
     public ArrayList<CommentObject> comments;
-    public HashMap<String, String> commentOPs = new HashMap<>();
+    public Map<String, String> commentOPs = new ConcurrentHashMap<>();
     public Submission submission;
     private String context;
     private CommentSort defaultSorting = CommentSort.CONFIDENCE;
@@ -44,6 +43,14 @@ public class SubmissionComments {
     public boolean online = true;
     int contextNumber = 5;
 
+    /** How many comments from the top get their text prepared ahead of binding */
+    private static final int PREPARED_COMMENTS = 50;
+
+    /** Threads with at least this many comments are shown before they are fully flattened */
+    private static final int STREAM_THRESHOLD = 1000;
+
+    private static final int FIRST_SCREEN = 25;
+
     public SubmissionComments(
             String fullName, CommentPage commentPage, SwipeRefreshLayout layout, Submission s) {
         this.fullName = fullName;
@@ -54,40 +61,9 @@ public class SubmissionComments {
 
         if (s.getComments() != null) {
             submission = s;
-            CommentNode baseComment = s.getComments();
             comments = new ArrayList<>();
-            Map<Integer, MoreChildItem> waiting = new HashMap<>();
-
-            for (CommentNode n : baseComment.walkTree()) {
-
-                CommentObject obj = new CommentItem(n);
-                List<Integer> removed = new ArrayList<>();
-                Map<Integer, MoreChildItem> map = new TreeMap<>(Collections.reverseOrder());
-                map.putAll(waiting);
-
-                for (Integer i : map.keySet()) {
-                    if (i >= n.getDepth()) {
-                        comments.add(waiting.get(i));
-                        removed.add(i);
-                        waiting.remove(i);
-                    }
-                }
-
-                comments.add(obj);
-
-                if (n.hasMoreComments() && online) {
-                    waiting.put(n.getDepth(), new MoreChildItem(n, n.getMoreChildren()));
-                }
-            }
-            Map<Integer, MoreChildItem> map = new TreeMap<>(Collections.reverseOrder());
-            map.putAll(waiting);
-            for (Integer i : map.keySet()) {
-                comments.add(waiting.get(i));
-                waiting.remove(i);
-            }
-            if (baseComment.hasMoreComments() && online) {
-                comments.add(new MoreChildItem(baseComment, baseComment.getMoreChildren()));
-            }
+            new CommentFlattener(s.getComments(), online, null).flattenAll(comments);
+            prepareCommentText();
 
             if (adapter != null) {
                 adapter.notifyDataSetChanged();
@@ -117,6 +93,20 @@ public class SubmissionComments {
         this.contextNumber = contextNumber;
     }
 
+    /** Renders the first comments' text in the background before the adapter binds them */
+    private void prepareCommentText() {
+        List<String> bodies = new ArrayList<>();
+        for (CommentObject o : comments) {
+            if (o.isComment()) {
+                bodies.add(o.comment.getComment().getDataNode().get("body_html").asText());
+                if (bodies.size() == PREPARED_COMMENTS) {
+                    break;
+                }
+            }
+        }
+        SpoilerRobotoTextView.prepareTextHtml(bodies, submission.getSubredditName());
+    }
+
     public void cancelLoad() {
         if (mLoadData != null) {
             mLoadData.cancel(true);
@@ -187,7 +177,8 @@ public class SubmissionComments {
                 Authentication.reddit.getSubmission(submission.getFullName().substring(3));
     }
 
-    public class LoadData extends AsyncTask<String, Void, ArrayList<CommentObject>> {
+    public class LoadData
+            extends AsyncTask<String, ArrayList<CommentObject>, ArrayList<CommentObject>> {
         final boolean reset;
 
         public LoadData(boolean reset) {
@@ -210,6 +201,15 @@ public class SubmissionComments {
         }
 
         @Override
+        protected void onProgressUpdate(ArrayList<CommentObject>... firstComments) {
+            if (page.isVisible() && submission != null) {
+                comments = firstComments[0];
+                page.doData(reset);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
         protected ArrayList<CommentObject> doInBackground(String... subredditPaginators) {
             SubmissionRequest.Builder builder;
             if (context == null) {
@@ -227,49 +227,24 @@ public class SubmissionComments {
 
                 JsonNode node = getSubmissionNode(builder.build());
                 submission = SubmissionSerializer.withComments(node, defaultSorting);
-                CommentNode baseComment = submission.getComments();
 
                 /* if (page.o != null)
                 page.o.setCommentAndWrite(submission.getFullName(), node, submission).writeToMemory();*/
 
-                comments = new ArrayList<>();
-                Map<Integer, MoreChildItem> waiting = new HashMap<>();
-                commentOPs = new HashMap<>();
-                String currentOP = "";
+                ArrayList<CommentObject> flattened = new ArrayList<>();
+                commentOPs = new ConcurrentHashMap<>();
+                CommentFlattener flattener =
+                        new CommentFlattener(submission.getComments(), true, commentOPs);
 
-                for (CommentNode n : baseComment.walkTree()) {
-                    if (n.getDepth() == 1) {
-                        currentOP = n.getComment().getAuthor();
-                    }
-                    commentOPs.put(n.getComment().getId(), currentOP);
-                    CommentObject obj = new CommentItem(n);
-                    List<Integer> removed = new ArrayList<>();
-                    Map<Integer, MoreChildItem> map = new TreeMap<>(Collections.reverseOrder());
-                    map.putAll(waiting);
-
-                    for (Integer i : map.keySet()) {
-                        if (i >= n.getDepth()) {
-                            comments.add(waiting.get(i));
-                            removed.add(i);
-                            waiting.remove(i);
-                        }
+                // Show the first screen of a large thread while the rest is flattened
+                if (!single && submission.getCommentCount() >= STREAM_THRESHOLD) {
+                    if (!flattener.flatten(flattened, FIRST_SCREEN)) {
+                        publishProgress(new ArrayList<>(flattened));
                     }
-
-                    comments.add(obj);
-
-                    if (n.hasMoreComments()) {
-                        waiting.put(n.getDepth(), new MoreChildItem(n, n.getMoreChildren()));
-                    }
-                }
-                Map<Integer, MoreChildItem> map = new TreeMap<>(Collections.reverseOrder());
-                map.putAll(waiting);
-                for (Integer i : map.keySet()) {
-                    comments.add(waiting.get(i));
-                    waiting.remove(i);
-                }
-                if (baseComment.hasMoreComments()) {
-                    comments.add(new MoreChildItem(baseComment, baseComment.getMoreChildren()));
                 }
+                flattener.flattenAll(flattened);
+                comments = flattened;
+                prepareCommentText();
 
                 return comments;
             } catch (Exception e) {
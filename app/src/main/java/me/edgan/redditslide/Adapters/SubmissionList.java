@@ -0,0 +1,454 @@
+package me.edgan.redditslide.Adapters;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import me.edgan.redditslide.util.LogUtil;
+
+import net.dean.jraw.models.Submission;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Feed list that pages are appended to in place, skipping posts it already holds. Posts are told
+ * apart by fullname, which is kept in a set, so a page costs as much as its own size instead of a
+ * copy of the whole feed. Removing or inserting posts by other means is fine; the set is rebuilt
+ * the next time a page is appended.
+ *
+ * <p>Posts far above the visible ones are parked: their slot is given a compact copy that keeps
+ * only a few small fields and holds the rest deflated. Posts are copied and deflated on a
+ * background thread and never changed in place, as other screens and threads may hold them too.
+ * Reads hand out a full copy of a parked post and leave the slot parked; posts are swapped back
+ * once they come near the visible ones again. Lookups by post match on fullname, so the copies
+ * are found like the posts they came from.
+ */
+public class SubmissionList extends ArrayList<Submission> {
+    /** Posts further than this above the first visible one are parked */
+    private static final int PARK_DISTANCE = 100;
+
+    /** Fields a parked post keeps, enough to tell posts apart, filter them and mark them seen */
+    private static final List<String> KEPT_FIELDS =
+            Arrays.asList(
+                    "name",
+                    "id",
+                    "title",
+                    "subreddit",
+                    "author",
+                    "domain",
+                    "url",
+                    "permalink",
+                    "created_utc",
+                    "score",
+                    "num_comments",
+                    "over_18",
+                    "spoiler",
+                    "stickied",
+                    "is_self",
+                    "likes",
+                    "saved",
+                    "hidden",
+                    "link_flair_text");
+
+    /** Holds the deflated JSON of the fields a parked post let go of */
+    private static final String PACKED = "__packed";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final ExecutorService PACKER = Executors.newSingleThreadExecutor();
+
+    private final HashSet<String> names = new HashSet<>();
+
+    /** modCount the names were last brought up to date at */
+    private int indexedModCount = -1;
+
+    /** Posts before this position have been sent off to be parked */
+    private int parkedBelow;
+
+    /** Parked and restored copies waiting to take the place of their posts */
+    private final ConcurrentLinkedQueue<Swap> swaps = new ConcurrentLinkedQueue<>();
+
+    public SubmissionList() {}
+
+    public SubmissionList(Collection<Submission> submissions) {
+        appendNew(submissions);
+    }
+
+    /**
+     * Appends page to list, which is turned into a SubmissionList first if it isn't one or is
+     * null.
+     *
+     * @return the list holding the posts, to assign back to the field it came from
+     */
+    public static SubmissionList append(List<Submission> list, Collection<Submission> page) {
+        SubmissionList submissions;
+        if (list instanceof SubmissionList) {
+            submissions = (SubmissionList) list;
+        } else {
+            submissions = new SubmissionList();
+            if (list != null) {
+                submissions.appendNew(list);
+            }
+        }
+        submissions.appendNew(page);
+        return submissions;
+    }
+
+    /** Appends the submissions that aren't in the list yet, returning how many were added */
+    public synchronized int appendNew(Collection<Submission> page) {
+        if (indexedModCount != modCount) {
+            names.clear();
+            for (int i = 0; i < size(); i++) {
+                names.add(super.get(i).getFullName());
+            }
+        }
+        int added = 0;
+        ensureCapacity(size() + page.size());
+        for (Submission s : page) {
+            if (names.add(s.getFullName())) {
+                add(s);
+                added++;
+            }
+        }
+        indexedModCount = modCount;
+        return added;
+    }
+
+    /**
+     * Puts in the copies made since the last call, then parks the posts that are now far above the
+     * first visible one, or restores the ones that came back near it. Call it from the thread that
+     * changes the list, the UI thread for feeds, as the list scrolls.
+     *
+     * @return the background copying, or null if there was nothing to copy
+     */
+    public Future<?> park(int firstVisible) {
+        applySwaps();
+        int end = Math.max(Math.min(firstVisible - PARK_DISTANCE, size()), 0);
+        int from = Math.min(Math.min(parkedBelow, end), size());
+        int to = Math.min(Math.max(parkedBelow, end), size());
+        final boolean parking = end > parkedBelow;
+        parkedBelow = end;
+        if (from >= to) {
+            return null;
+        }
+        final int offset = from;
+        final Submission[] posts = new Submission[to - from];
+        for (int i = 0; i < posts.length; i++) {
+            posts[i] = super.get(from + i);
+        }
+        return PACKER.submit(
+                () -> {
+                    for (int i = 0; i < posts.length; i++) {
+                        Submission copy;
+                        if (parking) {
+                            copy = pack(posts[i]);
+                        } else {
+                            copy = isPacked(posts[i]) ? restore(posts[i]) : null;
+                        }
+                        if (copy != null) {
+                            swaps.add(new Swap(offset + i, posts[i], copy));
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Puts each waiting copy in its post's slot, if the post is still where it was and the list
+     * hasn't scrolled the other way since it was made
+     */
+    private void applySwaps() {
+        Swap swap;
+        while ((swap = swaps.poll()) != null) {
+            boolean wanted =
+                    isPacked(swap.copy) ? swap.index < parkedBelow : swap.index >= parkedBelow;
+            if (wanted && swap.index < size() && super.get(swap.index) == swap.post) {
+                super.set(swap.index, swap.copy);
+            }
+        }
+    }
+
+    /** Copies the list without restoring parked posts, for reading their fullnames */
+    public ArrayList<Submission> copyParked() {
+        ArrayList<Submission> copy = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            copy.add(super.get(i));
+        }
+        return copy;
+    }
+
+    @Override
+    public Submission get(int index) {
+        return restore(super.get(index));
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof Submission)) {
+            return super.indexOf(o);
+        }
+        String name = ((Submission) o).getFullName();
+        for (int i = 0; i < size(); i++) {
+            Submission s = super.get(i);
+            if (s == o || name.equals(s.getFullName())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        if (!(o instanceof Submission)) {
+            return super.lastIndexOf(o);
+        }
+        String name = ((Submission) o).getFullName();
+        for (int i = size() - 1; i >= 0; i--) {
+            Submission s = super.get(i);
+            if (s == o || name.equals(s.getFullName())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public Iterator<Submission> iterator() {
+        return listIterator(0);
+    }
+
+    @Override
+    public ListIterator<Submission> listIterator() {
+        return listIterator(0);
+    }
+
+    @Override
+    public ListIterator<Submission> listIterator(int index) {
+        return restoring(super.listIterator(index));
+    }
+
+    @Override
+    public Spliterator<Submission> spliterator() {
+        return Spliterators.spliterator(iterator(), size(), Spliterator.ORDERED);
+    }
+
+    @Override
+    public List<Submission> subList(int fromIndex, int toIndex) {
+        final List<Submission> view = super.subList(fromIndex, toIndex);
+        return new AbstractList<Submission>() {
+            @Override
+            public Submission get(int index) {
+                return restore(view.get(index));
+            }
+
+            @Override
+            public int size() {
+                return view.size();
+            }
+
+            @Override
+            public Submission set(int index, Submission submission) {
+                return restore(view.set(index, submission));
+            }
+
+            @Override
+            public void add(int index, Submission submission) {
+                view.add(index, submission);
+            }
+
+            @Override
+            public Submission remove(int index) {
+                return restore(view.remove(index));
+            }
+        };
+    }
+
+    @Override
+    public void forEach(Consumer<? super Submission> action) {
+        super.forEach(s -> action.accept(restore(s)));
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super Submission> filter) {
+        return super.removeIf(s -> filter.test(restore(s)));
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<Submission> operator) {
+        super.replaceAll(s -> operator.apply(restore(s)));
+    }
+
+    /** Restores the whole list first, as a comparison per restore would cost more than this */
+    @Override
+    public void sort(Comparator<? super Submission> c) {
+        applySwaps();
+        for (int i = 0; i < size(); i++) {
+            super.set(i, restore(super.get(i)));
+        }
+        parkedBelow = 0;
+        super.sort(c);
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] array = super.toArray();
+        for (int i = 0; i < array.length; i++) {
+            array[i] = restore((Submission) array[i]);
+        }
+        return array;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        T[] array = super.toArray(a);
+        for (int i = 0; i < size(); i++) {
+            if (array[i] instanceof Submission) {
+                array[i] = (T) restore((Submission) array[i]);
+            }
+        }
+        return array;
+    }
+
+    private static ListIterator<Submission> restoring(final ListIterator<Submission> it) {
+        return new ListIterator<Submission>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Submission next() {
+                return restore(it.next());
+            }
+
+            @Override
+            public boolean hasPrevious() {
+                return it.hasPrevious();
+            }
+
+            @Override
+            public Submission previous() {
+                return restore(it.previous());
+            }
+
+            @Override
+            public int nextIndex() {
+                return it.nextIndex();
+            }
+
+            @Override
+            public int previousIndex() {
+                return it.previousIndex();
+            }
+
+            @Override
+            public void remove() {
+                it.remove();
+            }
+
+            @Override
+            public void set(Submission submission) {
+                it.set(submission);
+            }
+
+            @Override
+            public void add(Submission submission) {
+                it.add(submission);
+            }
+        };
+    }
+
+    private static boolean isPacked(Submission s) {
+        return s != null && s.getDataNode() != null && s.getDataNode().has(PACKED);
+    }
+
+    /** Makes a compact copy of a post, or returns null if it can't be parked */
+    private static Submission pack(Submission s) {
+        JsonNode data = s.getDataNode();
+        if (!(data instanceof ObjectNode) || data.has(PACKED)) {
+            return null;
+        }
+        ObjectNode kept = ((ObjectNode) data).deepCopy().retain(KEPT_FIELDS);
+        ObjectNode released = ((ObjectNode) data).deepCopy();
+        released.remove(KEPT_FIELDS);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new DeflaterOutputStream(bytes)) {
+            MAPPER.writeValue(out, released);
+        } catch (IOException e) {
+            LogUtil.e(e, "Error parking " + s.getFullName());
+            return null;
+        }
+        kept.put(PACKED, bytes.toByteArray());
+        return new Submission(kept);
+    }
+
+    /**
+     * Returns a full copy of a parked post, wherever it was read from, or the post itself if it
+     * isn't parked. The parked post is left as it is.
+     */
+    public static Submission restore(Submission s) {
+        if (!isPacked(s)) {
+            return s;
+        }
+        ObjectNode node = ((ObjectNode) s.getDataNode()).deepCopy();
+        JsonNode packed = node.remove(PACKED);
+        try (InputStream in =
+                new InflaterInputStream(new ByteArrayInputStream(packed.binaryValue()))) {
+            node.setAll((ObjectNode) MAPPER.readTree(in));
+        } catch (IOException e) {
+            LogUtil.e(e, "Error restoring " + s.getFullName());
+        }
+        return new Submission(node);
+    }
+
+    private static class Swap {
+        final int index;
+        final Submission post;
+        final Submission copy;
+
+        Swap(int index, Submission post, Submission copy) {
+            this.index = index;
+            this.post = post;
+            this.copy = copy;
+        }
+    }
+}
@@ -19,6 +19,7 @@ import me.edgan.redditslide.Activities.MainActivity;
 import me.edgan.redditslide.Activities.SubredditView;
 import me.edgan.redditslide.Authentication;
 import me.edgan.redditslide.Fragments.SubmissionsView;
+import me.edgan.redditslide.OfflineSubreddit;
 import me.edgan.redditslide.R;
 import me.edgan.redditslide.Reddit;
 import me.edgan.redditslide.SettingValues;
@@ -178,7 +179,8 @@ public class SubmissionNewsAdapter extends RecyclerView.Adapter<RecyclerView.Vie
                         @Override
                         public void onSingleClick(View v) {
 
-                            if (Authentication.didOnline || submission.getComments() != null) {
+                            if (Authentication.didOnline
+                                    || OfflineSubreddit.hasCachedComments(submission)) {
                                 holder.title.setAlpha(0.54f);
 
                                 if (context instanceof MainActivity) {
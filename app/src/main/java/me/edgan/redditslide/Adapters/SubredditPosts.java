@@ -25,7 +25,6 @@ import me.edgan.redditslide.SubmissionCache;
 import me.edgan.redditslide.Synccit.MySynccitReadTask;
 import me.edgan.redditslide.util.LogUtil;
 import me.edgan.redditslide.util.NetworkUtil;
-import me.edgan.redditslide.util.PhotoLoader;
 import me.edgan.redditslide.util.TimeUtils;
 
 import net.dean.jraw.http.NetworkException;
@@ -36,7 +35,6 @@ import net.dean.jraw.paginators.SubredditPaginator;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 
@@ -61,13 +59,13 @@ public class SubredditPosts implements PostLoader {
     boolean force18;
 
     public SubredditPosts(String subreddit, Context c) {
-        posts = new ArrayList<>();
+        posts = new SubmissionList();
         this.subreddit = subreddit;
         this.c = c;
     }
 
     public SubredditPosts(String subreddit, Context c, boolean force18) {
-        posts = new ArrayList<>();
+        posts = new SubmissionList();
         this.subreddit = subreddit;
         this.c = c;
         this.force18 = force18;
@@ -87,6 +85,39 @@ public class SubredditPosts implements PostLoader {
 
     public ArrayList<String> all;
 
+    /**
+     * Parses the next window of the offline snapshot being shown, once the list gets near the end
+     * of what has been parsed so far
+     */
+    public void loadMoreOffline(final SubmissionDisplay display) {
+        final OfflineSubreddit snapshot = cached;
+        if (loading || snapshot == null || !snapshot.hasUnloaded()) {
+            return;
+        }
+        loading = true;
+        new AsyncTask<Void, Void, List<Submission>>() {
+            @Override
+            protected List<Submission> doInBackground(Void... params) {
+                List<Submission> added = new ArrayList<>();
+                for (Submission s : snapshot.loadNextWindow(c)) {
+                    if (!PostMatch.doesMatch(s, subreddit, force18)) {
+                        added.add(s);
+                    }
+                }
+                return added;
+            }
+
+            @Override
+            protected void onPostExecute(List<Submission> added) {
+                loading = false;
+                if (snapshot == cached && offline) {
+                    posts.addAll(added);
+                    display.updateOffline(posts, snapshot.time);
+                }
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
     @Override
     public List<Submission> getPosts() {
         return posts;
@@ -198,7 +229,7 @@ public class SubredditPosts implements PostLoader {
                 nomore = true;
                 displayer.updateSuccess(posts, posts.size() + 1);
             } else if (MainActivity.isRestart) {
-                posts = new ArrayList<>();
+                posts = new SubmissionList();
                 cached = OfflineSubreddit.getSubreddit(subreddit, 0L, true, c);
                 for (Submission s : cached.submissions) {
                     if (!PostMatch.doesMatch(s, subreddit, force18)) {
@@ -262,11 +293,6 @@ public class SubredditPosts implements PostLoader {
 
             List<Submission> filteredSubmissions = getNextFiltered();
 
-            if (!(SettingValues.noImages
-                    && ((!NetworkUtil.isConnectedWifi(c) && SettingValues.lowResMobile)
-                            || SettingValues.lowResAlways))) {
-                PhotoLoader.loadPhotos(c, filteredSubmissions);
-            }
             if (SettingValues.storeHistory) {
                 HasSeen.setHasSeenSubmission(filteredSubmissions);
                 LastComments.setCommentsSince(filteredSubmissions);
@@ -274,11 +300,10 @@ public class SubredditPosts implements PostLoader {
             SubmissionCache.cacheSubmissions(filteredSubmissions, context, subreddit);
 
             if (reset || offline || posts == null) {
-                posts = new ArrayList<>(new LinkedHashSet<>(filteredSubmissions));
+                posts = new SubmissionList(filteredSubmissions);
                 start = -1;
             } else {
-                posts.addAll(filteredSubmissions);
-                posts = new ArrayList<>(new LinkedHashSet<>(posts));
+                posts = SubmissionList.append(posts, filteredSubmissions);
                 offline = false;
             }
 
@@ -391,6 +416,7 @@ public class SubredditPosts implements PostLoader {
 
                                     @Override
                                     protected void onPostExecute(Void aVoid) {
+                                        SubredditPosts.this.cached = cached;
                                         if (cached.submissions.isEmpty()) {
                                             displayer.updateOfflineError();
                                         }
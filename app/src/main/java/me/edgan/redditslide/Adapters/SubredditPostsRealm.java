@@ -37,7 +37,6 @@ import net.dean.jraw.paginators.SubredditPaginator;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 
@@ -61,13 +60,13 @@ public class SubredditPostsRealm implements PostLoader {
     boolean force18;
 
     public SubredditPostsRealm(String subreddit, Context c) {
-        posts = new ArrayList<>();
+        posts = new SubmissionList();
         this.subreddit = subreddit;
         this.c = c;
     }
 
     public SubredditPostsRealm(String subreddit, Context c, boolean force18) {
-        posts = new ArrayList<>();
+        posts = new SubmissionList();
         this.subreddit = subreddit;
         this.c = c;
         this.force18 = force18;
@@ -87,6 +86,39 @@ public class SubredditPostsRealm implements PostLoader {
 
     public ArrayList<String> all;
 
+    /**
+     * Parses the next window of the offline snapshot being shown, once the list gets near the end
+     * of what has been parsed so far
+     */
+    public void loadMoreOffline(final SubmissionDisplay display) {
+        final OfflineSubreddit snapshot = cached;
+        if (loading || snapshot == null || !snapshot.hasUnloaded()) {
+            return;
+        }
+        loading = true;
+        new AsyncTask<Void, Void, List<Submission>>() {
+            @Override
+            protected List<Submission> doInBackground(Void... params) {
+                List<Submission> added = new ArrayList<>();
+                for (Submission s : snapshot.loadNextWindow(c)) {
+                    if (!PostMatch.doesMatch(s, subreddit, force18)) {
+                        added.add(s);
+                    }
+                }
+                return added;
+            }
+
+            @Override
+            protected void onPostExecute(List<Submission> added) {
+                loading = false;
+                if (snapshot == cached && offline) {
+                    posts.addAll(added);
+                    display.updateOffline(posts, snapshot.time);
+                }
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
     @Override
     public List<Submission> getPosts() {
         return posts;
@@ -253,11 +285,10 @@ public class SubredditPostsRealm implements PostLoader {
             SubmissionCache.cacheSubmissions(filteredSubmissions, context, subreddit);
 
             if (reset || offline || posts == null) {
-                posts = new ArrayList<>(new LinkedHashSet<>(filteredSubmissions));
+                posts = new SubmissionList(filteredSubmissions);
                 start = -1;
             } else {
-                posts.addAll(filteredSubmissions);
-                posts = new ArrayList<>(new LinkedHashSet<>(posts));
+                posts = SubmissionList.append(posts, filteredSubmissions);
                 offline = false;
             }
 
@@ -370,7 +401,7 @@ public class SubredditPostsRealm implements PostLoader {
 
                                     @Override
                                     protected void onPostExecute(Void aVoid) {
-
+                                        SubredditPostsRealm.this.cached = cached;
                                         if (cached.submissions.isEmpty()) {
                                             displayer.updateOfflineError();
                                         }
@@ -2,8 +2,12 @@ package me.edgan.redditslide.Autocache;
 
 import android.app.AlarmManager;
 import android.app.PendingIntent;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
+import android.os.PersistableBundle;
 
 import androidx.core.content.ContextCompat;
 
@@ -11,39 +15,95 @@ import me.edgan.redditslide.Reddit;
 
 import java.util.Calendar;
 
-/** Created by carlo_000 on 10/13/2015. */
+/**
+ * Schedules the daily offline sync as a {@link CacheAll} job. The job waits for the chosen time
+ * and then only runs once the network (unmetered if "wifiOnly" is set) and, if "chargingOnly" is
+ * set, the charger are available. Each run schedules the next one.
+ *
+ * <p>Creating a scheduler leaves a pending job alone unless the settings it was scheduled with
+ * have changed, since scheduling again would stop a running sync and push back its start.
+ */
 public class AutoCacheScheduler {
-    private final PendingIntent pendingIntent;
-    private final AlarmManager manager;
+    static final int JOB_ID = 2002;
+
+    private static final String EXTRA_HOUR = "hour";
+    private static final String EXTRA_MINUTE = "minute";
+
+    private final Context context;
+    private final JobScheduler scheduler;
 
     public AutoCacheScheduler(Context context) {
-        final Intent alarmIntent = new Intent(context, CacheAll.class);
-        pendingIntent =
-                PendingIntent.getBroadcast(context, 0, alarmIntent, PendingIntent.FLAG_IMMUTABLE);
-        manager = ContextCompat.getSystemService(context, AlarmManager.class);
-        start();
+        this.context = context.getApplicationContext();
+        scheduler = ContextCompat.getSystemService(context, JobScheduler.class);
+        cancelLegacyAlarm();
+        if (scheduler != null && !isScheduledAsSet(scheduler.getPendingJob(JOB_ID))) {
+            start();
+        }
+    }
+
+    /** Whether a pending job matches the current time, network and charging settings */
+    private static boolean isScheduledAsSet(JobInfo job) {
+        if (job == null) {
+            return false;
+        }
+        PersistableBundle extras = job.getExtras();
+        return extras.getInt(EXTRA_HOUR, -1) == Reddit.cachedData.getInt("hour", 0)
+                && extras.getInt(EXTRA_MINUTE, -1) == Reddit.cachedData.getInt("minute", 0)
+                && job.getNetworkType() == getNetworkType()
+                && job.isRequireCharging() == Reddit.cachedData.getBoolean("chargingOnly", true);
     }
 
+    private static int getNetworkType() {
+        return Reddit.cachedData.getBoolean("wifiOnly", false)
+                ? JobInfo.NETWORK_TYPE_UNMETERED
+                : JobInfo.NETWORK_TYPE_ANY;
+    }
+
+    /** Schedules the next run, replacing the pending one even if it is running */
     public void start() {
+        final int hour = Reddit.cachedData.getInt("hour", 0);
+        final int minute = Reddit.cachedData.getInt("minute", 0);
         final Calendar cal = Calendar.getInstance();
-        cal.set(Calendar.HOUR_OF_DAY, Reddit.cachedData.getInt("hour", 0));
-        cal.set(Calendar.MINUTE, Reddit.cachedData.getInt("minute", 0));
+        cal.set(Calendar.HOUR_OF_DAY, hour);
+        cal.set(Calendar.MINUTE, minute);
 
         if (cal.getTimeInMillis() < System.currentTimeMillis()) {
             cal.set(Calendar.DAY_OF_YEAR, cal.get(Calendar.DAY_OF_YEAR) + 1);
         }
-        if (manager != null) {
-            manager.setRepeating(
-                    AlarmManager.RTC_WAKEUP,
-                    cal.getTimeInMillis(),
-                    AlarmManager.INTERVAL_DAY,
-                    pendingIntent);
+        if (scheduler != null) {
+            PersistableBundle extras = new PersistableBundle();
+            extras.putInt(EXTRA_HOUR, hour);
+            extras.putInt(EXTRA_MINUTE, minute);
+            scheduler.schedule(
+                    new JobInfo.Builder(JOB_ID, new ComponentName(context, CacheAll.class))
+                            .setMinimumLatency(cal.getTimeInMillis() - System.currentTimeMillis())
+                            .setRequiredNetworkType(getNetworkType())
+                            .setRequiresCharging(
+                                    Reddit.cachedData.getBoolean("chargingOnly", true))
+                            .setPersisted(true)
+                            .setExtras(extras)
+                            .build());
         }
     }
 
     public void cancel() {
-        if (manager != null) {
-            manager.cancel(pendingIntent);
+        if (scheduler != null) {
+            scheduler.cancel(JOB_ID);
+        }
+    }
+
+    /** Removes the repeating alarm older versions set up to broadcast to CacheAll */
+    private void cancelLegacyAlarm() {
+        PendingIntent legacy =
+                PendingIntent.getBroadcast(
+                        context,
+                        0,
+                        new Intent(context, CacheAll.class),
+                        PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE);
+        AlarmManager manager = ContextCompat.getSystemService(context, AlarmManager.class);
+        if (legacy != null && manager != null) {
+            manager.cancel(legacy);
+            legacy.cancel();
         }
     }
 }
@@ -1,24 +1,44 @@
 package me.edgan.redditslide.Autocache;
 
 /** Created by carlo_000 on 10/13/2015. */
-import android.content.BroadcastReceiver;
-import android.content.Context;
-import android.content.Intent;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
 import android.os.AsyncTask;
 
 import me.edgan.redditslide.CommentCacheAsync;
 import me.edgan.redditslide.Reddit;
-import me.edgan.redditslide.util.NetworkUtil;
 
-public class CacheAll extends BroadcastReceiver {
+/**
+ * Runs the scheduled offline sync. The sync is incremental: submissions whose stored copy has
+ * the same comment count as the listing are kept instead of downloaded again.
+ */
+public class CacheAll extends JobService {
+    private CommentCacheAsync task;
 
     @Override
-    public void onReceive(Context context, Intent intent) {
-        if (NetworkUtil.isConnectedNoOverride(context)) {
-            if (Reddit.cachedData.getBoolean("wifiOnly", false)
-                    && !NetworkUtil.isConnectedWifi(context)) return;
-            new CommentCacheAsync(context, Reddit.cachedData.getString("toCache", "").split(","))
-                    .executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    public boolean onStartJob(final JobParameters params) {
+        String toCache = Reddit.cachedData.getString("toCache", "");
+        if (toCache.isEmpty()) {
+            return false;
         }
+        task =
+                new CommentCacheAsync(this, toCache.split(","), true) {
+                    @Override
+                    protected void onPostExecute(Void aVoid) {
+                        jobFinished(params, false);
+                        new AutoCacheScheduler(CacheAll.this).start();
+                    }
+                };
+        task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        if (task != null) {
+            task.cancel(true);
+        }
+        // Retry later; submissions cached before the stop are reused
+        return true;
     }
 }
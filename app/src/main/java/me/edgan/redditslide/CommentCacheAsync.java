@@ -5,6 +5,7 @@ import android.app.NotificationManager;
 import android.content.Context;
 import android.net.Uri;
 import android.os.AsyncTask;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.core.app.NotificationCompat;
@@ -32,11 +33,34 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /** Created by carlo_000 on 4/18/2016. */
 public class CommentCacheAsync extends AsyncTask<Void, Void, Void> {
 
     public static final String SAVED_SUBMISSIONS = "read later";
+
+    /** Comment fetches in flight at once */
+    private static final int MAX_IN_FLIGHT = 4;
+
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long BASE_BACKOFF_MS = 1000;
+
+    /** A stored copy newer than this is reused rather than fetched again */
+    private static final long FRESH_WINDOW_MS = TimeUnit.HOURS.toMillis(1);
+
+    private static volatile long pausedUntil;
+
+    /** Metrics of the last finished run */
+    public static volatile RunStats lastRun;
+
+    private ExecutorService executor;
     List<Submission> alreadyReceived;
 
     NotificationManager mNotifyManager;
@@ -58,8 +82,17 @@ public class CommentCacheAsync extends AsyncTask<Void, Void, Void> {
     }
 
     public CommentCacheAsync(Context c, String[] subreddits) {
+        this(c, subreddits, false);
+    }
+
+    /**
+     * @param incremental keep stored submissions whose comment count hasn't changed since they
+     *     were cached, instead of downloading them again
+     */
+    public CommentCacheAsync(Context c, String[] subreddits, boolean incremental) {
         this.context = c;
         this.subs = subreddits;
+        this.incremental = incremental;
     }
 
     String[] subs;
@@ -69,6 +102,8 @@ public class CommentCacheAsync extends AsyncTask<Void, Void, Void> {
 
     boolean[] otherChoices;
 
+    boolean incremental;
+
     @Override
     public Void doInBackground(Void... params) {
         if (Authentication.isLoggedIn && Authentication.me == null
@@ -115,10 +150,15 @@ public class CommentCacheAsync extends AsyncTask<Void, Void, Void> {
         if (Authentication.reddit == null) Reddit.authentication = new Authentication(context);
 
         ArrayList<String> success = new ArrayList<>();
+        final RunStats run = new RunStats();
+        executor = Executors.newFixedThreadPool(MAX_IN_FLIGHT);
 
         for (final String fSub : subs) {
+            if (isCancelled() || executor.isShutdown()) {
+                break;
+            }
             final String sub;
-            CommentSort sortType = SettingValues.getCommentSorting(fSub);
+            final CommentSort sortType = SettingValues.getCommentSorting(fSub);
 
             if (multiNameToSubsMap.containsKey(fSub)) {
                 sub = multiNameToSubsMap.get(fSub);
@@ -143,6 +183,7 @@ public class CommentCacheAsync extends AsyncTask<Void, Void, Void> {
                 }
                 List<Submission> submissions = new ArrayList<>();
                 ArrayList<String> newFullnames = new ArrayList<>();
+                final OfflineSubreddit snapshot = OfflineSubreddit.newSubreddit(sub);
                 int count = 0;
                 if (alreadyReceived != null) {
                     submissions.addAll(alreadyReceived);
@@ -161,45 +202,59 @@ public class CommentCacheAsync extends AsyncTask<Void, Void, Void> {
                     }
                 }
 
-                int commentDepth =
+                final int commentDepth =
                         Integer.parseInt(
                                 SettingValues.prefs.getString(SettingValues.COMMENT_DEPTH, "5"));
-                int commentCount =
+                final int commentCount =
                         Integer.parseInt(
                                 SettingValues.prefs.getString(SettingValues.COMMENT_COUNT, "50"));
 
                 Log.v("CommentCacheAsync", "comment count " + commentCount);
                 int random = (int) (Math.random() * 100);
 
-                for (final Submission s : submissions) {
-                    try {
-                        JsonNode n =
-                                getSubmission(
+                ArrayList<String> fullnames = new ArrayList<>(submissions.size());
+                for (Submission s : submissions) {
+                    fullnames.add(s.getFullName());
+                }
+                final Map<String, Long> storedTimes =
+                        OfflineStore.getInstance().getStoredTimes(fullnames);
+                final long freshAfter = System.currentTimeMillis() - FRESH_WINDOW_MS;
+
+                // Each slot holds the fullname once that submission is in the snapshot, so the
+                // manifest keeps the listing order whatever order the fetches finish in
+                final String[] cached = new String[submissions.size()];
+                CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+                for (int i = 0; i < submissions.size(); i++) {
+                    final int index = i;
+                    final Submission s = submissions.get(i);
+                    completion.submit(
+                            () -> {
+                                SubmissionRequest request =
                                         new SubmissionRequest.Builder(s.getId())
                                                 .limit(commentCount)
                                                 .depth(commentDepth)
                                                 .sort(sortType)
-                                                .build());
-                        Submission s2 =
-                                SubmissionSerializer.withComments(n, CommentSort.CONFIDENCE);
-                        OfflineSubreddit.writeSubmission(n, s2, context);
-                        newFullnames.add(s2.getFullName());
-                        if (!SettingValues.noImages) PhotoLoader.loadPhoto(context, s);
-                        switch (ContentType.getContentType(s)) {
-                            case VREDDIT_DIRECT:
-                            case VREDDIT_REDIRECT:
-                            case GIF:
-                                if (otherChoices[0]) {
-                                    break;
+                                                .build();
+                                if (cacheSubmission(
+                                        snapshot,
+                                        s,
+                                        request,
+                                        storedTimes.get(s.getFullName()),
+                                        freshAfter,
+                                        run)) {
+                                    cached[index] = s.getFullName();
                                 }
-                                break;
-                            case ALBUM:
-                                if (otherChoices[1])
-                                {
-                                    break;
-                                }
-                        }
-                    } catch (Exception ignored) {
+                                return null;
+                            });
+                }
+
+                for (int i = 0; i < submissions.size(); i++) {
+                    try {
+                        completion.take();
+                    } catch (InterruptedException e) {
+                        executor.shutdownNow();
+                        Thread.currentThread().interrupt();
+                        break;
                     }
                     count = count + 1;
                     if (mBuilder != null) {
@@ -208,13 +263,23 @@ public class CommentCacheAsync extends AsyncTask<Void, Void, Void> {
                     }
                 }
 
-                OfflineSubreddit.newSubreddit(sub).writeToMemory(newFullnames);
+                for (String fullname : cached) {
+                    if (fullname != null) {
+                        newFullnames.add(fullname);
+                    }
+                }
+
+                snapshot.writeToMemory(newFullnames);
                 if (mBuilder != null) {
                     mNotifyManager.cancel(random);
                 }
                 if (!submissions.isEmpty()) success.add(sub);
             }
         }
+        executor.shutdown();
+        lastRun = run;
+        Log.v("CommentCacheAsync", run.toString());
+
         if (mBuilder != null) {
             mBuilder.setContentText(context.getString(R.string.offline_caching_complete))
                     // Removes the progress bar
@@ -227,7 +292,152 @@ public class CommentCacheAsync extends AsyncTask<Void, Void, Void> {
         return null;
     }
 
+    @Override
+    protected void onCancelled() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Puts one submission with its comments into the snapshot. A stored copy written within
+     * {@link #FRESH_WINDOW_MS} is reused, so a run that was interrupted picks up where it left off
+     * instead of fetching everything again. In incremental runs an older copy is also reused if
+     * its comment count matches the listing. Rate limiting and server errors are retried with
+     * exponential backoff.
+     *
+     * @return whether the submission is now in the snapshot
+     */
+    private boolean cacheSubmission(
+            OfflineSubreddit snapshot,
+            Submission s,
+            SubmissionRequest request,
+            Long stored,
+            long freshAfter,
+            RunStats run) {
+        if (stored != null) {
+            boolean fresh = stored >= freshAfter;
+            if ((fresh || incremental) && snapshot.keepStoredCopy(s, !fresh)) {
+                (fresh ? run.fresh : run.unchanged).incrementAndGet();
+                return true;
+            }
+        }
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            try {
+                awaitRateLimit();
+                JsonNode n = fetchSubmission(request);
+                Submission s2 = SubmissionSerializer.withComments(n, CommentSort.CONFIDENCE);
+                run.bytes.addAndGet(snapshot.writeSubmission(n, s2));
+                run.cached.incrementAndGet();
+                if (!SettingValues.noImages) PhotoLoader.loadPhoto(context, s);
+                return true;
+            } catch (NetworkException e) {
+                int status = e.getResponse() == null ? 0 : e.getResponse().getStatusCode();
+                if (status == 429) {
+                    pauseFor(backoff(attempt));
+                } else if (status != 0 && status < 500) {
+                    break;
+                } else if (!sleep(backoff(attempt))) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                LogUtil.e(e, "Error caching " + s.getFullName());
+                if (!sleep(backoff(attempt))) {
+                    break;
+                }
+            }
+        }
+        run.failed.incrementAndGet();
+        return false;
+    }
+
+    private static long backoff(int attempt) {
+        return (BASE_BACKOFF_MS << attempt) + (long) (Math.random() * BASE_BACKOFF_MS);
+    }
+
+    /** Holds back every in-flight fetch, not just the one that was rate limited */
+    private static synchronized void pauseFor(long millis) {
+        pausedUntil = Math.max(pausedUntil, SystemClock.elapsedRealtime() + millis);
+    }
+
+    private static void awaitRateLimit() throws InterruptedException {
+        long wait;
+        while ((wait = pausedUntil - SystemClock.elapsedRealtime()) > 0) {
+            Thread.sleep(wait);
+        }
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** Throughput of one caching run, logged when it finishes */
+    public static class RunStats {
+        private final long started = SystemClock.elapsedRealtime();
+        final AtomicInteger cached = new AtomicInteger();
+        final AtomicInteger fresh = new AtomicInteger();
+        final AtomicInteger unchanged = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicLong bytes = new AtomicLong();
+
+        public int getCached() {
+            return cached.get();
+        }
+
+        public int getFresh() {
+            return fresh.get();
+        }
+
+        public int getUnchanged() {
+            return unchanged.get();
+        }
+
+        public int getFailed() {
+            return failed.get();
+        }
+
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        public double getPostsPerSecond() {
+            long elapsed = Math.max(1, SystemClock.elapsedRealtime() - started);
+            return (cached.get() + fresh.get() + unchanged.get()) * 1000d / elapsed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    Locale.ENGLISH,
+                    "cached %d, fresh %d, unchanged %d, failed %d, %d bytes, %.2f posts/s",
+                    getCached(),
+                    getFresh(),
+                    getUnchanged(),
+                    getFailed(),
+                    getBytes(),
+                    getPostsPerSecond());
+        }
+    }
+
     public JsonNode getSubmission(SubmissionRequest request) throws NetworkException {
+        try {
+            return fetchSubmission(request);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private JsonNode fetchSubmission(SubmissionRequest request) throws NetworkException {
         Map<String, String> args = new HashMap<>();
         if (request.getDepth() != null) args.put("depth", Integer.toString(request.getDepth()));
         if (request.getContext() != null) {
@@ -246,18 +456,13 @@ public class CommentCacheAsync extends AsyncTask<Void, Void, Void> {
         }
         args.put("sort", sort.name().toLowerCase(Locale.ENGLISH));
 
-        try {
-
-            RestResponse response =
-                    Authentication.reddit.execute(
-                            Authentication.reddit
-                                    .request()
-                                    .path(String.format("/comments/%s", request.getId()))
-                                    .query(args)
-                                    .build());
-            return response.getJson();
-        } catch (Exception e) {
-            return null;
-        }
+        RestResponse response =
+                Authentication.reddit.execute(
+                        Authentication.reddit
+                                .request()
+                                .path(String.format("/comments/%s", request.getId()))
+                                .query(args)
+                                .build());
+        return response.getJson();
     }
 }
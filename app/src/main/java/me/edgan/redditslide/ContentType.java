@@ -11,7 +11,10 @@ import net.dean.jraw.models.Submission;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 /** Created by ccrama on 5/26/2015. */
 public class ContentType {
@@ -256,11 +259,71 @@ public class ContentType {
         }
 
         final String url = submission.getUrl();
+        final String key = submission.getFullName() + " " + url;
+        synchronized (typeCache) {
+            if (typeCacheExternal != SettingValues.alwaysExternal) {
+                typeCache.clear();
+                typeCacheExternal = SettingValues.alwaysExternal;
+            }
+            Type cached = typeCache.get(key);
+            if (cached != null) {
+                typeCacheHits++;
+                return cached;
+            }
+        }
+
         final Type basicType = getContentType(url);
 
+        synchronized (typeCache) {
+            typeCacheMisses++;
+            typeCache.put(key, basicType);
+        }
         return basicType;
     }
 
+    private static final int TYPE_CACHE_SIZE = 2000;
+
+    /**
+     * Types of recently classified submissions, keyed by fullname and URL. The views, filters and
+     * loaders all ask for the type of the same submissions, and classifying one parses its URL
+     * and matches it against the "always external" domains.
+     */
+    private static final LinkedHashMap<String, Type> typeCache =
+            new LinkedHashMap<String, Type>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Type> eldest) {
+                    return size() > TYPE_CACHE_SIZE;
+                }
+            };
+
+    /** The external domain set the cached types were computed with */
+    private static Set<String> typeCacheExternal;
+
+    private static long typeCacheHits;
+    private static long typeCacheMisses;
+
+    /**
+     * Forgets cached submission types. Call after changing {@link SettingValues#alwaysExternal}
+     * in place.
+     */
+    public static void invalidateTypeCache() {
+        synchronized (typeCache) {
+            typeCache.clear();
+        }
+    }
+
+    public static long getTypeCacheHits() {
+        synchronized (typeCache) {
+            return typeCacheHits;
+        }
+    }
+
+    public static long getTypeCacheMisses() {
+        synchronized (typeCache) {
+            return typeCacheMisses;
+        }
+    }
+
     public static boolean displayImage(Type t) {
         switch (t) {
             case ALBUM:
@@ -61,6 +61,7 @@ import me.edgan.redditslide.Activities.TumblrPager;
 import me.edgan.redditslide.Activities.Wiki;
 import me.edgan.redditslide.Adapters.CommentAdapter;
 import me.edgan.redditslide.Adapters.CommentItem;
+import me.edgan.redditslide.Adapters.CommentNavIndex;
 import me.edgan.redditslide.Adapters.CommentNavType;
 import me.edgan.redditslide.Adapters.CommentObject;
 import me.edgan.redditslide.Adapters.CommentUrlObject;
@@ -2266,6 +2267,25 @@ public class CommentPage extends Fragment implements Toolbar.OnMenuItemClickList
         }
         int pos = (old < 2) ? 0 : old - 1;
 
+        if (canUseNavIndex()) {
+            int found =
+                    pos < 2 ? -1 : findNavTarget(depth, adapter.getRealPosition(pos - 2), false);
+            if (found != -1) {
+                int i = adapter.getVisiblePosition(found);
+                if (i + 2 == old) {
+                    doGoUp(old - 1);
+                } else {
+                    (((PreCachingLayoutManagerComments) rv.getLayoutManager()))
+                            .scrollToPositionWithOffset(
+                                    i + 2,
+                                    ((View) toolbar.getParent()).getTranslationY() != 0
+                                            ? 0
+                                            : (v.findViewById(R.id.header)).getHeight());
+                }
+            }
+            return;
+        }
+
         for (int i = pos - 1; i >= 0; i--) {
             try {
                 CommentObject o = adapter.currentComments.get(adapter.getRealPosition(i));
@@ -2387,6 +2407,21 @@ public class CommentPage extends Fragment implements Toolbar.OnMenuItemClickList
                             ((View) toolbar.getParent()).getTranslationY() != 0
                                     ? 0
                                     : (v.findViewById(R.id.header).getHeight()));
+        } else if (canUseNavIndex()) {
+            int found = findNavTarget(depth, adapter.getRealPosition(pos + 1), true);
+            if (found != -1) {
+                int i = adapter.getVisiblePosition(found);
+                if (adapter.currentComments.get(found).getName().equals(original)) {
+                    doGoDown(i + 2);
+                } else {
+                    (((PreCachingLayoutManagerComments) rv.getLayoutManager()))
+                            .scrollToPositionWithOffset(
+                                    i + 2,
+                                    ((View) toolbar.getParent()).getTranslationY() != 0
+                                            ? 0
+                                            : (v.findViewById(R.id.header).getHeight()));
+                }
+            }
         } else {
             for (int i = pos + 1; i < adapter.currentComments.size(); i++) {
                 try {
@@ -2466,6 +2501,38 @@ public class CommentPage extends Fragment implements Toolbar.OnMenuItemClickList
         }
     }
 
+    /** Whether the adapter's navigation index is built for the comments it shows */
+    private boolean canUseNavIndex() {
+        return adapter.navIndex != null
+                && adapter.navIndex.size() == adapter.currentComments.size();
+    }
+
+    /**
+     * Finds the next or previous visible comment to jump to, starting at list position from.
+     * Selects it if jumping between children.
+     *
+     * @return the list position, or -1
+     */
+    private int findNavTarget(int depth, int from, boolean down) {
+        CommentNavIndex index = adapter.navIndex;
+        int found =
+                down
+                        ? index.next(currentSort, depth, sortTime, from)
+                        : index.previous(currentSort, depth, sortTime, from);
+        while (found != -1 && adapter.isHidden(found)) {
+            found =
+                    down
+                            ? index.next(currentSort, depth, sortTime, found + 1)
+                            : index.previous(currentSort, depth, sortTime, found - 1);
+        }
+        if (found != -1 && currentSort == CommentNavType.CHILDREN && depth != -1) {
+            CommentObject o = adapter.currentComments.get(found);
+            adapter.currentNode = o.comment;
+            adapter.currentSelectedItem = o.comment.getComment().getFullName();
+        }
+        return found;
+    }
+
     private void goDown() {
         ((View) toolbar.getParent()).setTranslationY(-((View) toolbar.getParent()).getHeight());
         int toGoto = mLayoutManager.findFirstVisibleItemPosition();
@@ -42,6 +42,7 @@ import me.edgan.redditslide.Views.CreateCardView;
 import me.edgan.redditslide.Visuals.Palette;
 import me.edgan.redditslide.handler.ToolbarScrollHideHandler;
 import me.edgan.redditslide.util.LayoutUtils;
+import me.edgan.redditslide.util.PhotoPrefetcher;
 
 import net.dean.jraw.models.MultiReddit;
 import net.dean.jraw.models.MultiSubreddit;
@@ -66,6 +67,7 @@ public class MultiredditView extends Fragment implements SubmissionDisplay {
     private int visibleItemCount;
     private int pastVisiblesItems;
     private String profile;
+    private PhotoPrefetcher prefetcher;
 
     @NonNull
     private RecyclerView.LayoutManager createLayoutManager(final int numColumns) {
@@ -80,6 +82,7 @@ public class MultiredditView extends Fragment implements SubmissionDisplay {
         View v = inflater.inflate(R.layout.fragment_verticalcontent, container, false);
 
         rv = v.findViewById(R.id.vertical_content);
+        prefetcher = new PhotoPrefetcher(inflater.getContext());
         final RecyclerView.LayoutManager mLayoutManager =
                 createLayoutManager(
                         LayoutUtils.getNumColumns(
@@ -323,6 +326,7 @@ public class MultiredditView extends Fragment implements SubmissionDisplay {
                         @Override
                         public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
                             super.onScrolled(recyclerView, dx, dy);
+                            prefetch(dy);
 
                             visibleItemCount = rv.getLayoutManager().getChildCount();
                             totalItemCount = rv.getLayoutManager().getItemCount();
@@ -447,10 +451,26 @@ public class MultiredditView extends Fragment implements SubmissionDisplay {
                         } else {
                             adapter.notifyDataSetChanged();
                         }
+                        prefetch(0);
                     }
                 });
     }
 
+    private void prefetch(int dy) {
+        if (prefetcher != null && rv != null && posts != null) {
+            prefetcher.onScrolled(
+                    posts.posts, (CatchStaggeredGridLayoutManager) rv.getLayoutManager(), dy);
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        if (prefetcher != null) {
+            prefetcher.cancelAll();
+        }
+        super.onDestroyView();
+    }
+
     @Override
     public void updateOffline(List<Submission> submissions, long cacheTime) {
         adapter.setError(true);
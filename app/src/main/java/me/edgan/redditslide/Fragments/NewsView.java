@@ -551,6 +551,18 @@ public class NewsView extends Fragment implements SubmissionDisplay {
                                             false,
                                             posts.subreddit);
                                 }
+                            } else if (posts.offline && !posts.loading) {
+                                visibleItemCount = rv.getLayoutManager().getChildCount();
+                                totalItemCount = rv.getLayoutManager().getItemCount();
+                                int[] firstVisibleItems =
+                                        ((CatchStaggeredGridLayoutManager) rv.getLayoutManager())
+                                                .findFirstVisibleItemPositions(null);
+                                if (firstVisibleItems != null
+                                        && firstVisibleItems.length > 0
+                                        && visibleItemCount + firstVisibleItems[0] + 5
+                                                >= totalItemCount) {
+                                    posts.loadMoreOffline(NewsView.this);
+                                }
                             }
 
                             /*
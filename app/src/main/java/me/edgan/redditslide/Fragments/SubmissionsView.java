@@ -68,6 +68,7 @@ import me.edgan.redditslide.Visuals.Palette;
 import me.edgan.redditslide.handler.ToolbarScrollHideHandler;
 import me.edgan.redditslide.util.LayoutUtils;
 import me.edgan.redditslide.util.LogUtil;
+import me.edgan.redditslide.util.PhotoPrefetcher;
 
 import net.dean.jraw.models.MultiReddit;
 import net.dean.jraw.models.Submission;
@@ -92,6 +93,7 @@ public class SubmissionsView extends Fragment implements SubmissionDisplay {
     private int totalItemCount;
     private SwipeRefreshLayout mSwipeRefreshLayout;
     private static Submission currentSubmission;
+    private PhotoPrefetcher prefetcher;
 
     @Override
     public void onConfigurationChanged(Configuration newConfig) {
@@ -126,6 +128,7 @@ public class SubmissionsView extends Fragment implements SubmissionDisplay {
             v.findViewById(R.id.back).setBackgroundResource(0);
         }
         rv = v.findViewById(R.id.vertical_content);
+        prefetcher = new PhotoPrefetcher(inflater.getContext());
 
         rv.setHasFixedSize(true);
 
@@ -601,6 +604,7 @@ public class SubmissionsView extends Fragment implements SubmissionDisplay {
                                 }
 
                                 adapter.notifyDataSetChanged();
+                                prefetch(0);
                             });
 
             if (MainActivity.isRestart) {
@@ -683,6 +687,7 @@ public class SubmissionsView extends Fragment implements SubmissionDisplay {
                                 ((CatchStaggeredGridLayoutManager) rv.getLayoutManager())
                                         .invalidateSpanAssignments();
                             }
+                            prefetch(dy);
 
                             if (!posts.loading
                                     && !posts.nomore
@@ -716,6 +721,18 @@ public class SubmissionsView extends Fragment implements SubmissionDisplay {
                                             false,
                                             posts.subreddit);
                                 }
+                            } else if (posts.offline && !posts.loading) {
+                                visibleItemCount = rv.getLayoutManager().getChildCount();
+                                totalItemCount = rv.getLayoutManager().getItemCount();
+                                int[] firstVisibleItems =
+                                        ((CatchStaggeredGridLayoutManager) rv.getLayoutManager())
+                                                .findFirstVisibleItemPositions(null);
+                                if (firstVisibleItems != null
+                                        && firstVisibleItems.length > 0
+                                        && visibleItemCount + firstVisibleItems[0] + 5
+                                                >= totalItemCount) {
+                                    posts.loadMoreOffline(SubmissionsView.this);
+                                }
                             }
 
                             /*
@@ -790,6 +807,21 @@ public class SubmissionsView extends Fragment implements SubmissionDisplay {
         }
     }
 
+    private void prefetch(int dy) {
+        if (prefetcher != null && rv != null && posts != null) {
+            prefetcher.onScrolled(
+                    posts.posts, (CatchStaggeredGridLayoutManager) rv.getLayoutManager(), dy);
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        if (prefetcher != null) {
+            prefetcher.cancelAll();
+        }
+        super.onDestroyView();
+    }
+
     public static void currentPosition(int adapterPosition) {
         currentPosition = adapterPosition;
     }
@@ -1,27 +1,21 @@
 package me.edgan.redditslide;
 
-import static com.lusfold.androidkeyvaluestore.core.KVManagerImpl.COLUMN_KEY;
-import static com.lusfold.androidkeyvaluestore.core.KVManagerImpl.TABLE_NAME;
-
 import static me.edgan.redditslide.OpenRedditLink.formatRedditUrl;
 import static me.edgan.redditslide.OpenRedditLink.getRedditLinkType;
 
-import android.database.Cursor;
 import android.net.Uri;
 
-import com.lusfold.androidkeyvaluestore.KVStore;
-import com.lusfold.androidkeyvaluestore.core.KVManger;
-import com.lusfold.androidkeyvaluestore.utils.CursorUtils;
-
 import me.edgan.redditslide.Synccit.SynccitRead;
 
 import net.dean.jraw.models.Contribution;
 import net.dean.jraw.models.Submission;
 import net.dean.jraw.models.VoteDirection;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 /** Created by ccrama on 7/19/2015. */
 public class HasSeen {
@@ -34,12 +28,13 @@ public class HasSeen {
             hasSeen = new HashSet<>();
             seenTimes = new HashMap<>();
         }
-        KVManger m = KVStore.getInstance();
+        ArrayList<String> ids = new ArrayList<>(submissions.size());
         for (Contribution s : submissions) {
             if (s instanceof Submission) {
-                historyContains(s, m);
+                ids.add(stripSubmissionPrefix(s.getFullName()));
             }
         }
+        historyContains(ids);
     }
 
     public static void setHasSeenSubmission(List<Submission> submissions) {
@@ -47,36 +42,29 @@ public class HasSeen {
             hasSeen = new HashSet<>();
             seenTimes = new HashMap<>();
         }
-        KVManger m = KVStore.getInstance();
+        ArrayList<String> ids = new ArrayList<>(submissions.size());
         for (Contribution s : submissions) {
-            historyContains(s, m);
+            ids.add(stripSubmissionPrefix(s.getFullName()));
         }
+        historyContains(ids);
     }
 
-    private static void historyContains(Contribution s, KVManger m) {
-        String fullname = s.getFullName();
-        if (fullname.contains("t3_")) {
-            fullname = fullname.substring(3);
+    private static void historyContains(List<String> ids) {
+        // One indexed lookup for the whole page instead of a table scan per submission
+        for (Map.Entry<String, Long> entry :
+                HistoryStore.getInstance().getSeenTimes(ids).entrySet()) {
+            hasSeen.add(entry.getKey());
+            if (entry.getValue() > 0) {
+                seenTimes.put(entry.getKey(), entry.getValue());
+            }
         }
+    }
 
-        // Check if KVStore has a key containing the fullname
-        // This is necessary because the KVStore library is limited and Carlos didn't realize the
-        // performance impact
-        Cursor cur =
-                m.execQuery(
-                        "SELECT * FROM ? WHERE ? LIKE '%?%' LIMIT 1",
-                        new String[] {TABLE_NAME, COLUMN_KEY, fullname});
-        boolean contains = cur != null && cur.getCount() > 0;
-        CursorUtils.closeCursorQuietly(cur);
-
-        if (contains) {
-            hasSeen.add(fullname);
-            String value = m.get(fullname);
-            try {
-                if (value != null) seenTimes.put(fullname, Long.valueOf(value));
-            } catch (Exception ignored) {
-            }
+    private static String stripSubmissionPrefix(String fullname) {
+        if (fullname.contains("t3_")) {
+            return fullname.substring(3);
         }
+        return fullname;
     }
 
     public static boolean getSeen(Submission s) {
@@ -152,11 +140,7 @@ public class HasSeen {
         if (seenTimes.containsKey(fullname)) {
             return seenTimes.get(fullname);
         } else {
-            try {
-                return Long.parseLong(KVStore.getInstance().get(fullname));
-            } catch (NumberFormatException e) {
-                return 0;
-            }
+            return HistoryStore.getInstance().getSeenTime(fullname);
         }
     }
 
@@ -175,15 +159,10 @@ public class HasSeen {
         hasSeen.add(fullname);
         seenTimes.put(fullname, System.currentTimeMillis());
 
-        long result =
-                KVStore.getInstance().insert(fullname, String.valueOf(System.currentTimeMillis()));
-        if (result == -1) {
-            KVStore.getInstance().update(fullname, String.valueOf(System.currentTimeMillis()));
-        }
+        HistoryStore.getInstance().queueSeen(fullname, System.currentTimeMillis(), true);
 
         if (!fullname.contains("t1_")) {
-            SynccitRead.newVisited.add(fullname);
-            SynccitRead.visitedIds.add(fullname);
+            SynccitRead.addVisited(fullname);
         }
     }
 
@@ -202,11 +181,10 @@ public class HasSeen {
         hasSeen.add(fullname);
         seenTimes.put(fullname, System.currentTimeMillis());
 
-        KVStore.getInstance().insert(fullname, String.valueOf(System.currentTimeMillis()));
+        HistoryStore.getInstance().queueSeen(fullname, System.currentTimeMillis(), false);
 
         if (!fullname.contains("t1_")) {
-            SynccitRead.newVisited.add(fullname);
-            SynccitRead.visitedIds.add(fullname);
+            SynccitRead.addVisited(fullname);
         }
     }
 }
@@ -0,0 +1,452 @@
+package me.edgan.redditslide;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.AsyncTask;
+
+import com.lusfold.androidkeyvaluestore.KVStore;
+
+import me.edgan.redditslide.util.LogUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQLite store for the read history and the comment counts seen on the last visit. Ids are the
+ * primary key, so a whole page of posts is resolved with one {@code IN (...)} lookup instead of a
+ * {@code LIKE '%id%'} scan per post over the {@link KVStore} table, which grows with every post
+ * ever opened.
+ */
+public class HistoryStore extends SQLiteOpenHelper {
+    private static final String DATABASE_NAME = "history.db";
+    private static final int DATABASE_VERSION = 2;
+
+    private static final String TABLE_SEEN = "seen";
+    private static final String TABLE_COMMENTS = "comments";
+    private static final String COLUMN_ID = "id";
+    private static final String COLUMN_TIME = "time";
+    private static final String COLUMN_COUNT = "count";
+
+    // Older SQLite builds cap a statement at 999 bound parameters
+    private static final int MAX_QUERY_ARGS = 500;
+
+    private static final String PREF_MIGRATED = "historyStoreMigrated";
+
+    private static final int FLUSH_BATCH_SIZE = 50;
+    private static final long FLUSH_DELAY_MS = 5000;
+
+    private static HistoryStore instance;
+
+    // Single writer thread, so history writes never touch the disk on the UI thread
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor();
+    private final Object pendingLock = new Object();
+    private LinkedHashMap<String, Long> pendingSeen = new LinkedHashMap<>();
+    private LinkedHashMap<String, Long> pendingSeenIfAbsent = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    private HistoryStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    public static synchronized void init(Context context) {
+        if (instance == null) {
+            instance = new HistoryStore(context.getApplicationContext());
+        }
+    }
+
+    public static synchronized HistoryStore getInstance() {
+        if (instance == null) {
+            init(Reddit.getAppContext());
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL(
+                "CREATE TABLE "
+                        + TABLE_SEEN
+                        + " ("
+                        + COLUMN_ID
+                        + " TEXT PRIMARY KEY NOT NULL, "
+                        + COLUMN_TIME
+                        + " INTEGER NOT NULL DEFAULT 0) WITHOUT ROWID");
+        createCommentsTable(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            createCommentsTable(db);
+        }
+    }
+
+    private static void createCommentsTable(SQLiteDatabase db) {
+        db.execSQL(
+                "CREATE TABLE IF NOT EXISTS "
+                        + TABLE_COMMENTS
+                        + " ("
+                        + COLUMN_ID
+                        + " TEXT PRIMARY KEY NOT NULL, "
+                        + COLUMN_COUNT
+                        + " INTEGER NOT NULL DEFAULT 0) WITHOUT ROWID");
+    }
+
+    /**
+     * Returns the stored seen time for each of the given ids that is in the history. Ids without
+     * a history entry are absent from the result, legacy entries without a time map to 0.
+     */
+    public HashMap<String, Long> getSeenTimes(Collection<String> ids) {
+        HashMap<String, Long> result = queryByIds(TABLE_SEEN, COLUMN_TIME, ids);
+        addPendingSeen(ids, result);
+        return result;
+    }
+
+    /**
+     * Returns the comment count recorded on the last visit for each of the given submission
+     * fullnames. Submissions that were never opened are absent from the result.
+     */
+    public HashMap<String, Long> getCommentCounts(Collection<String> fullnames) {
+        return queryByIds(TABLE_COMMENTS, COLUMN_COUNT, fullnames);
+    }
+
+    private HashMap<String, Long> queryByIds(
+            String table, String column, Collection<String> ids) {
+        HashMap<String, Long> result = new HashMap<>();
+        if (ids.isEmpty()) {
+            return result;
+        }
+
+        SQLiteDatabase db = getReadableDatabase();
+        ArrayList<String> chunk = new ArrayList<>(Math.min(ids.size(), MAX_QUERY_ARGS));
+        for (String id : ids) {
+            chunk.add(id);
+            if (chunk.size() == MAX_QUERY_ARGS) {
+                queryChunk(db, table, column, chunk, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            queryChunk(db, table, column, chunk, result);
+        }
+        return result;
+    }
+
+    private static void queryChunk(
+            SQLiteDatabase db,
+            String table,
+            String column,
+            List<String> ids,
+            Map<String, Long> into) {
+        StringBuilder sql =
+                new StringBuilder("SELECT ")
+                        .append(COLUMN_ID)
+                        .append(", ")
+                        .append(column)
+                        .append(" FROM ")
+                        .append(table)
+                        .append(" WHERE ")
+                        .append(COLUMN_ID)
+                        .append(" IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        sql.append(')');
+
+        try (Cursor cur = db.rawQuery(sql.toString(), ids.toArray(new String[0]))) {
+            while (cur.moveToNext()) {
+                into.put(cur.getString(0), cur.getLong(1));
+            }
+        }
+    }
+
+    /** Returns the seen time of a single id, or 0 if it is not in the history */
+    public long getSeenTime(String id) {
+        synchronized (pendingLock) {
+            Long pending = pendingSeen.get(id);
+            if (pending != null) {
+                return pending;
+            }
+        }
+        try (Cursor cur =
+                getReadableDatabase()
+                        .query(
+                                TABLE_SEEN,
+                                new String[] {COLUMN_TIME},
+                                COLUMN_ID + " = ?",
+                                new String[] {id},
+                                null,
+                                null,
+                                null)) {
+            if (cur.moveToFirst()) {
+                return cur.getLong(0);
+            }
+        }
+        synchronized (pendingLock) {
+            Long pending = pendingSeenIfAbsent.get(id);
+            return pending != null ? pending : 0;
+        }
+    }
+
+    /**
+     * Returns every id in the history, most recently seen first. Wait on {@link #flush()} first
+     * for the result to include entries that are still queued.
+     */
+    public ArrayList<String> getSeenIds() {
+        ArrayList<String> ids = new ArrayList<>();
+        try (Cursor cur =
+                getReadableDatabase()
+                        .query(
+                                TABLE_SEEN,
+                                new String[] {COLUMN_ID},
+                                null,
+                                null,
+                                null,
+                                null,
+                                COLUMN_TIME + " DESC")) {
+            while (cur.moveToNext()) {
+                ids.add(cur.getString(0));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Queues an id to be recorded as seen at the given time. Writes are coalesced per id and
+     * flushed in one transaction on the writer thread once {@link #FLUSH_BATCH_SIZE} ids are
+     * pending or {@link #FLUSH_DELAY_MS} after the first one was queued, whichever comes first.
+     *
+     * @param overwrite whether an existing entry should have its time replaced
+     */
+    public void queueSeen(String id, long time, boolean overwrite) {
+        int pending;
+        synchronized (pendingLock) {
+            if (overwrite) {
+                pendingSeen.put(id, time);
+                pendingSeenIfAbsent.remove(id);
+            } else if (!pendingSeen.containsKey(id) && !pendingSeenIfAbsent.containsKey(id)) {
+                pendingSeenIfAbsent.put(id, time);
+            }
+            pending = pendingSeen.size() + pendingSeenIfAbsent.size();
+            if (pending < FLUSH_BATCH_SIZE && !flushScheduled) {
+                flushScheduled = true;
+                writer.schedule(this::writePending, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (pending >= FLUSH_BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes all queued history entries on the writer thread without waiting for the delay
+     *
+     * @return a future that completes once the queued entries are on disk
+     */
+    public Future<?> flush() {
+        return writer.submit(this::writePending);
+    }
+
+    private void writePending() {
+        LinkedHashMap<String, Long> replace;
+        LinkedHashMap<String, Long> ignore;
+        synchronized (pendingLock) {
+            flushScheduled = false;
+            if (pendingSeen.isEmpty() && pendingSeenIfAbsent.isEmpty()) {
+                return;
+            }
+            replace = pendingSeen;
+            ignore = pendingSeenIfAbsent;
+            pendingSeen = new LinkedHashMap<>();
+            pendingSeenIfAbsent = new LinkedHashMap<>();
+        }
+
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                writeSeen(db, "INSERT OR REPLACE INTO ", replace);
+                writeSeen(db, "INSERT OR IGNORE INTO ", ignore);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (SQLiteException e) {
+            LogUtil.e(e, "Error writing read history");
+        }
+    }
+
+    private static void writeSeen(SQLiteDatabase db, String insertMode, Map<String, Long> seen) {
+        if (seen.isEmpty()) {
+            return;
+        }
+        SQLiteStatement insert =
+                db.compileStatement(
+                        insertMode
+                                + TABLE_SEEN
+                                + " ("
+                                + COLUMN_ID
+                                + ", "
+                                + COLUMN_TIME
+                                + ") VALUES (?, ?)");
+        try {
+            for (Map.Entry<String, Long> entry : seen.entrySet()) {
+                insert.bindString(1, entry.getKey());
+                insert.bindLong(2, entry.getValue());
+                insert.executeInsert();
+                insert.clearBindings();
+            }
+        } finally {
+            insert.close();
+        }
+    }
+
+    /** Overlays queued but not yet written entries for the given ids onto a query result */
+    private void addPendingSeen(Collection<String> ids, Map<String, Long> into) {
+        synchronized (pendingLock) {
+            if (pendingSeen.isEmpty() && pendingSeenIfAbsent.isEmpty()) {
+                return;
+            }
+            for (String id : ids) {
+                Long time = pendingSeen.get(id);
+                if (time == null && !into.containsKey(id)) {
+                    time = pendingSeenIfAbsent.get(id);
+                }
+                if (time != null) {
+                    into.put(id, time);
+                }
+            }
+        }
+    }
+
+    /** Records the comment counts of the given submission fullnames in one transaction */
+    public void putCommentCounts(Map<String, Integer> counts) {
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement insert =
+                db.compileStatement(
+                        "INSERT OR REPLACE INTO "
+                                + TABLE_COMMENTS
+                                + " ("
+                                + COLUMN_ID
+                                + ", "
+                                + COLUMN_COUNT
+                                + ") VALUES (?, ?)");
+        db.beginTransaction();
+        try {
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                insert.bindString(1, entry.getKey());
+                insert.bindLong(2, entry.getValue());
+                insert.executeInsert();
+                insert.clearBindings();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    public void clear() {
+        synchronized (pendingLock) {
+            pendingSeen.clear();
+            pendingSeenIfAbsent.clear();
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        db.delete(TABLE_SEEN, null, null);
+        db.delete(TABLE_COMMENTS, null, null);
+    }
+
+    /**
+     * Copies the read history and comment counts out of the legacy {@link KVStore} table on a
+     * background thread. Entries recorded since the store was created are newer and are kept over
+     * migrated ones.
+     */
+    public static void migrateFromKVStore(final SharedPreferences prefs) {
+        if (prefs.getBoolean(PREF_MIGRATED, false)) {
+            return;
+        }
+
+        new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                Map<String, String> values = KVStore.getInstance().getByContains("");
+                SQLiteDatabase db = getInstance().getWritableDatabase();
+                SQLiteStatement insert =
+                        db.compileStatement(
+                                "INSERT OR IGNORE INTO "
+                                        + TABLE_SEEN
+                                        + " ("
+                                        + COLUMN_ID
+                                        + ", "
+                                        + COLUMN_TIME
+                                        + ") VALUES (?, ?)");
+                SQLiteStatement insertComments =
+                        db.compileStatement(
+                                "INSERT OR IGNORE INTO "
+                                        + TABLE_COMMENTS
+                                        + " ("
+                                        + COLUMN_ID
+                                        + ", "
+                                        + COLUMN_COUNT
+                                        + ") VALUES (?, ?)");
+                db.beginTransaction();
+                try {
+                    for (Map.Entry<String, String> entry : values.entrySet()) {
+                        String key = entry.getKey();
+                        String value = entry.getValue();
+                        if (key.startsWith("readLater")) {
+                            continue;
+                        }
+                        if (key.startsWith("comments")) {
+                            try {
+                                insertComments.bindString(1, key.substring(8));
+                                insertComments.bindLong(2, Long.parseLong(value));
+                                insertComments.executeInsert();
+                            } catch (NumberFormatException ignored) {
+                            }
+                            insertComments.clearBindings();
+                            continue;
+                        }
+
+                        long time;
+                        if (value.equals("true") || value.equals("false")) {
+                            time = 0;
+                        } else {
+                            try {
+                                time = Long.parseLong(value);
+                            } catch (NumberFormatException e) {
+                                continue;
+                            }
+                        }
+
+                        insert.bindString(1, key);
+                        insert.bindLong(2, time);
+                        insert.executeInsert();
+                        insert.clearBindings();
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                    insert.close();
+                    insertComments.close();
+                }
+                prefs.edit().putBoolean(PREF_MIGRATED, true).apply();
+                return null;
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+}
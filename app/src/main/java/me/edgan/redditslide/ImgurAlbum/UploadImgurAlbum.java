@@ -4,12 +4,19 @@ import android.content.Context;
 import android.net.Uri;
 import android.os.AsyncTask;
 
+import androidx.appcompat.app.AlertDialog;
+
 import com.afollestad.materialdialogs.MaterialDialog;
 
+import me.edgan.redditslide.R;
 import me.edgan.redditslide.Reddit;
+import me.edgan.redditslide.SettingValues;
 import me.edgan.redditslide.util.ImgurUtils;
+import me.edgan.redditslide.util.LogUtil;
 import me.edgan.redditslide.util.ProgressRequestBody;
+import me.edgan.redditslide.util.UriRequestBody;
 
+import okhttp3.FormBody;
 import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.OkHttpClient;
@@ -17,103 +24,202 @@ import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 
-import okio.BufferedSink;
-
 import org.json.JSONObject;
 
-import java.io.File;
 import java.io.IOException;
-
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uploads images into a new anonymous Imgur album. Images are streamed from their Uris a few at a
+ * time, each one retried on its own, and the album is created from the uploaded images in the
+ * order they were picked. Images that still fail are left out, and {@link #reportFailures} tells
+ * the user about them.
+ */
 public class UploadImgurAlbum extends AsyncTask<Uri, Integer, String> {
+    private static final String CLIENT_ID = "Client-ID bef87913eb202e9";
+    private static final int PARALLEL_UPLOADS = 3;
+    private static final int MAX_ATTEMPTS = 3;
+
+    /** Longest side of images uploaded while the downscale uploads setting is on */
+    private static final int DOWNSCALED_DIMENSION = 2048;
+
     public String finalUrl;
     public Context c;
     public int totalCount;
     public int uploadCount;
     public MaterialDialog dialog;
 
+    /**
+     * If above 0, larger images are scaled down to this many pixels on their longest side. Left at
+     * 0, it is set from the downscale uploads setting when the upload starts.
+     */
+    public int maxDimension;
+
+    /** Images that couldn't be uploaded and were left out of the album */
+    public int failedCount;
+
+    /** Upload progress of each image, from 0 to 100 */
+    private int[] progress;
+
+    private final AtomicInteger uploaded = new AtomicInteger();
+
     @Override
     protected String doInBackground(Uri... sub) {
         totalCount = sub.length;
+        progress = new int[sub.length];
         final OkHttpClient client = Reddit.client;
 
-        String albumurl;
-        {
-            Request request =
-                    new Request.Builder()
-                            .header("Authorization", "Client-ID bef87913eb202e9")
-                            .url("https://api.imgur.com/3/album")
-                            .post(
-                                    new RequestBody() {
-                                        @Override
-                                        public MediaType contentType() {
-                                            return null;
-                                        }
-
-                                        @Override
-                                        public void writeTo(BufferedSink sink) {}
-                                    })
-                            .build();
+        ExecutorService executor =
+                Executors.newFixedThreadPool(Math.max(1, Math.min(PARALLEL_UPLOADS, sub.length)));
+        List<Future<String>> uploads = new ArrayList<>(sub.length);
+        for (int i = 0; i < sub.length; i++) {
+            final int index = i;
+            final Uri uri = sub[i];
+            uploads.add(executor.submit(() -> uploadWithRetries(client, uri, index)));
+        }
+        executor.shutdown();
 
-            Response response = null;
+        FormBody.Builder album = new FormBody.Builder();
+        int images = 0;
+        for (Future<String> upload : uploads) {
             try {
-                response = client.newCall(request).execute();
-
-                if (!response.isSuccessful()) {
-                    throw new IOException("Unexpected code " + response);
+                String deleteHash = upload.get();
+                if (deleteHash != null) {
+                    album.add("deletehashes[]", deleteHash);
+                    images++;
                 }
-                JSONObject album = new JSONObject(response.body().string());
-                albumurl = album.getJSONObject("data").getString("deletehash");
-                finalUrl = "http://imgur.com/a/" + album.getJSONObject("data").getString("id");
-            } catch (Exception e) {
+            } catch (InterruptedException | ExecutionException e) {
                 e.printStackTrace();
-                return null;
             }
         }
+        failedCount = sub.length - images;
+        if (images == 0) {
+            return null;
+        }
 
-        try {
-            MultipartBody.Builder formBodyBuilder =
-                    new MultipartBody.Builder().setType(MultipartBody.FORM);
-            for (Uri uri : sub) {
-                File bitmap = ImgurUtils.createFile(uri, c);
-                formBodyBuilder.addFormDataPart(
-                        "image",
-                        bitmap.getName(),
-                        RequestBody.create(MediaType.parse("image/*"), bitmap));
-                formBodyBuilder.addFormDataPart("album", albumurl);
-                MultipartBody formBody = formBodyBuilder.build();
-
-                ProgressRequestBody body = new ProgressRequestBody(formBody, this::publishProgress);
-
-                Request request =
-                        new Request.Builder()
-                                .header("Authorization", "Client-ID bef87913eb202e9")
-                                .url("https://api.imgur.com/3/image")
-                                .post(body)
-                                .build();
-
-                Response response = client.newCall(request).execute();
+        Request request =
+                new Request.Builder()
+                        .header("Authorization", CLIENT_ID)
+                        .url("https://api.imgur.com/3/album")
+                        .post(album.build())
+                        .build();
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Unexpected code " + response);
+            }
+            JSONObject json = new JSONObject(response.body().string());
+            finalUrl = "http://imgur.com/a/" + json.getJSONObject("data").getString("id");
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /** Returns the delete hash of the uploaded image, or null if every attempt failed */
+    private String uploadWithRetries(OkHttpClient client, Uri uri, int index) {
+        RequestBody image;
+        byte[] scaled = maxDimension > 0 ? ImgurUtils.downscale(uri, c, maxDimension) : null;
+        if (scaled != null) {
+            image = RequestBody.create(MediaType.parse("image/jpeg"), scaled);
+        } else {
+            image = new UriRequestBody(c, uri);
+        }
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            RequestBody formBody =
+                    new MultipartBody.Builder()
+                            .setType(MultipartBody.FORM)
+                            .addFormDataPart("image", "image" + index, image)
+                            .build();
+            ProgressRequestBody body =
+                    new ProgressRequestBody(formBody, percent -> onImageProgress(index, percent));
+            Request request =
+                    new Request.Builder()
+                            .header("Authorization", CLIENT_ID)
+                            .url("https://api.imgur.com/3/image")
+                            .post(body)
+                            .build();
+            try (Response response = client.newCall(request).execute()) {
                 if (!response.isSuccessful()) {
                     throw new IOException("Unexpected code " + response);
                 }
+                JSONObject json = new JSONObject(response.body().string());
+                onImageProgress(index, 100);
+                uploaded.incrementAndGet();
+                publishTotal();
+                return json.getJSONObject("data").getString("deletehash");
+            } catch (Exception e) {
+                LogUtil.e(e, "Upload of image " + (index + 1) + ", attempt " + attempt + " failed");
+                onImageProgress(index, 0);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
         return null;
     }
 
+    private void onImageProgress(int index, int percent) {
+        synchronized (progress) {
+            progress[index] = Math.max(0, Math.min(100, percent));
+        }
+        publishTotal();
+    }
+
+    private void publishTotal() {
+        int sum = 0;
+        synchronized (progress) {
+            for (int p : progress) {
+                sum += p;
+            }
+        }
+        publishProgress(sum / Math.max(1, progress.length), uploaded.get());
+    }
+
     @Override
     protected void onPreExecute() {
         super.onPreExecute();
+        if (maxDimension <= 0 && SettingValues.downscaleUploads) {
+            maxDimension = DOWNSCALED_DIMENSION;
+        }
+    }
+
+    /**
+     * Tells the user if the album wasn't created, or was created without some of the images. Call
+     * it from onPostExecute.
+     *
+     * @return whether there is an album to use
+     */
+    protected boolean reportFailures() {
+        if (finalUrl == null) {
+            new AlertDialog.Builder(c)
+                    .setTitle(R.string.err_title)
+                    .setMessage(R.string.editor_err_msg)
+                    .setPositiveButton(R.string.btn_ok, null)
+                    .show();
+            return false;
+        }
+        if (failedCount > 0) {
+            new AlertDialog.Builder(c)
+                    .setTitle(R.string.editor_upload_incomplete)
+                    .setMessage(
+                            c.getString(
+                                    R.string.editor_upload_incomplete_msg,
+                                    failedCount,
+                                    totalCount))
+                    .setPositiveButton(R.string.btn_ok, null)
+                    .show();
+        }
+        return true;
     }
 
     @Override
     protected void onProgressUpdate(Integer... values) {
-        int progress = values[0];
-        if (progress < dialog.getCurrentProgress() || uploadCount == 0) {
-            uploadCount += 1;
-        }
+        uploadCount = values[1];
         dialog.setContent("Image " + uploadCount + "/" + totalCount);
-        dialog.setProgress(progress);
+        dialog.setProgress(values[0]);
     }
 }
@@ -1,18 +1,12 @@
 package me.edgan.redditslide;
 
-import static com.lusfold.androidkeyvaluestore.core.KVManagerImpl.COLUMN_KEY;
-import static com.lusfold.androidkeyvaluestore.core.KVManagerImpl.TABLE_NAME;
-
-import android.database.Cursor;
-
-import com.lusfold.androidkeyvaluestore.KVStore;
-import com.lusfold.androidkeyvaluestore.core.KVManger;
-import com.lusfold.androidkeyvaluestore.utils.CursorUtils;
-
 import net.dean.jraw.models.Submission;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /** Created by ccrama on 7/19/2015. */
 public class LastComments {
@@ -23,24 +17,16 @@ public class LastComments {
         if (commentsSince == null) {
             commentsSince = new HashMap<>();
         }
-        KVManger m = KVStore.getInstance();
         try {
+            ArrayList<String> fullnames = new ArrayList<>(submissions.size());
             for (Submission s : submissions) {
-                String fullname = s.getFullName();
-
-                // Check if KVStore has a key containing comments + the fullname
-                // This is necessary because the KVStore library is limited and Carlos didn't
-                // realize the performance impact
-                Cursor cur =
-                        m.execQuery(
-                                "SELECT * FROM ? WHERE ? LIKE '%?%' LIMIT 1",
-                                new String[] {TABLE_NAME, COLUMN_KEY, "comments" + fullname});
-                boolean contains = cur != null && cur.getCount() > 0;
-                CursorUtils.closeCursorQuietly(cur);
+                fullnames.add(s.getFullName());
+            }
 
-                if (contains) {
-                    commentsSince.put(fullname, Integer.valueOf(m.get("comments" + fullname)));
-                }
+            // Resolve the whole page with one indexed lookup
+            for (Map.Entry<String, Long> entry :
+                    HistoryStore.getInstance().getCommentCounts(fullnames).entrySet()) {
+                commentsSince.put(entry.getKey(), entry.getValue().intValue());
             }
         } catch (Exception ignored) {
 
@@ -57,8 +43,9 @@ public class LastComments {
         if (commentsSince == null) {
             commentsSince = new HashMap<>();
         }
-        KVStore.getInstance()
-                .insertOrUpdate("comments" + s.getFullName(), String.valueOf(s.getCommentCount()));
+        HistoryStore.getInstance()
+                .putCommentCounts(
+                        Collections.singletonMap(s.getFullName(), s.getCommentCount()));
         commentsSince.put(s.getFullName(), s.getCommentCount());
     }
 }
@@ -0,0 +1,737 @@
+package me.edgan.redditslide;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.AsyncTask;
+
+import me.edgan.redditslide.util.LogUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Disk store behind {@link OfflineSubreddit}. Each offline snapshot appends its submission JSON
+ * to one segment file, and an id → (segment, offset, length) index points at the latest copy of
+ * every submission. Reads go through a memory map of the segment. Snapshot manifests (the
+ * ordered fullnames of a "subreddit,time" snapshot) are kept in the same database rather than in
+ * the "cache" SharedPreferences, which Android parses whole on startup.
+ *
+ * <p>Writing a submission again leaves its old copy in the segment unreferenced. Once more than
+ * half of a segment is unreferenced, and at least a megabyte of it, the segment is rewritten with
+ * only the copies the index points at. This keeps the live feed snapshots, which are written on
+ * every page load and never removed, from growing without bound.
+ */
+public class OfflineStore extends SQLiteOpenHelper {
+    private static final String DATABASE_NAME = "offline.db";
+    private static final int DATABASE_VERSION = 2;
+
+    private static final String TABLE_SNAPSHOTS = "snapshots";
+    private static final String TABLE_ENTRIES = "entries";
+    private static final String COLUMN_KEY = "snapshot";
+    private static final String COLUMN_FULLNAMES = "fullnames";
+    private static final String COLUMN_ID = "id";
+    private static final String COLUMN_SEGMENT = "segment";
+    private static final String COLUMN_OFFSET = "start";
+    private static final String COLUMN_LENGTH = "length";
+    private static final String COLUMN_STORED = "stored";
+
+    private static final int MAX_QUERY_ARGS = 500;
+
+    private static final String SEGMENT_DIRECTORY = "offline";
+    private static final String SEGMENT_EXTENSION = ".seg";
+
+    private static final String PREF_MIGRATED = "offlineStoreMigrated";
+
+    private static final long COMPACT_MIN_DEAD_BYTES = 1024 * 1024;
+
+    private static OfflineStore instance;
+
+    private final File segmentDirectory;
+    private final HashMap<String, MappedByteBuffer> mappedSegments = new HashMap<>();
+
+    /** Held for reading while an entry is read, and for writing while segment files are replaced */
+    private final ReentrantReadWriteLock segmentLock = new ReentrantReadWriteLock();
+
+    private OfflineStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        setWriteAheadLoggingEnabled(true);
+        segmentDirectory = getSegmentDirectory(context);
+    }
+
+    private static File getSegmentDirectory(Context context) {
+        return new File(OfflineSubreddit.getCacheDirectory(context), SEGMENT_DIRECTORY);
+    }
+
+    /** Bytes taken by the segments and the index database */
+    public static long getStoredBytes(Context context) {
+        long bytes = 0;
+        File[] segments = getSegmentDirectory(context).listFiles();
+        if (segments != null) {
+            for (File segment : segments) {
+                bytes += segment.length();
+            }
+        }
+        File database = context.getDatabasePath(DATABASE_NAME);
+        bytes += database.length();
+        bytes += new File(database.getPath() + "-wal").length();
+        return bytes;
+    }
+
+    public static synchronized OfflineStore getInstance() {
+        if (instance == null) {
+            instance = new OfflineStore(Reddit.getAppContext());
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL(
+                "CREATE TABLE "
+                        + TABLE_SNAPSHOTS
+                        + " ("
+                        + COLUMN_KEY
+                        + " TEXT PRIMARY KEY NOT NULL, "
+                        + COLUMN_FULLNAMES
+                        + " TEXT NOT NULL)");
+        db.execSQL(
+                "CREATE TABLE "
+                        + TABLE_ENTRIES
+                        + " ("
+                        + COLUMN_ID
+                        + " TEXT PRIMARY KEY NOT NULL, "
+                        + COLUMN_SEGMENT
+                        + " TEXT NOT NULL, "
+                        + COLUMN_OFFSET
+                        + " INTEGER NOT NULL, "
+                        + COLUMN_LENGTH
+                        + " INTEGER NOT NULL, "
+                        + COLUMN_STORED
+                        + " INTEGER NOT NULL DEFAULT 0) WITHOUT ROWID");
+        db.execSQL(
+                "CREATE INDEX entries_segment ON "
+                        + TABLE_ENTRIES
+                        + " ("
+                        + COLUMN_SEGMENT
+                        + ")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            db.execSQL(
+                    "ALTER TABLE "
+                            + TABLE_ENTRIES
+                            + " ADD COLUMN "
+                            + COLUMN_STORED
+                            + " INTEGER NOT NULL DEFAULT 0");
+        }
+    }
+
+    /** Returns the manifest of a snapshot as comma separated fullnames, or "" if there is none */
+    public String getManifest(String key) {
+        try (Cursor cur =
+                getReadableDatabase()
+                        .query(
+                                TABLE_SNAPSHOTS,
+                                new String[] {COLUMN_FULLNAMES},
+                                COLUMN_KEY + " = ?",
+                                new String[] {key},
+                                null,
+                                null,
+                                null)) {
+            return cur.moveToFirst() ? cur.getString(0) : "";
+        }
+    }
+
+    public void putManifest(String key, String fullnames) {
+        SQLiteStatement insert =
+                getWritableDatabase()
+                        .compileStatement(
+                                "INSERT OR REPLACE INTO "
+                                        + TABLE_SNAPSHOTS
+                                        + " ("
+                                        + COLUMN_KEY
+                                        + ", "
+                                        + COLUMN_FULLNAMES
+                                        + ") VALUES (?, ?)");
+        try {
+            insert.bindString(1, key);
+            insert.bindString(2, fullnames);
+            insert.executeInsert();
+        } finally {
+            insert.close();
+        }
+    }
+
+    /** Returns the keys of every stored snapshot, in the "subreddit,time" format */
+    public ArrayList<String> getManifestKeys() {
+        ArrayList<String> keys = new ArrayList<>();
+        try (Cursor cur =
+                getReadableDatabase()
+                        .query(
+                                TABLE_SNAPSHOTS,
+                                new String[] {COLUMN_KEY},
+                                null,
+                                null,
+                                null,
+                                null,
+                                null)) {
+            while (cur.moveToNext()) {
+                keys.add(cur.getString(0));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Moves a snapshot to a new key. Submissions whose latest copy is in the old segment are
+     * copied to the new one first, so the old segment can be deleted.
+     */
+    public synchronized void renameSnapshot(String oldKey, String newKey, String fullnames) {
+        String oldSegment = getSegmentName(oldKey);
+        if (!oldSegment.equals(getSegmentName(newKey))) {
+            LinkedHashMap<String, Long> ids = getEntries(oldSegment);
+            LinkedHashMap<String, String> live = new LinkedHashMap<>();
+            for (String id : ids.keySet()) {
+                String json = get(id);
+                if (json != null) {
+                    live.put(id, json);
+                }
+            }
+            put(newKey, live, ids);
+            removeSnapshot(oldKey);
+        }
+        putManifest(newKey, fullnames);
+    }
+
+    /**
+     * Deletes a snapshot's manifest and its segment, along with the index entries into it.
+     * Submissions are only stored once, so entries that other snapshots still list are first
+     * copied to the segment of one of them.
+     */
+    public synchronized void removeSnapshot(String key) {
+        String segment = getSegmentName(key);
+        LinkedHashMap<String, Long> ids = getEntries(segment);
+        if (!ids.isEmpty()) {
+            HashMap<String, String> others = new HashMap<>();
+            for (String other : getManifestKeys()) {
+                if (!other.equals(key) && !getSegmentName(other).equals(segment)) {
+                    others.put(other, getManifest(other));
+                }
+            }
+            HashMap<String, LinkedHashMap<String, String>> moves = new HashMap<>();
+            for (Map.Entry<String, String> shared : getSharedIds(ids.keySet(), others).entrySet()) {
+                String json = get(shared.getKey());
+                if (json != null) {
+                    LinkedHashMap<String, String> move = moves.get(shared.getValue());
+                    if (move == null) {
+                        move = new LinkedHashMap<>();
+                        moves.put(shared.getValue(), move);
+                    }
+                    move.put(shared.getKey(), json);
+                }
+            }
+            for (Map.Entry<String, LinkedHashMap<String, String>> move : moves.entrySet()) {
+                put(move.getKey(), move.getValue(), ids);
+            }
+        }
+
+        SQLiteDatabase db = getWritableDatabase();
+        segmentLock.writeLock().lock();
+        try {
+            db.beginTransaction();
+            try {
+                db.delete(TABLE_SNAPSHOTS, COLUMN_KEY + " = ?", new String[] {key});
+                db.delete(TABLE_ENTRIES, COLUMN_SEGMENT + " = ?", new String[] {segment});
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            unmap(segment);
+            getSegmentFile(segment).delete();
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Picks the ids that are still listed by another snapshot
+     *
+     * @param ids fullnames stored in the segment being removed
+     * @param manifests the manifests of the other snapshots, by key
+     * @return each shared id with the key of a snapshot that lists it
+     */
+    public static LinkedHashMap<String, String> getSharedIds(
+            Collection<String> ids, Map<String, String> manifests) {
+        HashMap<String, String> listedBy = new HashMap<>();
+        for (Map.Entry<String, String> manifest : manifests.entrySet()) {
+            for (String fullname : manifest.getValue().split(",")) {
+                if (fullname.isEmpty()) continue;
+                if (!fullname.contains("_")) fullname = "t3_" + fullname;
+                if (!listedBy.containsKey(fullname)) {
+                    listedBy.put(fullname, manifest.getKey());
+                }
+            }
+        }
+        LinkedHashMap<String, String> shared = new LinkedHashMap<>();
+        for (String id : ids) {
+            String key = listedBy.get(id);
+            if (key != null) {
+                shared.put(id, key);
+            }
+        }
+        return shared;
+    }
+
+    /** Ids in a segment with their write times, in the order they were appended */
+    private LinkedHashMap<String, Long> getEntries(String segment) {
+        LinkedHashMap<String, Long> ids = new LinkedHashMap<>();
+        try (Cursor cur =
+                getReadableDatabase()
+                        .query(
+                                TABLE_ENTRIES,
+                                new String[] {COLUMN_ID, COLUMN_STORED},
+                                COLUMN_SEGMENT + " = ?",
+                                new String[] {segment},
+                                null,
+                                null,
+                                COLUMN_OFFSET)) {
+            while (cur.moveToNext()) {
+                ids.put(cur.getString(0), cur.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    public synchronized void clear() {
+        SQLiteDatabase db = getWritableDatabase();
+        segmentLock.writeLock().lock();
+        try {
+            db.delete(TABLE_SNAPSHOTS, null, null);
+            db.delete(TABLE_ENTRIES, null, null);
+            synchronized (mappedSegments) {
+                mappedSegments.clear();
+            }
+            File[] segments = segmentDirectory.listFiles();
+            if (segments != null) {
+                for (File segment : segments) {
+                    segment.delete();
+                }
+            }
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(String id) {
+        try (Cursor cur =
+                getReadableDatabase()
+                        .query(
+                                TABLE_ENTRIES,
+                                new String[] {COLUMN_ID},
+                                COLUMN_ID + " = ?",
+                                new String[] {id},
+                                null,
+                                null,
+                                null)) {
+            return cur.moveToFirst();
+        }
+    }
+
+    /**
+     * Appends submission JSON to the segment of a snapshot and points the index at the new
+     * copies. The bytes are written before the index rows, so an interrupted write only leaves
+     * unreferenced bytes at the end of the segment.
+     *
+     * @param jsonById submission JSON keyed by fullname
+     * @return the number of bytes appended
+     */
+    public long put(String snapshotKey, Map<String, String> jsonById) {
+        return put(snapshotKey, jsonById, null);
+    }
+
+    /**
+     * Like {@link #put(String, Map)}, but keeps the given write times so copying an entry to
+     * another snapshot doesn't make it look fresh
+     *
+     * @param storedById original write times, or null to stamp every entry with the current time
+     */
+    public synchronized long put(
+            String snapshotKey, Map<String, String> jsonById, Map<String, Long> storedById) {
+        if (jsonById.isEmpty()) {
+            return 0;
+        }
+        String segment = getSegmentName(snapshotKey);
+        File file = getSegmentFile(segment);
+        segmentDirectory.mkdirs();
+
+        LinkedHashMap<String, long[]> positions = new LinkedHashMap<>();
+        long start = file.length();
+        long offset = start;
+        try (OutputStream out =
+                new BufferedOutputStream(new FileOutputStream(file, true), 64 * 1024)) {
+            for (Map.Entry<String, String> entry : jsonById.entrySet()) {
+                byte[] bytes = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                out.write(bytes);
+                positions.put(entry.getKey(), new long[] {offset, bytes.length});
+                offset += bytes.length;
+            }
+        } catch (IOException e) {
+            LogUtil.e(e, "Error appending to offline segment " + segment);
+            return 0;
+        }
+        // The existing mapping no longer covers the whole file
+        unmap(segment);
+
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement insert =
+                db.compileStatement(
+                        "INSERT OR REPLACE INTO "
+                                + TABLE_ENTRIES
+                                + " ("
+                                + COLUMN_ID
+                                + ", "
+                                + COLUMN_SEGMENT
+                                + ", "
+                                + COLUMN_OFFSET
+                                + ", "
+                                + COLUMN_LENGTH
+                                + ", "
+                                + COLUMN_STORED
+                                + ") VALUES (?, ?, ?, ?, ?)");
+        long now = System.currentTimeMillis();
+        db.beginTransaction();
+        try {
+            for (Map.Entry<String, long[]> entry : positions.entrySet()) {
+                insert.bindString(1, entry.getKey());
+                insert.bindString(2, segment);
+                insert.bindLong(3, entry.getValue()[0]);
+                insert.bindLong(4, entry.getValue()[1]);
+                Long stored = storedById == null ? null : storedById.get(entry.getKey());
+                insert.bindLong(5, stored == null ? now : stored);
+                insert.executeInsert();
+                insert.clearBindings();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+        compactIfNeeded(segment, file);
+        return offset - start;
+    }
+
+    /** Whether a segment has enough unreferenced bytes to be worth rewriting */
+    public static boolean shouldCompact(long segmentBytes, long liveBytes) {
+        long dead = segmentBytes - liveBytes;
+        return dead >= COMPACT_MIN_DEAD_BYTES && dead > liveBytes;
+    }
+
+    private void compactIfNeeded(String segment, File file) {
+        long live;
+        try (Cursor cur =
+                getReadableDatabase()
+                        .rawQuery(
+                                "SELECT SUM("
+                                        + COLUMN_LENGTH
+                                        + ") FROM "
+                                        + TABLE_ENTRIES
+                                        + " WHERE "
+                                        + COLUMN_SEGMENT
+                                        + " = ?",
+                                new String[] {segment})) {
+            live = cur.moveToFirst() ? cur.getLong(0) : 0;
+        }
+        if (shouldCompact(file.length(), live)) {
+            compact(segment, file);
+        }
+    }
+
+    /**
+     * Rewrites a segment with only the copies the index points at, in the order they were
+     * appended. The new file replaces the old one in the transaction that moves the offsets, while
+     * no entry is being read.
+     */
+    private void compact(String segment, File file) {
+        File compacted = new File(segmentDirectory, segment + SEGMENT_EXTENSION + ".tmp");
+        LinkedHashMap<String, Long> offsets = new LinkedHashMap<>();
+        try (Cursor cur =
+                        getReadableDatabase()
+                                .query(
+                                        TABLE_ENTRIES,
+                                        new String[] {COLUMN_ID, COLUMN_OFFSET, COLUMN_LENGTH},
+                                        COLUMN_SEGMENT + " = ?",
+                                        new String[] {segment},
+                                        null,
+                                        null,
+                                        COLUMN_OFFSET);
+                RandomAccessFile in = new RandomAccessFile(file, "r");
+                OutputStream out =
+                        new BufferedOutputStream(new FileOutputStream(compacted), 64 * 1024)) {
+            long offset = 0;
+            while (cur.moveToNext()) {
+                byte[] bytes = new byte[cur.getInt(2)];
+                in.seek(cur.getLong(1));
+                in.readFully(bytes);
+                out.write(bytes);
+                offsets.put(cur.getString(0), offset);
+                offset += bytes.length;
+            }
+        } catch (IOException e) {
+            LogUtil.e(e, "Error compacting offline segment " + segment);
+            compacted.delete();
+            return;
+        }
+
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement update =
+                db.compileStatement(
+                        "UPDATE "
+                                + TABLE_ENTRIES
+                                + " SET "
+                                + COLUMN_OFFSET
+                                + " = ? WHERE "
+                                + COLUMN_ID
+                                + " = ?");
+        segmentLock.writeLock().lock();
+        try {
+            db.beginTransaction();
+            try {
+                for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+                    update.bindLong(1, entry.getValue());
+                    update.bindString(2, entry.getKey());
+                    update.executeUpdateDelete();
+                    update.clearBindings();
+                }
+                if (compacted.renameTo(file)) {
+                    db.setTransactionSuccessful();
+                } else {
+                    LogUtil.e("Could not replace offline segment " + segment);
+                }
+            } finally {
+                db.endTransaction();
+                update.close();
+            }
+            unmap(segment);
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+        compacted.delete();
+    }
+
+    /**
+     * Returns when each of the given submissions was last written to the store, in milliseconds.
+     * Submissions that aren't stored are left out.
+     */
+    public HashMap<String, Long> getStoredTimes(Collection<String> ids) {
+        HashMap<String, Long> result = new HashMap<>();
+        if (ids.isEmpty()) {
+            return result;
+        }
+
+        SQLiteDatabase db = getReadableDatabase();
+        ArrayList<String> chunk = new ArrayList<>(Math.min(ids.size(), MAX_QUERY_ARGS));
+        for (String id : ids) {
+            chunk.add(id);
+            if (chunk.size() == MAX_QUERY_ARGS) {
+                queryStoredTimes(db, chunk, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            queryStoredTimes(db, chunk, result);
+        }
+        return result;
+    }
+
+    private static void queryStoredTimes(
+            SQLiteDatabase db, List<String> ids, Map<String, Long> into) {
+        StringBuilder sql =
+                new StringBuilder("SELECT ")
+                        .append(COLUMN_ID)
+                        .append(", ")
+                        .append(COLUMN_STORED)
+                        .append(" FROM ")
+                        .append(TABLE_ENTRIES)
+                        .append(" WHERE ")
+                        .append(COLUMN_ID)
+                        .append(" IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        sql.append(')');
+
+        try (Cursor cur = db.rawQuery(sql.toString(), ids.toArray(new String[0]))) {
+            while (cur.moveToNext()) {
+                into.put(cur.getString(0), cur.getLong(1));
+            }
+        }
+    }
+
+    /** Returns the stored JSON of a submission, or null if it isn't in the store */
+    public String get(String id) {
+        // Opening the database locks the store, which a compaction holds while it waits for reads
+        SQLiteDatabase db = getReadableDatabase();
+        segmentLock.readLock().lock();
+        try {
+            return read(db, id);
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+
+    private String read(SQLiteDatabase db, String id) {
+        String segment;
+        long offset;
+        int length;
+        try (Cursor cur =
+                db.query(
+                        TABLE_ENTRIES,
+                        new String[] {COLUMN_SEGMENT, COLUMN_OFFSET, COLUMN_LENGTH},
+                        COLUMN_ID + " = ?",
+                        new String[] {id},
+                        null,
+                        null,
+                        null)) {
+            if (!cur.moveToFirst()) {
+                return null;
+            }
+            segment = cur.getString(0);
+            offset = cur.getLong(1);
+            length = cur.getInt(2);
+        }
+
+        try {
+            ByteBuffer mapped = getMappedSegment(segment);
+            if (mapped == null || offset + length > mapped.capacity()) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            ByteBuffer view = mapped.duplicate();
+            view.position((int) offset);
+            view.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            LogUtil.e(e, "Error reading offline segment " + segment);
+            return null;
+        }
+    }
+
+    private MappedByteBuffer getMappedSegment(String segment) throws IOException {
+        synchronized (mappedSegments) {
+            MappedByteBuffer mapped = mappedSegments.get(segment);
+            if (mapped == null) {
+                File file = getSegmentFile(segment);
+                if (!file.exists()) {
+                    return null;
+                }
+                try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                        FileChannel channel = raf.getChannel()) {
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                mappedSegments.put(segment, mapped);
+            }
+            return mapped;
+        }
+    }
+
+    private void unmap(String segment) {
+        synchronized (mappedSegments) {
+            mappedSegments.remove(segment);
+        }
+    }
+
+    private File getSegmentFile(String segment) {
+        return new File(segmentDirectory, segment + SEGMENT_EXTENSION);
+    }
+
+    /** Snapshot keys can contain characters that aren't safe in file names, like "/m/" */
+    static String getSegmentName(String snapshotKey) {
+        return snapshotKey.toLowerCase(Locale.ENGLISH).replaceAll("[^a-z0-9]", "_")
+                + "_"
+                + Integer.toHexString(snapshotKey.hashCode());
+    }
+
+    /**
+     * Moves snapshots from the legacy layout: manifests in the "cache" SharedPreferences and one
+     * JSON file per submission in the cache directory. Manifests move right away so listings are
+     * complete; the submission files are packed into segments on a background thread, and reads
+     * fall back to the old files until then.
+     */
+    public static void migrateLegacyCache(final Context context, final SharedPreferences cache) {
+        if (cache.getBoolean(PREF_MIGRATED, false)) {
+            return;
+        }
+
+        final OfflineStore store = getInstance();
+        final LinkedHashMap<String, String> manifests = new LinkedHashMap<>();
+        SharedPreferences.Editor editor = cache.edit();
+        for (Map.Entry<String, ?> entry : cache.getAll().entrySet()) {
+            if (entry.getKey().contains(",") && entry.getValue() instanceof String) {
+                manifests.put(entry.getKey(), (String) entry.getValue());
+                editor.remove(entry.getKey());
+            }
+        }
+
+        SQLiteDatabase db = store.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Map.Entry<String, String> manifest : manifests.entrySet()) {
+                store.putManifest(manifest.getKey(), manifest.getValue());
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        editor.putBoolean(PREF_MIGRATED, true).apply();
+
+        new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                File legacyDirectory = OfflineSubreddit.getCacheDirectory(context);
+                for (Map.Entry<String, String> manifest : manifests.entrySet()) {
+                    LinkedHashMap<String, String> jsonById = new LinkedHashMap<>();
+                    ArrayList<File> migrated = new ArrayList<>();
+                    for (String fullname : manifest.getValue().split(",")) {
+                        if (fullname.isEmpty()) continue;
+                        if (!fullname.contains("_")) fullname = "t3_" + fullname;
+                        File legacy = new File(legacyDirectory, fullname);
+                        if (legacy.exists()) {
+                            String json = OfflineSubreddit.readLegacyFile(legacy);
+                            if (!json.isEmpty()) {
+                                jsonById.put(fullname, json);
+                                migrated.add(legacy);
+                            }
+                        }
+                    }
+                    store.put(manifest.getKey(), jsonById);
+                    for (File legacy : migrated) {
+                        legacy.delete();
+                    }
+                }
+                return null;
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+}
@@ -1,12 +1,17 @@
 package me.edgan.redditslide;
 
 import android.content.Context;
+import android.os.AsyncTask;
 import android.os.Environment;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 
+import me.edgan.redditslide.Adapters.SubmissionList;
+
 import net.dean.jraw.models.CommentSort;
 import net.dean.jraw.models.Submission;
 import net.dean.jraw.models.meta.SubmissionSerializer;
@@ -14,28 +19,97 @@ import net.dean.jraw.models.meta.SubmissionSerializer;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 /** Created by carlo_000 on 11/19/2015. */
 public class OfflineSubreddit {
 
     public static Long currentid = 0L;
     private static String savedSubmissionsSubreddit = "";
+
+    private static final int LOAD_CHUNK_SIZE = 10;
+
+    /** How many submissions of a snapshot are parsed at a time, as the list scrolls */
+    private static final int LOAD_WINDOW = 50;
+
+    private static final int MAX_WITH_COMMENTS = 5000;
+
+    private static final ExecutorService LOAD_EXECUTOR =
+            Executors.newFixedThreadPool(
+                    Math.max(2, Runtime.getRuntime().availableProcessors() - 1));
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** Fullnames whose stored copy includes the comment tree, of recently parsed submissions */
+    private static final Set<String> withComments =
+            Collections.synchronizedSet(
+                    Collections.newSetFromMap(
+                            new LinkedHashMap<String, Boolean>() {
+                                @Override
+                                protected boolean removeEldestEntry(
+                                        Map.Entry<String, Boolean> eldest) {
+                                    return size() > MAX_WITH_COMMENTS;
+                                }
+                            }));
+
     public long time;
-    public ArrayList<Submission> submissions;
+
+    /** Replaced, not added to, as windows are parsed, so lists being read stay as they are */
+    public volatile ArrayList<Submission> submissions;
     public String subreddit;
     public boolean base;
 
-    public static void writeSubmission(JsonNode node, Submission s, Context c) {
-        writeSubmissionToStorage(s, node, c);
+    /** Fullnames of the snapshot past the submissions parsed so far, in manifest order */
+    private final ArrayList<String> unloaded = new ArrayList<>();
+
+    /** Stores a submission with its comments in this snapshot, returning the bytes written */
+    public long writeSubmission(JsonNode node, Submission s) {
+        return OfflineStore.getInstance()
+                .put(getKey(), Collections.singletonMap(s.getFullName(), node.toString()));
+    }
+
+    /**
+     * Reuses an already stored submission and its comments in this snapshot. Nothing is written,
+     * the index keeps pointing at the stored bytes and their original write time. Returns false if
+     * there is no stored copy with comments, or if onlyIfUnchanged is set and the stored comment
+     * count differs from the listing's.
+     */
+    public boolean keepStoredCopy(Submission s, boolean onlyIfUnchanged) {
+        String fullName = s.getFullName();
+        String json = OfflineStore.getInstance().get(fullName);
+        if (json == null || !json.startsWith("[")) {
+            return false;
+        }
+        if (onlyIfUnchanged) {
+            try {
+                Submission old = readSubmission(json);
+                if (old == null || !Objects.equals(old.getCommentCount(), s.getCommentCount())) {
+                    return false;
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String getKey() {
+        return subreddit.toLowerCase(Locale.ENGLISH) + "," + (base ? 0 : time);
     }
 
     static File cacheDirectory;
@@ -53,44 +127,123 @@ public class OfflineSubreddit {
     }
 
     public OfflineSubreddit overwriteSubmissions(List<Submission> data) {
-        submissions = new ArrayList<>(data);
+        // Parked posts stay parked in the copy and are restored when it is read
+        submissions =
+                data instanceof SubmissionList
+                        ? new SubmissionList(((SubmissionList) data).copyParked())
+                        : new ArrayList<>(data);
+        synchronized (unloaded) {
+            unloaded.clear();
+        }
         return this;
     }
 
-    public static void writeSubmissionToStorage(Submission s, JsonNode node, Context c) {
-        File toStore = new File(getCacheDirectory(c) + File.separator + s.getFullName());
-        try {
-            FileWriter writer = new FileWriter(toStore);
-            writer.append(node.toString());
-            writer.flush();
-            writer.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+    /** Copies the submissions for reading their fullnames, leaving parked ones parked */
+    private List<Submission> copySubmissions() {
+        return submissions instanceof SubmissionList
+                ? ((SubmissionList) submissions).copyParked()
+                : new ArrayList<>(submissions);
+    }
+
+    /** Adds the fullnames that haven't been parsed yet, so manifest writes keep them */
+    private void appendUnloaded(StringBuilder fullNames) {
+        synchronized (unloaded) {
+            for (String name : unloaded) {
+                fullNames.append(name).append(",");
+            }
+        }
+    }
+
+    /** Whether the snapshot has submissions past the ones in {@link #submissions} */
+    public boolean hasUnloaded() {
+        synchronized (unloaded) {
+            return !unloaded.isEmpty();
+        }
+    }
+
+    /**
+     * Parses the next window of the snapshot and puts {@link #submissions} with the window added
+     * in its place. Call it off the main thread as the list nears the end of what is loaded.
+     *
+     * @return the submissions that were added
+     */
+    public List<Submission> loadNextWindow(Context c) {
+        List<String> names;
+        synchronized (unloaded) {
+            List<String> window = unloaded.subList(0, Math.min(LOAD_WINDOW, unloaded.size()));
+            names = new ArrayList<>(window);
+            window.clear();
+        }
+        List<Submission> loaded = loadSubmissions(names, c);
+        synchronized (this) {
+            ArrayList<Submission> grown =
+                    submissions instanceof SubmissionList
+                            ? new SubmissionList(copySubmissions())
+                            : new ArrayList<>(submissions);
+            grown.addAll(loaded);
+            submissions = grown;
+        }
+        return loaded;
+    }
+
+    /** Parses the rest of the snapshot, for screens that show all of it at once */
+    public void loadAll(Context c) {
+        while (hasUnloaded()) {
+            loadNextWindow(c);
+        }
+    }
+
+    /**
+     * Parses the rest of the snapshot off the main thread, then hands the submissions that were
+     * added to loaded on the main thread. Nothing is called if the snapshot is fully parsed.
+     */
+    public void loadAllAsync(final Context c, final Consumer<List<Submission>> loaded) {
+        if (!hasUnloaded()) {
+            return;
         }
+        new AsyncTask<Void, Void, List<Submission>>() {
+            @Override
+            protected List<Submission> doInBackground(Void... params) {
+                List<Submission> added = new ArrayList<>();
+                while (hasUnloaded()) {
+                    added.addAll(loadNextWindow(c));
+                }
+                return added;
+            }
+
+            @Override
+            protected void onPostExecute(List<Submission> added) {
+                loaded.accept(added);
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
     }
 
     public boolean isStored(String name, Context c) {
-        return new File(getCacheDirectory(c) + File.separator + name).exists();
+        return OfflineStore.getInstance().contains(name)
+                || new File(getCacheDirectory(c) + File.separator + name).exists();
     }
 
     public void writeToMemory(Context c) {
         if (cache == null) cache = new HashMap<>();
         if (subreddit != null) {
-            String title = subreddit.toLowerCase(Locale.ENGLISH) + "," + (base ? 0 : time);
+            String title = getKey();
             StringBuilder fullNames = new StringBuilder();
             cache.put(title, this);
-            for (Submission sub : new ArrayList<>(submissions)) {
+            LinkedHashMap<String, String> toStore = new LinkedHashMap<>();
+            for (Submission sub : copySubmissions()) {
                 fullNames.append(sub.getFullName()).append(",");
                 if (!isStored(sub.getFullName(), c)) {
-                    writeSubmissionToStorage(sub, sub.getDataNode(), c);
+                    toStore.put(
+                            sub.getFullName(),
+                            SubmissionList.restore(sub).getDataNode().toString());
                 }
             }
+            appendUnloaded(fullNames);
+            OfflineStore.getInstance().put(title, toStore);
 
             if (fullNames.length() > 0) {
-                Reddit.cachedData
-                        .edit()
-                        .putString(title, fullNames.substring(0, fullNames.length() - 1))
-                        .apply();
+                OfflineStore.getInstance()
+                        .putManifest(title, fullNames.substring(0, fullNames.length() - 1));
             }
 
             cache.put(title, this);
@@ -100,16 +253,15 @@ public class OfflineSubreddit {
     public void writeToMemoryNoStorage() {
         if (cache == null) cache = new HashMap<>();
         if (subreddit != null) {
-            String title = subreddit.toLowerCase(Locale.ENGLISH) + "," + (base ? 0 : time);
+            String title = getKey();
             StringBuilder fullNames = new StringBuilder();
-            for (Submission sub : submissions) {
+            for (Submission sub : copySubmissions()) {
                 fullNames.append(sub.getFullName()).append(",");
             }
+            appendUnloaded(fullNames);
             if (fullNames.length() > 0) {
-                Reddit.cachedData
-                        .edit()
-                        .putString(title, fullNames.substring(0, fullNames.length() - 1))
-                        .apply();
+                OfflineStore.getInstance()
+                        .putManifest(title, fullNames.substring(0, fullNames.length() - 1));
             }
             cache.put(title, this);
         }
@@ -123,24 +275,27 @@ public class OfflineSubreddit {
                 fullNamesBuilder.append(sub).append(",");
             }
             String fullNames = fullNamesBuilder.toString();
+            OfflineStore store = OfflineStore.getInstance();
             if (subreddit.equals(CommentCacheAsync.SAVED_SUBMISSIONS)) {
-                Map<String, ?> offlineSubs = Reddit.cachedData.getAll();
-                for (String offlineSub : offlineSubs.keySet()) {
-                    if (offlineSub.contains(CommentCacheAsync.SAVED_SUBMISSIONS)) {
+                savedSubmissionsSubreddit = "";
+                for (String offlineSub : store.getManifestKeys()) {
+                    if (offlineSub.contains(CommentCacheAsync.SAVED_SUBMISSIONS)
+                            && !offlineSub.equals(title)) {
                         savedSubmissionsSubreddit = offlineSub;
                         break;
                     }
                 }
-                String savedSubmissions =
-                        Reddit.cachedData.getString(
-                                OfflineSubreddit.savedSubmissionsSubreddit, fullNames);
-                Reddit.cachedData.edit().remove(savedSubmissionsSubreddit).apply();
-                if (!savedSubmissions.equals(fullNames)) {
-                    savedSubmissions = fullNames + savedSubmissions;
+                if (savedSubmissionsSubreddit.isEmpty()) {
+                    store.putManifest(title, fullNames);
+                } else {
+                    String savedSubmissions = store.getManifest(savedSubmissionsSubreddit);
+                    if (!savedSubmissions.equals(fullNames)) {
+                        savedSubmissions = fullNames + savedSubmissions;
+                    }
+                    store.renameSnapshot(savedSubmissionsSubreddit, title, savedSubmissions);
                 }
-                saveToCache(title, savedSubmissions);
             } else {
-                saveToCache(title, fullNames);
+                store.putManifest(title, fullNames);
             }
         }
     }
@@ -149,29 +304,23 @@ public class OfflineSubreddit {
         if (subreddit != null) {
             String title = subreddit.toLowerCase(Locale.ENGLISH) + "," + (time);
             if (subreddit.equals(CommentCacheAsync.SAVED_SUBMISSIONS)) {
-                Map<String, ?> offlineSubs = Reddit.cachedData.getAll();
-                for (String offlineSub : offlineSubs.keySet()) {
+                OfflineStore store = OfflineStore.getInstance();
+                for (String offlineSub : store.getManifestKeys()) {
                     if (offlineSub.contains(CommentCacheAsync.SAVED_SUBMISSIONS)) {
                         savedSubmissionsSubreddit = offlineSub;
                         break;
                     }
                 }
-                String savedSubmissions =
-                        Reddit.cachedData.getString(
-                                OfflineSubreddit.savedSubmissionsSubreddit, name);
-                if (!savedSubmissions.equals(name)) {
-                    Reddit.cachedData.edit().remove(savedSubmissionsSubreddit).apply();
+                String savedSubmissions = store.getManifest(savedSubmissionsSubreddit);
+                if (!savedSubmissions.isEmpty() && !savedSubmissions.equals(name)) {
                     String modifiedSavedSubmissions = savedSubmissions.replace(name + ",", "");
-                    saveToCache(title, modifiedSavedSubmissions);
+                    store.renameSnapshot(
+                            savedSubmissionsSubreddit, title, modifiedSavedSubmissions);
                 }
             }
         }
     }
 
-    private void saveToCache(String title, String submissions) {
-        Reddit.cachedData.edit().putString(title, submissions).apply();
-    }
-
     public static OfflineSubreddit getSubreddit(String subreddit, boolean offline, Context c) {
         return getSubreddit(subreddit, 0L, offline, c);
     }
@@ -214,37 +363,116 @@ public class OfflineSubreddit {
             o.time = time;
 
             String[] split =
-                    Reddit.cachedData
-                            .getString(subreddit.toLowerCase(Locale.ENGLISH) + "," + time, "")
+                    OfflineStore.getInstance()
+                            .getManifest(subreddit.toLowerCase(Locale.ENGLISH) + "," + time)
                             .split(",");
-            if (split.length > 0) {
-                o.time = time;
-                o.submissions = new ArrayList<>();
-                ObjectMapper mapperBase = new ObjectMapper();
-                ObjectReader reader = mapperBase.reader();
-
-                for (String s : split) {
-                    if (!s.contains("_")) s = "t3_" + s;
-                    if (!s.isEmpty()) {
-                        try {
-                            Submission sub = getSubmissionFromStorage(s, c, offline, reader);
-                            if (sub != null) {
-                                o.submissions.add(sub);
-                            }
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    }
-                }
-
-            } else {
-                o.submissions = new ArrayList<>();
+            for (String s : split) {
+                if (s.isEmpty()) continue;
+                o.unloaded.add(s.contains("_") ? s : "t3_" + s);
             }
+            o.submissions = new ArrayList<>();
+            o.loadNextWindow(c);
             cache.put(title, o);
             return o;
         }
     }
 
+    /**
+     * Parses submissions of a snapshot in parallel chunks, keeping the manifest order. Comment
+     * trees are skipped here; {@link #getSubmissionFromStorage} parses them when CommentPage opens
+     * the post.
+     */
+    private static ArrayList<Submission> loadSubmissions(
+            final List<String> names, final Context c) {
+        ArrayList<Future<List<Submission>>> chunks = new ArrayList<>();
+        for (int start = 0; start < names.size(); start += LOAD_CHUNK_SIZE) {
+            final List<String> chunk =
+                    names.subList(start, Math.min(start + LOAD_CHUNK_SIZE, names.size()));
+            chunks.add(
+                    LOAD_EXECUTOR.submit(
+                            () -> {
+                                List<Submission> loaded = new ArrayList<>(chunk.size());
+                                for (String name : chunk) {
+                                    try {
+                                        Submission sub = getSubmissionWithoutComments(name, c);
+                                        if (sub != null) {
+                                            loaded.add(sub);
+                                        }
+                                    } catch (IOException e) {
+                                        e.printStackTrace();
+                                    }
+                                }
+                                return loaded;
+                            }));
+        }
+
+        ArrayList<Submission> submissions = new ArrayList<>(names.size());
+        for (Future<List<Submission>> chunk : chunks) {
+            try {
+                submissions.addAll(chunk.get());
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+        return submissions;
+    }
+
+    /**
+     * Whether a submission can be opened offline, either because it was loaded with its comments
+     * or because its stored copy includes them
+     */
+    public static boolean hasCachedComments(Submission s) {
+        return s.getComments() != null || withComments.contains(s.getFullName());
+    }
+
+    private static Submission getSubmissionWithoutComments(String fullName, Context c)
+            throws IOException {
+        String gotten = getStringFromFile(fullName, c);
+        if (gotten.isEmpty()) {
+            return null;
+        }
+        if (gotten.startsWith("[")) {
+            withComments.add(fullName);
+        }
+        return readSubmission(gotten);
+    }
+
+    /** Reads the submission out of stored JSON without building its comment tree */
+    private static Submission readSubmission(String json) throws IOException {
+        if (!json.startsWith("[")) {
+            return new Submission(MAPPER.readTree(json));
+        }
+
+        // Stream to listing[0].data.children[0].data
+        try (JsonParser p = MAPPER.getFactory().createParser(json)) {
+            if (p.nextToken() == JsonToken.START_ARRAY
+                    && p.nextToken() == JsonToken.START_OBJECT
+                    && moveToField(p, "data")
+                    && p.getCurrentToken() == JsonToken.START_OBJECT
+                    && moveToField(p, "children")
+                    && p.getCurrentToken() == JsonToken.START_ARRAY
+                    && p.nextToken() == JsonToken.START_OBJECT
+                    && moveToField(p, "data")) {
+                JsonNode node = p.readValueAsTree();
+                return new Submission(node);
+            }
+        }
+        return null;
+    }
+
+    /** Advances a parser inside an object to the value of the given field */
+    private static boolean moveToField(JsonParser p, String name) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            if (name.equals(field)) {
+                return true;
+            }
+            p.skipChildren();
+        }
+        return false;
+    }
+
     public static Submission getSubmissionFromStorage(
             String fullName, Context c, boolean offline, ObjectReader reader) throws IOException {
         String gotten = getStringFromFile(fullName, c);
@@ -263,19 +491,28 @@ public class OfflineSubreddit {
     }
 
     public static String getStringFromFile(String name, Context c) {
+        String stored = OfflineStore.getInstance().get(name);
+        if (stored != null) {
+            return stored;
+        }
+
+        // Not migrated out of the one-file-per-submission layout yet
         File f = new File(getCacheDirectory(c) + File.separator + name);
         if (f.exists()) {
-            try {
-                BufferedReader reader = new BufferedReader(new FileReader(f));
-                char[] chars = new char[(int) f.length()];
-                reader.read(chars);
-                reader.close();
-                return new String(chars);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        } else {
-            return "";
+            return readLegacyFile(f);
+        }
+        return "";
+    }
+
+    static String readLegacyFile(File f) {
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(f));
+            char[] chars = new char[(int) f.length()];
+            reader.read(chars);
+            reader.close();
+            return new String(chars);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
         return "";
     }
@@ -338,7 +575,7 @@ public class OfflineSubreddit {
     public static ArrayList<String> getAll(String subreddit) {
         subreddit = subreddit.toLowerCase(Locale.ENGLISH);
         ArrayList<String> base = new ArrayList<>();
-        for (String s : Reddit.cachedData.getAll().keySet()) {
+        for (String s : OfflineStore.getInstance().getManifestKeys()) {
             if (s.startsWith(subreddit) && s.contains(",")) {
                 base.add(s);
             }
@@ -348,6 +585,19 @@ public class OfflineSubreddit {
         return base;
     }
 
+    /** Deletes a snapshot returned by {@link #getAll()} along with its stored submissions */
+    public static void removeSnapshot(String key) {
+        if (cache != null) cache.remove(key);
+        OfflineStore.getInstance().removeSnapshot(key);
+    }
+
+    /** Deletes every offline snapshot */
+    public static void clearAll() {
+        if (cache != null) cache.clear();
+        withComments.clear();
+        OfflineStore.getInstance().clear();
+    }
+
     public static class MultiComparator implements Comparator<String> {
         @Override
         public int compare(String o1, String o2) {
@@ -359,7 +609,7 @@ public class OfflineSubreddit {
 
     public static ArrayList<String> getAll() {
         ArrayList<String> keys = new ArrayList<>();
-        for (String s : Reddit.cachedData.getAll().keySet()) {
+        for (String s : OfflineStore.getInstance().getManifestKeys()) {
             if (s.contains(",") && !s.startsWith("multi")) {
                 keys.add(s);
             }
@@ -369,7 +619,7 @@ public class OfflineSubreddit {
 
     public static ArrayList<String> getAllFormatted() {
         ArrayList<String> keys = new ArrayList<>();
-        for (String s : Reddit.cachedData.getAll().keySet()) {
+        for (String s : OfflineStore.getInstance().getManifestKeys()) {
             if (s.contains(",")
                     && !keys.contains(s.substring(0, s.indexOf(",")))
                     && !s.startsWith("multi")) {
@@ -2,6 +2,9 @@ package me.edgan.redditslide;
 
 import android.content.SharedPreferences;
 
+import me.edgan.redditslide.util.DomainTrie;
+import me.edgan.redditslide.util.KeywordMatcher;
+
 import net.dean.jraw.models.Submission;
 
 import java.net.MalformedURLException;
@@ -11,6 +14,7 @@ import java.util.Set;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import me.edgan.redditslide.ui.settings.SettingsFilter;
 
@@ -94,28 +98,161 @@ public class PostMatch {
 
     public static SharedPreferences filters;
 
+    /**
+     * The keyword, domain and flair filters of {@link SettingValues}, compiled so checking a
+     * submission doesn't scale with the number of filters
+     */
+    private static final class CompiledFilters {
+        final Set<String> titleSource = SettingValues.titleFilters;
+        final Set<String> textSource = SettingValues.textFilters;
+        final Set<String> userSource = SettingValues.userFilters;
+        final Set<String> domainSource = SettingValues.domainFilters;
+        final Set<String> flairSource = SettingValues.flairFilters;
+
+        final KeywordMatcher title = new KeywordMatcher(titleSource);
+        final KeywordMatcher text = new KeywordMatcher(textSource);
+        final KeywordMatcher user = new KeywordMatcher(userSource);
+        final DomainTrie domains = new DomainTrie();
+
+        /** Lowercase flairs to hide, keyed by lowercase subreddit */
+        final Map<String, Set<String>> flairs = new HashMap<>();
+
+        CompiledFilters() {
+            for (String s : domainSource) {
+                if (!s.contains("/")) {
+                    domains.add(s);
+                    continue;
+                }
+                if (!s.contains("://")) {
+                    s = "http://" + s;
+                }
+                try {
+                    URL comparison = new URL(s.toLowerCase(Locale.ENGLISH));
+                    domains.add(comparison.getHost(), comparison.getPath());
+                } catch (MalformedURLException ignored) {
+                }
+            }
+
+            for (String flairText : flairSource) {
+                String[] split = flairText.split(":");
+                if (split.length < 2) continue;
+                String subreddit = split[0].toLowerCase(Locale.ENGLISH);
+                Set<String> hidden = flairs.get(subreddit);
+                if (hidden == null) {
+                    hidden = new HashSet<>();
+                    flairs.put(subreddit, hidden);
+                }
+                hidden.add(split[1].trim().toLowerCase(Locale.ENGLISH));
+            }
+        }
+
+        /** Whether SettingValues has replaced any of the filter sets since this was compiled */
+        boolean isStale() {
+            return titleSource != SettingValues.titleFilters
+                    || textSource != SettingValues.textFilters
+                    || userSource != SettingValues.userFilters
+                    || domainSource != SettingValues.domainFilters
+                    || flairSource != SettingValues.flairFilters;
+        }
+
+        boolean matchesDomain(String url) {
+            if (domains.isEmpty()) return false;
+            try {
+                URL domain = new URL(url.toLowerCase(Locale.ENGLISH));
+                return domains.matches(domain.getHost(), domain.getPath());
+            } catch (MalformedURLException e) {
+                return false;
+            }
+        }
+    }
+
+    private static volatile CompiledFilters compiledFilters;
+
+    // Content filter bits, in the order of the keys in setChosen
+    private static final int ALBUMS = 1;
+    private static final int GALLERIES = 1 << 1;
+    private static final int GIFS = 1 << 2;
+    private static final int IMAGES = 1 << 3;
+    private static final int LINKS = 1 << 4;
+    private static final int SELFTEXTS = 1 << 5;
+    private static final int TUMBLRS = 1 << 6;
+    private static final int VIDEOS = 1 << 7;
+    private static final int NSFW_GALLERIES = 1 << 9;
+    private static final int NSFW_GIFS = 1 << 10;
+    private static final int NSFW_IMAGES = 1 << 11;
+    private static final int NSFW_LINKS = 1 << 12;
+    private static final int NSFW_SELFTEXTS = 1 << 13;
+    private static final int NSFW_TUMBLRS = 1 << 14;
+    private static final int NSFW_VIDEOS = 1 << 15;
+
+    /** Content filter bits of each lowercase subreddit, read once from the filter preferences */
+    private static final Map<String, Integer> contentFilterMasks = new ConcurrentHashMap<>();
+
+    private static CompiledFilters getCompiledFilters() {
+        CompiledFilters compiled = compiledFilters;
+        if (compiled == null || compiled.isStale()) {
+            compiled = new CompiledFilters();
+            compiledFilters = compiled;
+        }
+        return compiled;
+    }
+
+    /**
+     * Drops the compiled filters so the next check rebuilds them. Call after changing the filter
+     * sets of {@link SettingValues} in place.
+     */
+    public static void invalidateFilters() {
+        compiledFilters = null;
+        contentFilterMasks.clear();
+    }
+
+    private static int getContentFilterMask(String baseSubreddit) {
+        Integer mask = contentFilterMasks.get(baseSubreddit);
+        if (mask == null) {
+            mask =
+                    (isAlbum(baseSubreddit) ? ALBUMS : 0)
+                            | (isGallery(baseSubreddit) ? GALLERIES : 0)
+                            | (isGif(baseSubreddit) ? GIFS : 0)
+                            | (isImage(baseSubreddit) ? IMAGES : 0)
+                            | (isLink(baseSubreddit) ? LINKS : 0)
+                            | (isSelftext(baseSubreddit) ? SELFTEXTS : 0)
+                            | (isTumblr(baseSubreddit) ? TUMBLRS : 0)
+                            | (isVideo(baseSubreddit) ? VIDEOS : 0)
+                            | (isNsfwGallery(baseSubreddit) ? NSFW_GALLERIES : 0)
+                            | (isNsfwGif(baseSubreddit) ? NSFW_GIFS : 0)
+                            | (isNsfwImage(baseSubreddit) ? NSFW_IMAGES : 0)
+                            | (isNsfwLink(baseSubreddit) ? NSFW_LINKS : 0)
+                            | (isNsfwSelftext(baseSubreddit) ? NSFW_SELFTEXTS : 0)
+                            | (isNsfwTumblr(baseSubreddit) ? NSFW_TUMBLRS : 0)
+                            | (isNsfwVideo(baseSubreddit) ? NSFW_VIDEOS : 0);
+            contentFilterMasks.put(baseSubreddit, mask);
+        }
+        return mask;
+    }
+
+    private static boolean containsKeyword(String target, KeywordMatcher keywords) {
+        // filters are always stored lowercase
+        return target != null
+                && !keywords.isEmpty()
+                && keywords.containsAny(target.toLowerCase(Locale.ENGLISH).trim());
+    }
+
     public static boolean doesMatch(Submission s, String baseSubreddit, boolean ignore18) {
         if (Hidden.id.contains(s.getFullName()))
             return true; // if it's hidden we're not going to show it regardless
 
-        String title = s.getTitle();
-        String body = s.getSelftext();
-        String domain = s.getUrl();
+        CompiledFilters compiled = getCompiledFilters();
         String subreddit = s.getSubredditName();
         String flair =
                 s.getSubmissionFlair().getText() != null ? s.getSubmissionFlair().getText() : "";
 
-        if (contains(title, SettingValues.titleFilters, false)) return true;
+        if (containsKeyword(s.getTitle(), compiled.title)) return true;
 
-        if (contains(body, SettingValues.textFilters, false)) return true;
+        if (containsKeyword(s.getSelftext(), compiled.text)) return true;
 
-        if (contains(s.getAuthor(), SettingValues.userFilters, false)) return true;
+        if (containsKeyword(s.getAuthor(), compiled.user)) return true;
 
-        try {
-            if (isDomain(domain.toLowerCase(Locale.ENGLISH), SettingValues.domainFilters))
-                return true;
-        } catch (MalformedURLException ignored) {
-        }
+        if (compiled.matchesDomain(s.getUrl())) return true;
 
         if (!subreddit.equalsIgnoreCase(baseSubreddit)) {
             if (SettingValues.subredditFilterPrefixMatching && subreddit.length() >= 6) {
@@ -138,21 +275,22 @@ public class PostMatch {
         }
 
         baseSubreddit = baseSubreddit.toLowerCase(Locale.ENGLISH);
-        boolean albums = isAlbum(baseSubreddit);
-        boolean galleries = isGallery(baseSubreddit);
-        boolean gifs = isGif(baseSubreddit);
-        boolean images = isImage(baseSubreddit);
-        boolean links = isLink(baseSubreddit);
-        boolean selftexts = isSelftext(baseSubreddit);
-        boolean tumblrs = isTumblr(baseSubreddit);
-        boolean videos = isVideo(baseSubreddit);
-        boolean nsfwGalleries = isNsfwGallery(baseSubreddit);
-        boolean nsfwGifs = isNsfwGif(baseSubreddit);
-        boolean nsfwImages = isNsfwImage(baseSubreddit);
-        boolean nsfwLinks = isNsfwLink(baseSubreddit);
-        boolean nsfwSelftexts = isNsfwSelftext(baseSubreddit);
-        boolean nsfwTumblrs = isNsfwTumblr(baseSubreddit);
-        boolean nsfwVideos = isNsfwVideo(baseSubreddit);
+        int mask = getContentFilterMask(baseSubreddit);
+        boolean albums = (mask & ALBUMS) != 0;
+        boolean galleries = (mask & GALLERIES) != 0;
+        boolean gifs = (mask & GIFS) != 0;
+        boolean images = (mask & IMAGES) != 0;
+        boolean links = (mask & LINKS) != 0;
+        boolean selftexts = (mask & SELFTEXTS) != 0;
+        boolean tumblrs = (mask & TUMBLRS) != 0;
+        boolean videos = (mask & VIDEOS) != 0;
+        boolean nsfwGalleries = (mask & NSFW_GALLERIES) != 0;
+        boolean nsfwGifs = (mask & NSFW_GIFS) != 0;
+        boolean nsfwImages = (mask & NSFW_IMAGES) != 0;
+        boolean nsfwLinks = (mask & NSFW_LINKS) != 0;
+        boolean nsfwSelftexts = (mask & NSFW_SELFTEXTS) != 0;
+        boolean nsfwTumblrs = (mask & NSFW_TUMBLRS) != 0;
+        boolean nsfwVideos = (mask & NSFW_VIDEOS) != 0;
 
         ContentType.Type contentType = ContentType.getContentType(s);
 
@@ -265,38 +403,26 @@ public class PostMatch {
             }
         }
 
-        if (!flair.isEmpty())
-            for (String flairText : SettingValues.flairFilters) {
-                if (flairText.toLowerCase(Locale.ENGLISH).startsWith(baseSubreddit)) {
-                    String[] split = flairText.split(":");
-                    if (split[0].equalsIgnoreCase(baseSubreddit)) {
-                        if (flair.equalsIgnoreCase(split[1].trim())) {
-                            contentMatch = true;
-                            break;
-                        }
-                    }
-                }
+        if (!flair.isEmpty()) {
+            Set<String> hiddenFlairs = compiled.flairs.get(baseSubreddit);
+            if (hiddenFlairs != null
+                    && hiddenFlairs.contains(flair.toLowerCase(Locale.ENGLISH))) {
+                contentMatch = true;
             }
+        }
 
         return contentMatch;
     }
 
     public static boolean doesMatch(Submission s) {
-        String title = s.getTitle();
-        String body = s.getSelftext();
-        String domain = s.getUrl();
+        CompiledFilters compiled = getCompiledFilters();
         String subreddit = s.getSubredditName();
 
-        boolean domainc = false;
+        boolean titlec = containsKeyword(s.getTitle(), compiled.title);
 
-        boolean titlec = contains(title, SettingValues.titleFilters, false);
+        boolean bodyc = containsKeyword(s.getSelftext(), compiled.text);
 
-        boolean bodyc = contains(body, SettingValues.textFilters, false);
-
-        try {
-            domainc = isDomain(domain.toLowerCase(Locale.ENGLISH), SettingValues.domainFilters);
-        } catch (MalformedURLException ignored) {
-        }
+        boolean domainc = compiled.matchesDomain(s.getUrl());
 
         boolean subredditc =
                 subreddit != null
@@ -336,6 +462,8 @@ public class PostMatch {
             };
         }
 
+        contentFilterMasks.remove(subreddit);
+
         if (SettingValues.subredditFiltersTillRestart) {
             // Store in memory
             for (int i = 0; i < filterKeys.length; i++) {
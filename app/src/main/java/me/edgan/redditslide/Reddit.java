@@ -15,7 +15,6 @@ import android.content.res.Configuration;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.Environment;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
@@ -50,6 +49,7 @@ import me.edgan.redditslide.util.CompatUtil;
 import me.edgan.redditslide.util.GifCache;
 import me.edgan.redditslide.util.ImageLoaderUtils;
 import me.edgan.redditslide.util.LogUtil;
+import me.edgan.redditslide.util.MediaCacheManager;
 import me.edgan.redditslide.util.NetworkUtil;
 import me.edgan.redditslide.util.SortingUtil;
 import me.edgan.redditslide.util.UpgradeUtil;
@@ -219,7 +219,9 @@ public class Reddit extends MultiDexApplication implements Application.ActivityL
     }
 
     @Override
-    public void onActivityPaused(Activity activity) {}
+    public void onActivityPaused(Activity activity) {
+        HistoryStore.getInstance().flush();
+    }
 
     public static void setDefaultErrorHandler(Context base) {
         // START code adapted from https://github.com/QuantumBadger/RedReader/
@@ -418,17 +420,13 @@ public class Reddit extends MultiDexApplication implements Application.ActivityL
             return;
         }
 
-        final File dir;
-        if (Environment.getExternalStorageState().equals(Environment.MEDIA_MOUNTED)
-                && getExternalCacheDir() != null) {
-            dir = new File(getExternalCacheDir() + File.separator + "video-cache");
-        } else {
-            dir = new File(getCacheDir() + File.separator + "video-cache");
-        }
+        MediaCacheManager.init(this);
+        final File dir = MediaCacheManager.getDirectory(this, MediaCacheManager.Kind.VIDEO);
         LeastRecentlyUsedCacheEvictor evictor =
-                new LeastRecentlyUsedCacheEvictor(256 * 1024 * 1024);
+                new LeastRecentlyUsedCacheEvictor(
+                        MediaCacheManager.getQuota(MediaCacheManager.Kind.VIDEO));
         DatabaseProvider databaseProvider = new ExoDatabaseProvider(getAppContext());
-        videoCache = new SimpleCache(dir, evictor, databaseProvider); // 256MB
+        videoCache = new SimpleCache(dir, evictor, databaseProvider);
 
         UpgradeUtil.upgrade(getApplicationContext());
         doMainStuff();
@@ -456,6 +454,7 @@ public class Reddit extends MultiDexApplication implements Application.ActivityL
         if (!cachedData.contains("hasReset")) {
             cachedData.edit().clear().putBoolean("hasReset", true).apply();
         }
+        OfflineStore.migrateLegacyCache(this, cachedData);
 
         registerActivityLifecycleCallbacks(this);
         Authentication.authentication = getSharedPreferences("AUTH", 0);
@@ -480,6 +479,8 @@ public class Reddit extends MultiDexApplication implements Application.ActivityL
         colors = getSharedPreferences("COLOR", 0);
         tags = getSharedPreferences("TAGS", 0);
         KVStore.init(this, "SEEN");
+        HistoryStore.init(this);
+        HistoryStore.migrateFromKVStore(appRestart);
         doLanguages();
         lastPosition = new ArrayList<>();
 
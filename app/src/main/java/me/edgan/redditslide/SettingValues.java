@@ -91,6 +91,7 @@ public class SettingValues {
     public static final String PREF_LQ_MID = "lqMid";
     public static final String PREF_LQ_HIGH = "lqHigh";
     public static final String PREF_LQ_VIDEOS = "lqVideos";
+    public static final String PREF_DOWNSCALE_UPLOADS = "downscaleUploads";
     public static final String PREF_SOUND_NOTIFS = "soundNotifs";
     public static final String PREF_COOKIES = "storeCookies";
     public static final String PREF_NIGHT_START = "nightStart";
@@ -269,6 +270,7 @@ public class SettingValues {
     public static boolean lqMid = true;
     public static boolean lqHigh = false;
     public static boolean lqVideos;
+    public static boolean downscaleUploads;
     public static int currentTheme; // current base theme (Light, Dark, Dark blue, etc.)
     public static int nightTheme;
     public static boolean typeInText;
@@ -398,6 +400,7 @@ public class SettingValues {
         lqMid = prefs.getBoolean(PREF_LQ_MID, true);
         lqHigh = prefs.getBoolean(PREF_LQ_HIGH, false);
         lqVideos = prefs.getBoolean(PREF_LQ_VIDEOS, true);
+        downscaleUploads = prefs.getBoolean(PREF_DOWNSCALE_UPLOADS, false);
         highColorspaceImages = prefs.getBoolean(PREF_HIGH_COLORSPACE_IMAGES, false);
 
         noImages = prefs.getBoolean(PREF_NO_IMAGES, false);
@@ -77,6 +77,7 @@ import me.edgan.redditslide.util.GifDrawable;
 import me.edgan.redditslide.util.GifUtils;
 import me.edgan.redditslide.util.LinkUtil;
 import me.edgan.redditslide.util.LogUtil;
+import me.edgan.redditslide.util.SubmissionParser;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.StringEscapeUtils;
@@ -105,6 +106,59 @@ public class SpoilerRobotoTextView extends RobotoTextView implements ClickableTe
             Pattern.compile("<a href=\"[#/](?:spoiler|sp|s)\">([^<]*)</a>");
     private static final Pattern nativeSpoilerPattern =
             Pattern.compile("<span class=\"[^\"]*md-spoiler-text+[^\"]*\">([^<]*)</span>");
+    private static final Pattern htmlEmotePattern = Pattern.compile("<a href=\"/.*\"></a>");
+    private static final Pattern previewImagePattern =
+            Pattern.compile("https://preview\\.redd\\.it/[^\\s]+");
+    private static final Pattern iImagePattern = Pattern.compile("https://i\\.redd\\.it/[^\\s]+");
+    private static final Pattern redditEmotePattern =
+            Pattern.compile(
+                    "<img\\s+src=\\\"(https://www\\.redditstatic\\.com/marketplace-assets/v1/core/emotes/snoomoji_emotes/free_emotes_pack/([^/\\\"]+)\\.gif)\\\"[^>]*>");
+    private static final Pattern giphyEmotePattern =
+            Pattern.compile(
+                    "<img\\s+src=\\\"(https://external-preview\\.redd\\.it/([^?]+)\\?width=([0-9]+)&height=([0-9]+)&s=([^\\\"]+))\\\"[^>]*>");
+
+    /** Upper bound on the characters held by the prepared text cache */
+    private static final int PREPARED_CACHE_CHARS = 1024 * 1024;
+
+    /**
+     * HTML blocks already turned into spanned text, keyed by the HTML and everything else the
+     * spans depend on. Comment and selftext HTML is immutable for a given edit, so an edited
+     * comment gets a new key.
+     */
+    private static final LruCache<String, PreparedHtml> preparedCache =
+            new LruCache<String, PreparedHtml>(PREPARED_CACHE_CHARS) {
+                @Override
+                protected int sizeOf(String key, PreparedHtml value) {
+                    return key.length() + value.text.length();
+                }
+            };
+
+    private static final ExecutorService prepareExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * The result of turning an HTML block into text, with every span that doesn't depend on the
+     * view showing it. Views get a copy, since showing and hiding spoilers changes the spans.
+     */
+    private static final class PreparedHtml {
+        final SpannableStringBuilder text;
+        final String html;
+        final List<CharacterStyle> spoilerSpans;
+        final List<Integer> spoilerStarts;
+        final List<Integer> spoilerEnds;
+
+        PreparedHtml(
+                SpannableStringBuilder text,
+                String html,
+                List<CharacterStyle> spoilerSpans,
+                List<Integer> spoilerStarts,
+                List<Integer> spoilerEnds) {
+            this.text = text;
+            this.html = html;
+            this.spoilerSpans = spoilerSpans;
+            this.spoilerStarts = spoilerStarts;
+            this.spoilerEnds = spoilerEnds;
+        }
+    }
 
     private static class MatchPair {
         final int start;
@@ -175,24 +229,95 @@ public class SpoilerRobotoTextView extends RobotoTextView implements ClickableTe
      * @param subreddit the subreddit to theme
      */
     public void setTextHtml(CharSequence baseText, String subreddit) {
-        String text = wrapAlternateSpoilers(saveEmotesFromDestruction(baseText.toString().trim()));
-        SpannableStringBuilder builder = (SpannableStringBuilder) CompatUtil.fromHtml(text);
+        PreparedHtml prepared = getPreparedHtml(getContext(), baseText.toString(), subreddit);
+        SpannableStringBuilder builder = new SpannableStringBuilder(prepared.text);
+        storedSpoilerSpans.addAll(prepared.spoilerSpans);
+        storedSpoilerStarts.addAll(prepared.spoilerStarts);
+        storedSpoilerEnds.addAll(prepared.spoilerEnds);
 
         // Add Reddit preview image processing
         processRedditPreviewImages(builder);
 
-        // replace the <blockquote> blue line with something more colorful
-        replaceQuoteSpans(builder);
+        if (prepared.html.contains("free_emotes_pack") || prepared.html.contains("giphy")) {
+            setEmoteText(prepared.html, this);
+        }
+        if (subreddit != null && !subreddit.isEmpty()) {
+            setMovementMethod(new TextViewLinkHandler(this, subreddit, builder));
+            setFocusable(false);
+            setClickable(false);
+            if (subreddit.equals("FORCE_LINK_CLICK")) {
+                setLongClickable(false);
+            }
+        }
+
+        super.setText(builder, BufferType.SPANNABLE);
+    }
+
+    /**
+     * Prepares the text of comment or post bodies on a background thread, so binding them later
+     * with {@link #setTextHtml(CharSequence, String)} only copies the cached spans. Call when a
+     * list of comments is built.
+     *
+     * @param bodies raw body_html values, as received from reddit
+     */
+    public static void prepareTextHtml(final List<String> bodies, final String subreddit) {
+        final Context context = Reddit.getAppContext();
+        prepareExecutor.execute(
+                () -> {
+                    for (String body : bodies) {
+                        try {
+                            for (String block : SubmissionParser.getBlocks(body)) {
+                                // Tables, code and rules aren't shown with setTextHtml
+                                if (!block.startsWith("<table>")
+                                        && !block.startsWith("<pre>")
+                                        && !block.equals("<hr/>")
+                                        && !block.equals("<div class=\"md\">")) {
+                                    getPreparedHtml(context, block, subreddit);
+                                }
+                            }
+                        } catch (Exception e) {
+                            LogUtil.e(e, "Error preparing html");
+                        }
+                    }
+                });
+    }
 
-        if (text.contains("free_emotes_pack") || text.contains("giphy")) {
-            setEmoteText(text, this);
+    private static PreparedHtml getPreparedHtml(Context context, String html, String subreddit) {
+        html = html.trim();
+        String key =
+                SettingValues.currentTheme
+                        + ":"
+                        + Palette.getColor(subreddit)
+                        + ":"
+                        + SettingValues.typeInText
+                        + ":"
+                        + SettingValues.largeLinks
+                        + ":"
+                        + html;
+        PreparedHtml prepared = preparedCache.get(key);
+        if (prepared == null) {
+            prepared = prepareHtml(context, html, subreddit);
+            preparedCache.put(key, prepared);
         }
+        return prepared;
+    }
+
+    private static PreparedHtml prepareHtml(Context context, String html, String subreddit) {
+        String text = wrapAlternateSpoilers(saveEmotesFromDestruction(html));
+        SpannableStringBuilder builder = (SpannableStringBuilder) CompatUtil.fromHtml(text);
+        List<CharacterStyle> spoilerSpans = new ArrayList<>();
+        List<Integer> spoilerStarts = new ArrayList<>();
+        List<Integer> spoilerEnds = new ArrayList<>();
+
+        // replace the <blockquote> blue line with something more colorful
+        replaceQuoteSpans(context, builder);
+
         if (text.contains("<a")) {
-            setEmoteSpans(builder); // for emote enabled subreddits
+            setEmoteSpans(context, builder); // for emote enabled subreddits
         }
         if (text.contains("[")) {
             setCodeFont(builder);
-            setSpoilerStyle(builder, subreddit);
+            setSpoilerStyle(builder, subreddit, spoilerSpans, spoilerStarts, spoilerEnds);
         }
         if (text.contains("[[d[")) {
             setStrikethrough(builder);
@@ -200,19 +325,10 @@ public class SpoilerRobotoTextView extends RobotoTextView implements ClickableTe
         if (text.contains("[[h[")) {
             setHighlight(builder, subreddit);
         }
-        if (subreddit != null && !subreddit.isEmpty()) {
-            setMovementMethod(new TextViewLinkHandler(this, subreddit, builder));
-            setFocusable(false);
-            setClickable(false);
-            if (subreddit.equals("FORCE_LINK_CLICK")) {
-                setLongClickable(false);
-            }
-        }
 
         builder = removeNewlines(builder);
         builder.append(" ");
-
-        super.setText(builder, BufferType.SPANNABLE);
+        return new PreparedHtml(builder, text, spoilerSpans, spoilerStarts, spoilerEnds);
     }
 
     /**
@@ -224,7 +340,7 @@ public class SpoilerRobotoTextView extends RobotoTextView implements ClickableTe
      *
      * @param spannable parsed comment text #fromHtml
      */
-    private void replaceQuoteSpans(Spannable spannable) {
+    private static void replaceQuoteSpans(Context context, Spannable spannable) {
         QuoteSpan[] quoteSpans = spannable.getSpans(0, spannable.length(), QuoteSpan.class);
 
         for (QuoteSpan quoteSpan : quoteSpans) {
@@ -237,7 +353,7 @@ public class SpoilerRobotoTextView extends RobotoTextView implements ClickableTe
             // If the theme is Light or Sepia, use a darker blue; otherwise, use a lighter blue
             final int barColor =
                     ContextCompat.getColor(
-                            getContext(),
+                            context,
                             SettingValues.currentTheme == 1 || SettingValues.currentTheme == 5
                                     ? R.color.md_blue_600
                                     : R.color.md_blue_400);
@@ -256,7 +372,7 @@ public class SpoilerRobotoTextView extends RobotoTextView implements ClickableTe
         }
     }
 
-    private String wrapAlternateSpoilers(String html) {
+    private static String wrapAlternateSpoilers(String html) {
         String replacement = "<a href=\"/spoiler\">spoiler&lt; [[s[$1]s]]</a>";
 
         html = htmlSpoilerPattern.matcher(html).replaceAll(replacement);
@@ -264,12 +380,11 @@ public class SpoilerRobotoTextView extends RobotoTextView implements ClickableTe
         return html;
     }
 
-    private String saveEmotesFromDestruction(String html) {
+    private static String saveEmotesFromDestruction(String html) {
         // Emotes often have no spoiler caption, and therefore are converted to empty anchors.
         // Html.fromHtml removes anchors with zero length node text. Find zero length anchors that
         // start
         // with "/" and add "." to them.
-        Pattern htmlEmotePattern = Pattern.compile("<a href=\"/.*\"></a>");
         Matcher htmlEmoteMatcher = htmlEmotePattern.matcher(html);
         while (htmlEmoteMatcher.find()) {
             String newPiece = htmlEmoteMatcher.group();
@@ -476,13 +591,6 @@ public void setEmoteText(String text, TextView textView) {
         // Clear existing state
         cleanupGifs();
 
-        Pattern redditPattern =
-                Pattern.compile(
-                    "<img\\s+src=\\\"(https://www\\.redditstatic\\.com/marketplace-assets/v1/core/emotes/snoomoji_emotes/free_emotes_pack/([^/\\\"]+)\\.gif)\\\"[^>]*>");
-        Pattern giphyPattern =
-                Pattern.compile(
-                    "<img\\s+src=\\\"(https://external-preview\\.redd\\.it/([^?]+)\\?width=([0-9]+)&height=([0-9]+)&s=([^\\\"]+))\\\"[^>]*>");
-
         List<EmoteSpanRequest> spanRequests = new ArrayList<>();
         StringBuilder processedText = new StringBuilder();
 
@@ -490,8 +598,8 @@ public void setEmoteText(String text, TextView textView) {
         text = text.replaceAll("<div class=\\\"md\\\"><div>", "").replaceAll("</div>", "");
 
         // Process the text for both patterns (note: free_emote_pack is handled by redditPattern)
-        processPattern(text, redditPattern, processedText, spanRequests);
-        processPattern(text, giphyPattern, processedText, spanRequests);
+        processPattern(text, redditEmotePattern, processedText, spanRequests);
+        processPattern(text, giphyEmotePattern, processedText, spanRequests);
 
         // Create builder and ensure it's a SpannableStringBuilder
         SpannableStringBuilder builder = new SpannableStringBuilder(processedText);
@@ -732,10 +840,10 @@ private void loadGiphyEmote(EmoteSpanRequest request, TextView textView, int pos
         }
     }
 
-    private void setEmoteSpans(SpannableStringBuilder builder) {
+    private static void setEmoteSpans(Context context, SpannableStringBuilder builder) {
         for (URLSpan span : builder.getSpans(0, builder.length(), URLSpan.class)) {
             if (SettingValues.typeInText) {
-                setLinkTypes(builder, span);
+                setLinkTypes(context, builder, span);
             }
             if (SettingValues.largeLinks) {
                 setLargeLinks(builder, span);
@@ -760,7 +868,7 @@ private void loadGiphyEmote(EmoteSpanRequest request, TextView textView, int pos
                 // Make sure bitmap loaded works well with screen density.
                 BitmapFactory.Options options = new BitmapFactory.Options();
                 DisplayMetrics metrics = new DisplayMetrics();
-                ContextCompat.getSystemService(getContext(), WindowManager.class)
+                ContextCompat.getSystemService(context, WindowManager.class)
                         .getDefaultDisplay()
                         .getMetrics(metrics);
                 options.inDensity = 240;
@@ -776,7 +884,7 @@ private void loadGiphyEmote(EmoteSpanRequest request, TextView textView, int pos
                 }
                 Bitmap emoteBitmap = BitmapFactory.decodeFile(emoteFile.getAbsolutePath(), options);
                 builder.setSpan(
-                        new ImageSpan(getContext(), emoteBitmap),
+                        new ImageSpan(context, emoteBitmap),
                         start,
                         start + 1,
                         Spanned.SPAN_INCLUSIVE_INCLUSIVE);
@@ -798,7 +906,8 @@ private void loadGiphyEmote(EmoteSpanRequest request, TextView textView, int pos
         }
     }
 
-    private void setLinkTypes(SpannableStringBuilder builder, URLSpan span) {
+    private static void setLinkTypes(
+            Context context, SpannableStringBuilder builder, URLSpan span) {
         String url = span.getURL();
         if (url.endsWith("/")) {
             url = url.substring(0, url.length() - 1);
@@ -816,10 +925,9 @@ private void loadGiphyEmote(EmoteSpanRequest request, TextView textView, int pos
                                                 && url.startsWith("/")
                                                 && !(url.split("/").length > 2))
                                         ? url
-                                        : (getContext()
-                                                        .getString(
-                                                                ContentType.getContentID(
-                                                                        contentType, false))
+                                        : (context.getString(
+                                                        ContentType.getContentID(
+                                                                contentType, false))
                                                 + (contentType == ContentType.Type.LINK
                                                         ? " " + Uri.parse(url).getHost()
                                                         : "")))
@@ -827,8 +935,7 @@ private void loadGiphyEmote(EmoteSpanRequest request, TextView textView, int pos
             } catch (Exception e) {
                 bod =
                         " ("
-                                + getContext()
-                                        .getString(ContentType.getContentID(contentType, false))
+                                + context.getString(ContentType.getContentID(contentType, false))
                                 + ")";
             }
             SpannableStringBuilder b = new SpannableStringBuilder(bod);
@@ -839,7 +946,7 @@ private void loadGiphyEmote(EmoteSpanRequest request, TextView textView, int pos
         }
     }
 
-    private void setLargeLinks(SpannableStringBuilder builder, URLSpan span) {
+    private static void setLargeLinks(SpannableStringBuilder builder, URLSpan span) {
         builder.setSpan(
                 new RelativeSizeSpan(1.3f),
                 builder.getSpanStart(span),
@@ -847,7 +954,7 @@ private void loadGiphyEmote(EmoteSpanRequest request, TextView textView, int pos
                 Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
     }
 
-    private void setStrikethrough(SpannableStringBuilder builder) {
+    private static void setStrikethrough(SpannableStringBuilder builder) {
         final int offset = "[[d[".length(); // == "]d]]".length()
 
         int start = -1;
@@ -873,7 +980,7 @@ private void loadGiphyEmote(EmoteSpanRequest request, TextView textView, int pos
         }
     }
 
-    private void setHighlight(SpannableStringBuilder builder, String subreddit) {
+    private static void setHighlight(SpannableStringBuilder builder, String subreddit) {
         final int offset = "[[h[".length(); // == "]h]]".length()
 
         int start = -1;
@@ -1171,7 +1278,12 @@ private void loadGiphyEmote(EmoteSpanRequest request, TextView textView, int pos
      * @param sequence
      * @return
      */
-    private CharSequence setSpoilerStyle(SpannableStringBuilder sequence, String subreddit) {
+    private static CharSequence setSpoilerStyle(
+            SpannableStringBuilder sequence,
+            String subreddit,
+            List<CharacterStyle> spoilerSpans,
+            List<Integer> spoilerStarts,
+            List<Integer> spoilerEnds) {
         int start = 0;
         int end = 0;
         for (int i = 0; i < sequence.length(); i++) {
@@ -1221,17 +1333,17 @@ private void loadGiphyEmote(EmoteSpanRequest request, TextView textView, int pos
                 sequence.setSpan(
                         foregroundColorSpan, start, end - 4, Spannable.SPAN_INCLUSIVE_INCLUSIVE);
 
-                storedSpoilerSpans.add(underneathColorSpan);
-                storedSpoilerSpans.add(foregroundColorSpan);
-                storedSpoilerSpans.add(backgroundColorSpan);
+                spoilerSpans.add(underneathColorSpan);
+                spoilerSpans.add(foregroundColorSpan);
+                spoilerSpans.add(backgroundColorSpan);
                 // Shift 1 to account for remove of beginning "<"
 
-                storedSpoilerStarts.add(start - 1);
-                storedSpoilerStarts.add(start - 1);
-                storedSpoilerStarts.add(start - 1);
-                storedSpoilerEnds.add(end - 5);
-                storedSpoilerEnds.add(end - 5);
-                storedSpoilerEnds.add(end - 5);
+                spoilerStarts.add(start - 1);
+                spoilerStarts.add(start - 1);
+                spoilerStarts.add(start - 1);
+                spoilerEnds.add(end - 5);
+                spoilerEnds.add(end - 5);
+                spoilerEnds.add(end - 5);
 
                 sequence.delete(start - 2, start - 1); // remove the trailing <
                 start = 0;
@@ -1266,7 +1378,7 @@ private void loadGiphyEmote(EmoteSpanRequest request, TextView textView, int pos
      * @param sequence the Spannable generated from Html.fromHtml
      * @return the message with monospace font applied to code fragments
      */
-    private SpannableStringBuilder setCodeFont(SpannableStringBuilder sequence) {
+    private static SpannableStringBuilder setCodeFont(SpannableStringBuilder sequence) {
         int start = 0;
         int end = 0;
         for (int i = 0; i < sequence.length(); i++) {
@@ -1308,11 +1420,8 @@ private void loadGiphyEmote(EmoteSpanRequest request, TextView textView, int pos
     }
 
     private void processRedditPreviewImages(SpannableStringBuilder builder) {
-        Pattern previewPattern = Pattern.compile("https://preview\\.redd\\.it/[^\\s]+");
-        Matcher previewMatcher = previewPattern.matcher(builder);
-
-        Pattern iPattern = Pattern.compile("https://i\\.redd\\.it/[^\\s]+");
-        Matcher iMatcher = iPattern.matcher(builder);
+        Matcher previewMatcher = previewImagePattern.matcher(builder);
+        Matcher iMatcher = iImagePattern.matcher(builder);
 
         List<MatchPair> matches = new ArrayList<>();
 
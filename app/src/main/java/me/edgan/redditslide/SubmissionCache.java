@@ -8,16 +8,19 @@ import android.text.SpannableStringBuilder;
 import android.text.Spanned;
 import android.text.style.ForegroundColorSpan;
 import android.text.style.StyleSpan;
+import android.util.LruCache;
 import android.util.TypedValue;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
 import me.edgan.redditslide.Adapters.CommentAdapterHelper;
+import me.edgan.redditslide.SubmissionViews.SubmissionCard;
 import me.edgan.redditslide.Toolbox.ToolboxUI;
 import me.edgan.redditslide.Views.RoundedBackgroundSpan;
 import me.edgan.redditslide.Visuals.FontPreferences;
 import me.edgan.redditslide.Visuals.Palette;
 import me.edgan.redditslide.util.CompatUtil;
+import me.edgan.redditslide.util.LogUtil;
 import me.edgan.redditslide.util.MiscUtil;
 import me.edgan.redditslide.util.TimeUtils;
 
@@ -25,67 +28,215 @@ import net.dean.jraw.models.DistinguishedStatus;
 import net.dean.jraw.models.Submission;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.WeakHashMap;
-
-/** Created by carlo_000 on 4/22/2016. */
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by carlo_000 on 4/22/2016.
+ *
+ * <p>Title, info and crosspost lines of submissions, built while a page loads so binding a card
+ * doesn't have to. Lines are kept in an LRU cache limited by their total length and keyed by theme,
+ * so a theme switch misses instead of showing old colors. Anything else that changes a line
+ * (votes, saves, flair edits, user tags and colors) has to call {@link #invalidate(String)} or
+ * {@link #evictAll()}.
+ */
 public class SubmissionCache {
-    private static WeakHashMap<String, SpannableStringBuilder> titles;
-    private static WeakHashMap<String, SpannableStringBuilder> info;
-    private static WeakHashMap<String, SpannableStringBuilder> crosspost;
+    /** Upper bound on the characters of all cached lines */
+    private static final int CACHE_CHARS = 256 * 1024;
+
+    /** Stands in for "not a crosspost", since the cache can't hold null */
+    private static final SpannableStringBuilder NO_CROSSPOST = new SpannableStringBuilder();
+
+    private static final LruCache<String, SpannableStringBuilder> lines =
+            new LruCache<String, SpannableStringBuilder>(CACHE_CHARS) {
+                @Override
+                protected int sizeOf(String key, SpannableStringBuilder value) {
+                    return key.length() + value.length();
+                }
+
+                @Override
+                protected void entryRemoved(
+                        boolean evicted,
+                        String key,
+                        SpannableStringBuilder oldValue,
+                        SpannableStringBuilder newValue) {
+                    if (newValue == null) {
+                        unindex(key);
+                    }
+                }
+            };
+
+    /** Keys of the cached lines of each submission, so one can be invalidated without a scan */
+    private static final HashMap<String, Set<String>> keysByFullName = new HashMap<>();
+
+    private static final ExecutorService executor =
+            Executors.newFixedThreadPool(
+                    Math.max(2, Runtime.getRuntime().availableProcessors() - 1));
+
+    private static final AtomicInteger hits = new AtomicInteger();
+    private static final AtomicInteger misses = new AtomicInteger();
 
     public static void cacheSubmissions(
             List<Submission> submissions, Context mContext, String baseSub) {
+        SubmissionCard.cache(submissions);
         cacheInfo(submissions, mContext, baseSub);
     }
 
     public static SpannableStringBuilder getCrosspostLine(Submission s, Context mContext) {
-        if (crosspost == null) crosspost = new WeakHashMap<>();
-        if (crosspost.containsKey(s.getFullName())) {
-            return crosspost.get(s.getFullName());
-        } else {
-            return getCrosspostSpannable(s, mContext);
+        SpannableStringBuilder line = get(crosspostKey(s));
+        if (line == null) {
+            line = getCrosspostSpannable(s, mContext);
+            put(crosspostKey(s), line == null ? NO_CROSSPOST : line);
+            return line;
         }
+        return line == NO_CROSSPOST ? null : line;
     }
 
-    private static void cacheInfo(List<Submission> submissions, Context mContext, String baseSub) {
-        if (titles == null) titles = new WeakHashMap<>();
-        if (info == null) info = new WeakHashMap<>();
-        if (crosspost == null) crosspost = new WeakHashMap<>();
-
-        for (Submission submission : submissions) {
-            titles.put(submission.getFullName(), getTitleSpannable(submission, mContext));
-            info.put(submission.getFullName(), getInfoSpannable(submission, mContext, baseSub));
-            crosspost.put(submission.getFullName(), getCrosspostLine(submission, mContext));
+    /** Builds the lines of a page in parallel, returning once they're all cached */
+    private static void cacheInfo(
+            List<Submission> submissions, final Context mContext, final String baseSub) {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (final Submission submission : submissions) {
+            tasks.add(
+                    () -> {
+                        put(titleKey(submission), getTitleSpannable(submission, mContext));
+                        put(
+                                infoKey(submission, baseSub),
+                                getInfoSpannable(submission, mContext, baseSub));
+                        SpannableStringBuilder crosspostLine =
+                                getCrosspostSpannable(submission, mContext);
+                        put(
+                                crosspostKey(submission),
+                                crosspostLine == null ? NO_CROSSPOST : crosspostLine);
+                        return null;
+                    });
+        }
+        try {
+            for (Future<Void> result : executor.invokeAll(tasks)) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    // Lines that failed are built again when bound
+                    LogUtil.e(e, "Error caching submission lines");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (BuildConfig.DEBUG) {
+            LogUtil.v(
+                    "Submission lines: "
+                            + hits.get()
+                            + " hits, "
+                            + misses.get()
+                            + " misses, "
+                            + lines.size()
+                            + " chars cached");
         }
     }
 
     public static void updateInfoSpannable(Submission changed, Context mContext, String baseSub) {
-        info.put(changed.getFullName(), getInfoSpannable(changed, mContext, baseSub));
+        // Info lines cached for other base subreddits are stale too
+        invalidate(changed.getFullName());
+        put(infoKey(changed, baseSub), getInfoSpannable(changed, mContext, baseSub));
     }
 
     public static void updateTitleFlair(Submission s, String flair, Context c) {
-        titles.put(s.getFullName(), getTitleSpannable(s, flair, c));
+        put(titleKey(s), getTitleSpannable(s, flair, c));
     }
 
     public static SpannableStringBuilder getTitleLine(Submission s, Context mContext) {
-        if (titles == null) titles = new WeakHashMap<>();
-        if (titles.containsKey(s.getFullName())) {
-            return titles.get(s.getFullName());
-        } else {
-            return getTitleSpannable(s, mContext);
+        SpannableStringBuilder line = get(titleKey(s));
+        if (line == null) {
+            line = getTitleSpannable(s, mContext);
+            put(titleKey(s), line);
         }
+        return line;
     }
 
     public static SpannableStringBuilder getInfoLine(
             Submission s, Context mContext, String baseSub) {
-        if (info == null) info = new WeakHashMap<>();
-        if (info.containsKey(s.getFullName())) {
-            return info.get(s.getFullName());
+        SpannableStringBuilder line = get(infoKey(s, baseSub));
+        if (line == null) {
+            line = getInfoSpannable(s, mContext, baseSub);
+            put(infoKey(s, baseSub), line);
+        }
+        return line;
+    }
+
+    /** Drops the cached lines of one submission, e.g. after it was voted on or saved */
+    public static void invalidate(String fullName) {
+        Set<String> keys;
+        synchronized (keysByFullName) {
+            keys = keysByFullName.remove(fullName);
+        }
+        if (keys != null) {
+            for (String key : keys) {
+                lines.remove(key);
+            }
+        }
+    }
+
+    private static void put(String key, SpannableStringBuilder line) {
+        synchronized (keysByFullName) {
+            String fullName = key.substring(key.lastIndexOf(':') + 1);
+            Set<String> keys = keysByFullName.get(fullName);
+            if (keys == null) {
+                keys = new HashSet<>(4);
+                keysByFullName.put(fullName, keys);
+            }
+            keys.add(key);
+            lines.put(key, line);
+        }
+    }
+
+    private static void unindex(String key) {
+        synchronized (keysByFullName) {
+            String fullName = key.substring(key.lastIndexOf(':') + 1);
+            Set<String> keys = keysByFullName.get(fullName);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysByFullName.remove(fullName);
+            }
+        }
+    }
+
+    public static int getHitCount() {
+        return hits.get();
+    }
+
+    public static int getMissCount() {
+        return misses.get();
+    }
+
+    private static SpannableStringBuilder get(String key) {
+        SpannableStringBuilder line = lines.get(key);
+        if (line == null) {
+            misses.incrementAndGet();
         } else {
-            return getInfoSpannable(s, mContext, baseSub);
+            hits.incrementAndGet();
         }
+        return line;
+    }
+
+    private static String titleKey(Submission s) {
+        return "t" + SettingValues.currentTheme + ":" + s.getFullName();
+    }
+
+    private static String infoKey(Submission s, String baseSub) {
+        return "i" + SettingValues.currentTheme + ":" + baseSub + ":" + s.getFullName();
+    }
+
+    private static String crosspostKey(Submission s) {
+        return "c" + SettingValues.currentTheme + ":" + s.getFullName();
     }
 
     private static SpannableStringBuilder getCrosspostSpannable(Submission s, Context mContext) {
@@ -597,6 +748,6 @@ public class SubmissionCache {
     }
 
     public static void evictAll() {
-        info = new WeakHashMap<>();
+        lines.evictAll();
     }
 }
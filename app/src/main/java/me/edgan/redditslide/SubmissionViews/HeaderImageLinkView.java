@@ -21,7 +21,6 @@ import androidx.appcompat.view.ContextThemeWrapper;
 import androidx.core.content.ContextCompat;
 
 import com.cocosw.bottomsheet.BottomSheet;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.nostra13.universalimageloader.core.DisplayImageOptions;
 import com.nostra13.universalimageloader.core.assist.ImageScaleType;
 import com.nostra13.universalimageloader.core.assist.FailReason;
@@ -45,7 +44,6 @@ import me.edgan.redditslide.SettingValues;
 import me.edgan.redditslide.Views.PeekMediaView;
 import me.edgan.redditslide.Views.TransparentTagTextView;
 import me.edgan.redditslide.util.BlendModeUtil;
-import me.edgan.redditslide.util.CompatUtil;
 import me.edgan.redditslide.util.LinkUtil;
 import me.edgan.redditslide.util.LogUtil;
 import me.edgan.redditslide.util.NetworkUtil;
@@ -70,7 +68,7 @@ public class HeaderImageLinkView extends RelativeLayout {
                     .resetViewBeforeLoading(false)
                     .cacheOnDisk(true)
                     .imageScaleType(ImageScaleType.EXACTLY)
-                    .cacheInMemory(false)
+                    .cacheInMemory(true)
                     .displayer(new FadeInBitmapDisplayer(250))
                     .build();
     boolean clickHandled;
@@ -115,9 +113,7 @@ public class HeaderImageLinkView extends RelativeLayout {
                 (((!NetworkUtil.isConnectedWifi(getContext()) && SettingValues.lowResMobile)
                         || SettingValues.lowResAlways));
 
-        JsonNode dataNode = submission.getDataNode();
-        JsonNode spoiler = (dataNode != null) ? dataNode.get("spoiler") : null;
-        JsonNode thumbnail = (dataNode != null) ? dataNode.get("thumbnail") : null;
+        SubmissionCard card = SubmissionCard.get(submission);
 
         if (type == ContentType.Type.SELF && SettingValues.hideSelftextLeadImage
                 || SettingValues.noImages && submission.isSelfPost()) {
@@ -125,28 +121,17 @@ public class HeaderImageLinkView extends RelativeLayout {
             if (wrapArea != null) wrapArea.setVisibility(View.GONE);
             thumbImage2.setVisibility(View.GONE);
         } else {
-            if (submission.getThumbnails() != null && submission.getThumbnails().getSource() != null) {
-                int height = submission.getThumbnails().getSource().getHeight();
-                int width = submission.getThumbnails().getSource().getWidth();
-                setBackdropLayoutParams(height, width, full, fullImage, type);
+            if (card.hasSource) {
+                setBackdropLayoutParams(
+                        card.sourceHeight, card.sourceWidth, full, fullImage, type);
             } else if (type == ContentType.Type.REDDIT_GALLERY) {
                 if (full) {
                     setFixedHeightLayoutParams(200);
                 }
             }
 
-            Submission.ThumbnailType thumbnailType;
-            if (!submission.getDataNode().get("thumbnail").isNull()) {
-                thumbnailType = submission.getThumbnailType();
-            } else {
-                thumbnailType = Submission.ThumbnailType.NONE;
-            }
-
-            if (!SettingValues.ignoreSubSetting
-                    && dataNode != null
-                    && dataNode.has("sr_detail")
-                    && dataNode.get("sr_detail").has("show_media")
-                    && !dataNode.get("sr_detail").get("show_media").asBoolean()) {
+            Submission.ThumbnailType thumbnailType = card.thumbnailType;
+            if (!SettingValues.ignoreSubSetting && card.mediaHidden) {
                 thumbnailType = Submission.ThumbnailType.NONE;
             }
 
@@ -171,7 +156,7 @@ public class HeaderImageLinkView extends RelativeLayout {
                                     || baseSub.contains("+")
                                     || baseSub.equals("popular")))) {
                 handleSpecialSubmissionType(submission, full, forceThumb, R.drawable.nsfw);
-            } else if (submission.getDataNode().get("spoiler").asBoolean()) {
+            } else if (card.spoiler) {
                 handleSpecialSubmissionType(submission, full, forceThumb, R.drawable.spoiler);
             } else if (type == ContentType.Type.ALBUM
                     || type == ContentType.Type.GIF
@@ -179,16 +164,16 @@ public class HeaderImageLinkView extends RelativeLayout {
                     || type == ContentType.Type.REDDIT
                     || type == ContentType.Type.TUMBLR
                     || type == ContentType.Type.XKCD) {
-                handleTypes(submission, baseSub, full);
+                handleTypes(card, baseSub, full);
             } else if (type == ContentType.Type.REDDIT_GALLERY) {
-                handleRedditGalleryType(submission, baseSub, full, forceThumb);
+                handleRedditGalleryType(card, baseSub, full, forceThumb);
             } else if (type == ContentType.Type.VREDDIT_DIRECT || type == ContentType.Type.VREDDIT_REDIRECT) {
-                handleVRedditType(submission, baseSub, full, forceThumb);
+                handleVRedditType(card, submission, baseSub, full, forceThumb);
             } else if (type != ContentType.Type.IMAGE
                             && type != ContentType.Type.SELF
-                            && (!thumbnail.isNull()
+                            && (!card.thumbnailNull
                                     && (thumbnailType != Submission.ThumbnailType.URL))
-                    || thumbnail.asText().isEmpty() && !submission.isSelfPost()) {
+                    || card.thumbnail.isEmpty() && !submission.isSelfPost()) {
                 setVisibility(View.GONE);
                 if (!full) {
                     thumbImage2.setVisibility(View.VISIBLE);
@@ -201,18 +186,15 @@ public class HeaderImageLinkView extends RelativeLayout {
                 thumbUsed = true;
                 loadedUrl = submission.getUrl();
             } else if (type == ContentType.Type.IMAGE
-                    && !thumbnail.isNull()
-                    && !thumbnail.asText().isEmpty()) {
-                handleImageType(submission, baseSub, full, forceThumb, loadLq);
+                    && !card.thumbnailNull
+                    && !card.thumbnail.isEmpty()) {
+                handleImageType(card, submission, baseSub, full, forceThumb, loadLq);
             } else if (submission.getThumbnails() != null) {
-                handleThumbnailDisplay(submission, full, forceThumb, loadLq, baseSub, news);
-            } else if (!thumbnail.isNull()
-                    && submission.getThumbnail() != null
-                    && (submission.getThumbnailType() == Submission.ThumbnailType.URL
-                            || (!thumbnail.isNull()
-                                    && submission.isNsfw()
-                                    && SettingValues.getIsNSFWEnabled()))) {
-                        url = submission.getThumbnail();
+                handleThumbnailDisplay(card, submission, full, forceThumb, loadLq, baseSub);
+            } else if (!card.thumbnailNull
+                    && (card.thumbnailType == Submission.ThumbnailType.URL
+                            || (submission.isNsfw() && SettingValues.getIsNSFWEnabled()))) {
+                url = card.thumbnail;
                 setThumbAndWrapVisibility(full, true);
                 loadedUrl = url;
 
@@ -226,7 +208,7 @@ public class HeaderImageLinkView extends RelativeLayout {
                 setVisibility(View.GONE);
             }
 
-            setupTitleAndBottomSheet(submission, full, forceThumb, type);
+            setupTitleAndBottomSheet(card, submission, full, forceThumb, type);
 
             if (SettingValues.smallTag && !full && !news) {
                 title = findViewById(R.id.tag);
@@ -527,37 +509,9 @@ public class HeaderImageLinkView extends RelativeLayout {
         this.backdrop = findViewById(R.id.leadimage);
     }
 
-    private void handleTypes(Submission submission, String baseSub, boolean full) {
-        JsonNode dataNode = submission.getDataNode();
-        String url = submission.getUrl();
-        String redditPreviewUrl = null;
-
-        // Check for preview data
-        if (dataNode.has("preview") && !dataNode.get("preview").isNull()) {
-            JsonNode previewNode = dataNode.get("preview").get("images");
-            if (previewNode != null && previewNode.size() > 0) {
-                JsonNode sourceNode = previewNode.get(0).get("source");
-                if (sourceNode != null && sourceNode.has("url")) {
-                    redditPreviewUrl = sourceNode.get("url").asText();
-                }
-            }
-        }
-
-        // Validate and use Reddit preview URL if available
-        boolean hasValidPreview = false;
-        if (redditPreviewUrl != null && !redditPreviewUrl.isEmpty()) {
-            url = redditPreviewUrl;
-            hasValidPreview = true;
-        } else if (dataNode.has("thumbnail") && !dataNode.get("thumbnail").isNull()) {
-            String thumbnail = dataNode.get("thumbnail").asText();
-            // Check if thumbnail is a valid URL and not a placeholder
-            if (!thumbnail.equals("self") && !thumbnail.equals("default") &&
-                !thumbnail.equals("nsfw") &&
-                !thumbnail.isEmpty()) {
-                url = thumbnail;
-                hasValidPreview = true;
-            }
-        }
+    private void handleTypes(SubmissionCard card, String baseSub, boolean full) {
+        String url = card.linkPreviewUrl;
+        boolean hasValidPreview = url != null;
 
         // Only show preview if we have a valid image URL
         if (hasValidPreview) {
@@ -584,56 +538,23 @@ public class HeaderImageLinkView extends RelativeLayout {
         }
     }
 
-    private void handleRedditGalleryType(Submission submission, String baseSub, boolean full, boolean forceThumb) {
-        JsonNode dataNode = submission.getDataNode();
-
-        // If this is a crosspost, we need to load the gallery data from the parent submission
-        if (dataNode.has("crosspost_parent_list") && dataNode.get("crosspost_parent_list").size() > 0) {
-            dataNode = dataNode.get("crosspost_parent_list").get(0);
-        }
-
-        if (dataNode.has("gallery_data")) {
-            handleGalleryData(dataNode, submission, baseSub, full, forceThumb);
-        }
-    }
-
-    private void handleVRedditType(Submission submission, String baseSub, boolean full, boolean forceThumb) {
-        JsonNode dataNode = submission.getDataNode();
-        String previewUrl = getPreviewUrl(dataNode);
-
-        if (previewUrl != null) {
-            handlePreviewImage(previewUrl, submission, baseSub, full, forceThumb);
+    private void handleRedditGalleryType(
+            SubmissionCard card, String baseSub, boolean full, boolean forceThumb) {
+        // For a crosspost, the card holds the gallery of the parent submission
+        if (card.hasGallery) {
+            handleGalleryData(card, baseSub, full, forceThumb);
         }
     }
 
-    private String getPreviewUrl(JsonNode dataNode) {
-        String previewUrl = null;
-
-        // Check crosspost parent first
-        if (dataNode.has("crosspost_parent_list") && dataNode.get("crosspost_parent_list").size() > 0) {
-            JsonNode parentNode = dataNode.get("crosspost_parent_list").get(0);
-            previewUrl = extractPreviewUrl(parentNode);
-        }
-        // Fallback to current submission preview
-        if (previewUrl == null) {
-            previewUrl = extractPreviewUrl(dataNode);
-        }
-        return previewUrl;
-    }
-
-    private String extractPreviewUrl(JsonNode node) {
-        if (node.has("preview") &&
-            node.get("preview").has("images") &&
-            node.get("preview").get("images").size() > 0) {
-
-            return node.get("preview")
-                    .get("images")
-                    .get(0)
-                    .get("source")
-                    .get("url")
-                    .asText();
+    private void handleVRedditType(
+            SubmissionCard card,
+            Submission submission,
+            String baseSub,
+            boolean full,
+            boolean forceThumb) {
+        if (card.mediaPreviewUrl != null) {
+            handlePreviewImage(card.mediaPreviewUrl, submission, baseSub, full, forceThumb);
         }
-        return null;
     }
 
     private void handlePreviewImage(String previewUrl, Submission submission, String baseSub, boolean full, boolean forceThumb) {
@@ -679,15 +600,19 @@ public class HeaderImageLinkView extends RelativeLayout {
         }
     }
 
-    private void handleImageType(Submission submission, String baseSub, boolean full, boolean forceThumb, boolean loadLq) {
-        String url = "";
-        boolean lq = false;
+    private void handleImageType(
+            SubmissionCard card,
+            Submission submission,
+            String baseSub,
+            boolean full,
+            boolean forceThumb,
+            boolean loadLq) {
+        String url;
 
-        if (loadLq && submission.getThumbnails() != null && submission.getThumbnails().getVariations().length > 0) {
-            url = getLowQualityUrl(submission);
-            lq = true;
+        if (loadLq && submission.getThumbnails() != null && card.variationUrls.length > 0) {
+            url = getLowQualityUrl(card, submission);
         } else {
-            url = getHighQualityUrl(submission);
+            url = card.highQualityUrl;
         }
 
         if (!full && !SettingValues.isPicsEnabled(baseSub) || forceThumb) {
@@ -716,44 +641,11 @@ public class HeaderImageLinkView extends RelativeLayout {
         }
     }
 
-    private String getThumbnailVariationUrl(Submission submission, int index) {
-        return CompatUtil.fromHtml(
-                submission.getThumbnails().getVariations()[index].getUrl()
-        ).toString(); // unescape url characters
-    }
-
-    private String getLowQualityUrl(Submission submission) {
+    private String getLowQualityUrl(SubmissionCard card, Submission submission) {
         if (ContentType.isImgurImage(submission.getUrl())) {
-            String url = submission.getUrl();
-            return url.substring(0, url.lastIndexOf("."))
-                    + (SettingValues.lqLow ? "m" : (SettingValues.lqMid ? "l" : "h"))
-                    + url.substring(url.lastIndexOf("."));
-        } else {
-            int length = submission.getThumbnails().getVariations().length;
-            if (SettingValues.lqLow && length >= 3) {
-                return getThumbnailVariationUrl(submission, 2);
-            } else if (SettingValues.lqMid && length >= 4) {
-                return getThumbnailVariationUrl(submission, 3);
-            } else if (length >= 5) {
-                return getThumbnailVariationUrl(submission, length - 1);
-            } else {
-                return CompatUtil.fromHtml(submission.getThumbnails().getSource().getUrl()).toString();
-            }
-        }
-    }
-
-    private String getHighQualityUrl(Submission submission) {
-        if (submission.getDataNode().has("preview")
-                && submission.getDataNode().get("preview").get("images").get(0).get("source").has("height")) {
-            return submission.getDataNode().get("preview").get("images").get(0).get("source").get("url").asText();
-        } else if (submission.getThumbnails() != null && submission.getThumbnails().getSource() != null) {
-            String sourceUrl = submission.getThumbnails().getSource().getUrl();
-            return CompatUtil.fromHtml(
-                    sourceUrl.isEmpty() ? submission.getThumbnail() : sourceUrl
-            ).toString();
+            return getImgurLowQualityUrl(submission.getUrl());
         } else {
-            // Fallback in case there is no preview or thumbnails source available.
-            return submission.getThumbnail();
+            return getLowQualityVariationUrl(card);
         }
     }
 
@@ -805,9 +697,14 @@ public class HeaderImageLinkView extends RelativeLayout {
         }
     }
 
-    private void handleThumbnailDisplay(Submission submission, boolean full, boolean forceThumb,
-            boolean loadLq, String baseSub, boolean news) {
-        String url = getSubmissionUrl(submission, loadLq);
+    private void handleThumbnailDisplay(
+            SubmissionCard card,
+            Submission submission,
+            boolean full,
+            boolean forceThumb,
+            boolean loadLq,
+            String baseSub) {
+        String url = getSubmissionUrl(card, submission, loadLq);
         boolean shouldShowThumb = !SettingValues.isPicsEnabled(baseSub) && !full
                 || forceThumb;
 
@@ -818,15 +715,11 @@ public class HeaderImageLinkView extends RelativeLayout {
         }
     }
 
-    private String getSubmissionUrl(Submission submission, boolean loadLq) {
-        if (loadLq && submission.getThumbnails().getVariations().length != 0) {
-            if (ContentType.isImgurImage(submission.getUrl())) {
-                return getImgurLowQualityUrl(submission.getUrl());
-            } else {
-                return getLowQualityVariationUrl(submission);
-            }
+    private String getSubmissionUrl(SubmissionCard card, Submission submission, boolean loadLq) {
+        if (loadLq && card.variationUrls.length != 0) {
+            return getLowQualityUrl(card, submission);
         } else {
-            return getHighQualityUrl(submission);
+            return card.highQualityUrl;
         }
     }
 
@@ -836,16 +729,16 @@ public class HeaderImageLinkView extends RelativeLayout {
                 + url.substring(url.lastIndexOf("."));
     }
 
-    private String getLowQualityVariationUrl(Submission submission) {
-        int length = submission.getThumbnails().getVariations().length;
+    private String getLowQualityVariationUrl(SubmissionCard card) {
+        int length = card.variationUrls.length;
         if (SettingValues.lqLow && length >= 3) {
-            return getThumbnailVariationUrl(submission, 2);
+            return card.variationUrls[2];
         } else if (SettingValues.lqMid && length >= 4) {
-            return getThumbnailVariationUrl(submission, 3);
+            return card.variationUrls[3];
         } else if (length >= 5) {
-            return getThumbnailVariationUrl(submission, length - 1);
+            return card.variationUrls[length - 1];
         } else {
-            return CompatUtil.fromHtml(submission.getThumbnails().getSource().getUrl()).toString();
+            return card.sourceUrl;
         }
     }
 
@@ -909,22 +802,32 @@ public class HeaderImageLinkView extends RelativeLayout {
         loadedUrl = submission.getUrl();
     }
 
-    private void setupTitleAndBottomSheet(Submission submission, boolean full, boolean forceThumb, ContentType.Type type) {
+    private void setupTitleAndBottomSheet(
+            SubmissionCard card,
+            Submission submission,
+            boolean full,
+            boolean forceThumb,
+            ContentType.Type type) {
         if (full) {
-            setupFullView(submission, full, forceThumb, type);
+            setupFullView(card, submission, full, forceThumb, type);
         } else {
             setupCompactView(submission, full);
         }
     }
 
-    private void setupFullView(Submission submission, boolean full, boolean forceThumb, ContentType.Type type) {
+    private void setupFullView(
+            SubmissionCard card,
+            Submission submission,
+            boolean full,
+            boolean forceThumb,
+            ContentType.Type type) {
         if (wrapArea.getVisibility() == View.VISIBLE) {
             title = secondTitle;
             info = secondSubTitle;
             setBottomSheet(wrapArea, submission, full);
         } else {
             setupDefaultTitleAndInfo();
-            View targetView = determineBottomSheetTarget(submission, forceThumb, type);
+            View targetView = determineBottomSheetTarget(card, submission, forceThumb, type);
             setBottomSheet(targetView, submission, full);
         }
     }
@@ -940,14 +843,18 @@ public class HeaderImageLinkView extends RelativeLayout {
         info = findViewById(R.id.subtextimage);
     }
 
-    private View determineBottomSheetTarget(Submission submission, boolean forceThumb, ContentType.Type type) {
+    private View determineBottomSheetTarget(
+            SubmissionCard card,
+            Submission submission,
+            boolean forceThumb,
+            ContentType.Type type) {
         boolean useThumb = forceThumb
                 || (submission.isNsfw()
-                        && submission.getThumbnailType() == Submission.ThumbnailType.NSFW
+                        && card.thumbnailType == Submission.ThumbnailType.NSFW
                         || type != ContentType.Type.IMAGE
                         && type != ContentType.Type.SELF
-                        && !submission.getDataNode().get("thumbnail").isNull()
-                        && (submission.getThumbnailType() != Submission.ThumbnailType.URL));
+                        && !card.thumbnailNull
+                        && (card.thumbnailType != Submission.ThumbnailType.URL));
 
         return useThumb ? thumbImage2 : this;
     }
@@ -960,56 +867,35 @@ public class HeaderImageLinkView extends RelativeLayout {
         }
     }
 
-    private void handleGalleryData(JsonNode dataNode, Submission submission, String baseSub, boolean full, boolean forceThumb) {
-        try {
-            if (dataNode.has("gallery_data") && dataNode.has("media_metadata")) {
-                JsonNode galleryData = dataNode.get("gallery_data");
-                JsonNode mediaMetadata = dataNode.get("media_metadata");
-
-                if (galleryData.has("items") && !galleryData.get("items").isNull() && galleryData.get("items").size() > 0) {
-                    JsonNode firstItem = galleryData.get("items").get(0);
-                    if (firstItem != null && firstItem.has("media_id")) {
-                        String mediaId = firstItem.get("media_id").asText();
-
-                        if (mediaMetadata.has(mediaId)) {
-                            JsonNode mediaInfo = mediaMetadata.get(mediaId);
-                            if (mediaInfo != null && mediaInfo.has("s")) {
-                                String url = mediaInfo.get("s").get("u").asText();
-
-                                url = url.replace("&amp;", "&");
-
-                                loadedUrl = url;
+    private void handleGalleryData(
+            SubmissionCard card, String baseSub, boolean full, boolean forceThumb) {
+        String url = card.galleryUrl;
+        if (url != null) {
+            loadedUrl = url;
 
-                                if (!full && !SettingValues.isPicsEnabled(baseSub) || forceThumb) {
-                                    if (!full) {
-                                        thumbImage2.setVisibility(View.VISIBLE);
-                                    } else {
-                                        wrapArea.setVisibility(View.VISIBLE);
-                                    }
-                                    ((Reddit) getContext().getApplicationContext())
-                                            .getImageLoader()
-                                            .displayImage(url, thumbImage2);
-                                    setVisibility(View.GONE);
-                                } else {
-                                    ((Reddit) getContext().getApplicationContext())
-                                            .getImageLoader()
-                                            .displayImage(url, backdrop);
-                                    backdrop.setVisibility(View.VISIBLE);
-                                    setVisibility(View.VISIBLE);
-                                    if (!full) {
-                                        thumbImage2.setVisibility(View.GONE);
-                                    } else {
-                                        wrapArea.setVisibility(View.GONE);
-                                    }
-                                }
-                                return;
-                            }
-                        }
-                    }
+            if (!full && !SettingValues.isPicsEnabled(baseSub) || forceThumb) {
+                if (!full) {
+                    thumbImage2.setVisibility(View.VISIBLE);
+                } else {
+                    wrapArea.setVisibility(View.VISIBLE);
+                }
+                ((Reddit) getContext().getApplicationContext())
+                        .getImageLoader()
+                        .displayImage(url, thumbImage2);
+                setVisibility(View.GONE);
+            } else {
+                ((Reddit) getContext().getApplicationContext())
+                        .getImageLoader()
+                        .displayImage(url, backdrop);
+                backdrop.setVisibility(View.VISIBLE);
+                setVisibility(View.VISIBLE);
+                if (!full) {
+                    thumbImage2.setVisibility(View.GONE);
+                } else {
+                    wrapArea.setVisibility(View.GONE);
                 }
             }
-        } catch (Exception e) {
-            android.util.Log.e("HeaderImageLinkView", "Error handling gallery data", e);
+            return;
         }
 
         // Fallback
@@ -9,6 +9,7 @@ import com.google.android.material.snackbar.Snackbar;
 import me.edgan.redditslide.Activities.MediaView;
 import me.edgan.redditslide.Authentication;
 import me.edgan.redditslide.Fragments.SubmissionsView;
+import me.edgan.redditslide.OfflineSubreddit;
 import me.edgan.redditslide.R;
 import me.edgan.redditslide.util.LayoutUtils;
 
@@ -20,7 +21,7 @@ import net.dean.jraw.models.Submission;
 public class PopulateBase {
     public static void addAdaptorPosition(
             Intent myIntent, Submission submission, int adapterPosition) {
-        if (submission.getComments() == null && adapterPosition != -1) {
+        if (!OfflineSubreddit.hasCachedComments(submission) && adapterPosition != -1) {
             myIntent.putExtra(MediaView.ADAPTER_POSITION, adapterPosition);
             myIntent.putExtra(MediaView.SUBMISSION_URL, submission.getPermalink());
         }
@@ -792,6 +792,8 @@ public class PopulateNewsViewHolder {
                                                             e.apply();
                                                         }
                                                     }
+                                                    PostMatch.invalidateFilters();
+                                                    ContentType.invalidateTypeCache();
                                                     if (filtered) {
                                                         e.apply();
                                                         ArrayList<Contribution> toRemove =
@@ -1305,7 +1307,7 @@ public class PopulateNewsViewHolder {
             holder.leadImage.setThumbnail(thumbImage2);
         }
 
-        final ContentType.Type type = ContentType.getContentType(submission);
+        final ContentType.Type type = SubmissionCard.get(submission).type;
 
         addClickFunctions(holder.itemView, type, mContext, submission, holder, full);
 
@@ -973,6 +973,8 @@ public class PopulateSubmissionViewHolder {
                                                             e.apply();
                                                         }
                                                     }
+                                                    PostMatch.invalidateFilters();
+                                                    ContentType.invalidateTypeCache();
                                                     if (filtered) {
                                                         e.apply();
                                                         ArrayList<Contribution> toRemove =
@@ -3232,7 +3234,8 @@ public class PopulateSubmissionViewHolder {
             holder.leadImage.setThumbnail(thumbImage2);
         }
 
-        final ContentType.Type type = ContentType.getContentType(submission);
+        final SubmissionCard card = SubmissionCard.get(submission);
+        final ContentType.Type type = card.type;
 
         addClickFunctions(holder.leadImage, type, mContext, submission, holder, full);
 
@@ -3254,23 +3257,14 @@ public class PopulateSubmissionViewHolder {
             holder.leadImage.setWrapArea(holder.itemView.findViewById(R.id.wraparea));
         }
 
-        if (full
-                && (submission.getDataNode() != null
-                        && submission.getDataNode().has("crosspost_parent_list")
-                        && submission.getDataNode().get("crosspost_parent_list") != null
-                        && submission.getDataNode().get("crosspost_parent_list").get(0) != null)) {
+        if (full && card.crosspostPermalink != null) {
             holder.itemView.findViewById(R.id.crosspost).setVisibility(View.VISIBLE);
             ((TextView) holder.itemView.findViewById(R.id.crossinfo))
                     .setText(SubmissionCache.getCrosspostLine(submission, mContext));
             ((Reddit) mContext.getApplicationContext())
                     .getImageLoader()
                     .displayImage(
-                            submission
-                                    .getDataNode()
-                                    .get("crosspost_parent_list")
-                                    .get(0)
-                                    .get("thumbnail")
-                                    .asText(),
+                            card.crosspostThumbnail,
                             ((ImageView) holder.itemView.findViewById(R.id.crossthumb)));
             holder.itemView
                     .findViewById(R.id.crosspost)
@@ -3279,14 +3273,7 @@ public class PopulateSubmissionViewHolder {
                                 @Override
                                 public void onClick(View v) {
                                     OpenRedditLink.openUrl(
-                                            mContext,
-                                            submission
-                                                    .getDataNode()
-                                                    .get("crosspost_parent_list")
-                                                    .get(0)
-                                                    .get("permalink")
-                                                    .asText(),
-                                            true);
+                                            mContext, card.crosspostPermalink, true);
                                 }
                             });
         }
@@ -3323,10 +3310,9 @@ public class PopulateSubmissionViewHolder {
                 && submission.isSelfPost()
                 && !submission.getSelftext().isEmpty()
                 && !submission.isNsfw()
-                && !submission.getDataNode().get("spoiler").asBoolean()
-                && !submission.getDataNode().get("selftext_html").asText().trim().isEmpty()) {
+                && !card.spoiler
+                && card.selftextPreview != null) {
             holder.body.setVisibility(View.VISIBLE);
-            String text = submission.getDataNode().get("selftext_html").asText();
             int typef = new FontPreferences(mContext).getFontTypeComment().getTypeface();
             Typeface typeface;
             if (typef >= 0) {
@@ -3336,17 +3322,7 @@ public class PopulateSubmissionViewHolder {
             }
             holder.body.setTypeface(typeface);
 
-            holder.body.setTextHtml(
-                    CompatUtil.fromHtml(
-                                    text.substring(
-                                            0,
-                                            text.contains("\n")
-                                                    ? text.indexOf("\n")
-                                                    : text.length()))
-                            .toString()
-                            .replace("<sup>", "<sup><small>")
-                            .replace("</sup>", "</small></sup>"),
-                    "none ");
+            holder.body.setTextHtml(card.selftextPreview, "none ");
             holder.body.setOnClickListener(
                     new View.OnClickListener() {
                         @Override
@@ -3378,7 +3354,7 @@ public class PopulateSubmissionViewHolder {
                 holder.firstTextView.setTypeface(typeface);
 
                 setViews(
-                        submission.getDataNode().get("selftext_html").asText(),
+                        card.selftextHtml,
                         submission.getSubredditName() == null
                                 ? "all"
                                 : submission.getSubredditName(),
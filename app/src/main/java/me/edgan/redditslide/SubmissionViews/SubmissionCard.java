@@ -0,0 +1,244 @@
+package me.edgan.redditslide.SubmissionViews;
+
+import android.util.LruCache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import me.edgan.redditslide.ContentType;
+import me.edgan.redditslide.util.CompatUtil;
+import me.edgan.redditslide.util.LogUtil;
+
+import net.dean.jraw.models.Submission;
+import net.dean.jraw.models.Thumbnails;
+
+import java.util.List;
+
+/**
+ * What the submission views need from a submission's JSON, read and unescaped once. Cards are
+ * built off the UI thread when a page loads, so binding a card, list, compact, news or shadowbox
+ * view doesn't walk the data node. Only things that don't depend on the settings are kept here.
+ */
+public class SubmissionCard {
+    private static final int CACHE_SIZE = 500;
+
+    private static final LruCache<String, SubmissionCard> cards = new LruCache<>(CACHE_SIZE);
+
+    /** The submission this was read from; a reloaded submission gets a new card */
+    private final Submission submission;
+
+    public final ContentType.Type type;
+    public final boolean spoiler;
+
+    /** Whether the "thumbnail" field is missing or null */
+    public final boolean thumbnailNull;
+
+    /** The "thumbnail" field, or "" */
+    public final String thumbnail;
+
+    public final Submission.ThumbnailType thumbnailType;
+
+    /** Whether the subreddit asked not to show media */
+    public final boolean mediaHidden;
+
+    public final boolean hasSource;
+    public final int sourceWidth;
+    public final int sourceHeight;
+
+    /** Unescaped urls of the preview source and its smaller variations */
+    public final String sourceUrl;
+
+    public final String[] variationUrls;
+
+    /** Best image for image posts, as the lead image used to pick it */
+    public final String highQualityUrl;
+
+    /** Preview for link type posts, or null */
+    public final String linkPreviewUrl;
+
+    /** Preview for v.redd.it posts, taken from the crosspost parent first, or null */
+    public final String mediaPreviewUrl;
+
+    /** Whether there is gallery data, on the crosspost parent if any */
+    public final boolean hasGallery;
+
+    /** First gallery image, or null */
+    public final String galleryUrl;
+
+    /** Thumbnail and permalink of the crosspost parent, null if not a crosspost */
+    public final String crosspostThumbnail;
+
+    public final String crosspostPermalink;
+
+    /** The "selftext_html" field, or "" */
+    public final String selftextHtml;
+
+    /** First line of the self text as shown under the title, or null if there is none */
+    public final String selftextPreview;
+
+    private SubmissionCard(Submission s) {
+        submission = s;
+        type = ContentType.getContentType(s);
+        JsonNode data = s.getDataNode();
+
+        spoiler = data.has("spoiler") && data.get("spoiler").asBoolean();
+        JsonNode thumb = data.get("thumbnail");
+        thumbnailNull = thumb == null || thumb.isNull();
+        thumbnail = thumbnailNull ? "" : thumb.asText();
+        thumbnailType = thumbnailNull ? Submission.ThumbnailType.NONE : s.getThumbnailType();
+        mediaHidden =
+                data.has("sr_detail")
+                        && data.get("sr_detail").has("show_media")
+                        && !data.get("sr_detail").get("show_media").asBoolean();
+
+        Thumbnails thumbnails = s.getThumbnails();
+        hasSource = thumbnails != null && thumbnails.getSource() != null;
+        if (hasSource) {
+            sourceWidth = thumbnails.getSource().getWidth();
+            sourceHeight = thumbnails.getSource().getHeight();
+            sourceUrl = unescape(thumbnails.getSource().getUrl());
+        } else {
+            sourceWidth = 0;
+            sourceHeight = 0;
+            sourceUrl = null;
+        }
+        Thumbnails.Image[] variations =
+                thumbnails == null || thumbnails.getVariations() == null
+                        ? new Thumbnails.Image[0]
+                        : thumbnails.getVariations();
+        variationUrls = new String[variations.length];
+        for (int i = 0; i < variations.length; i++) {
+            variationUrls[i] = unescape(variations[i].getUrl());
+        }
+
+        JsonNode previewSource = previewSource(data);
+        String previewUrl =
+                previewSource != null && previewSource.has("url")
+                        ? previewSource.get("url").asText()
+                        : null;
+        if (previewUrl != null && previewSource.has("height")) {
+            highQualityUrl = previewUrl;
+        } else if (hasSource) {
+            String raw = thumbnails.getSource().getUrl();
+            highQualityUrl = raw.isEmpty() ? unescape(s.getThumbnail()) : sourceUrl;
+        } else {
+            highQualityUrl = s.getThumbnail();
+        }
+
+        if (previewUrl != null && !previewUrl.isEmpty()) {
+            linkPreviewUrl = previewUrl;
+        } else if (!thumbnailNull
+                && !thumbnail.isEmpty()
+                && !thumbnail.equals("self")
+                && !thumbnail.equals("default")
+                && !thumbnail.equals("nsfw")) {
+            linkPreviewUrl = thumbnail;
+        } else {
+            linkPreviewUrl = null;
+        }
+
+        JsonNode parent = null;
+        if (data.has("crosspost_parent_list")
+                && data.get("crosspost_parent_list").size() > 0
+                && data.get("crosspost_parent_list").get(0) != null) {
+            parent = data.get("crosspost_parent_list").get(0);
+        }
+        String parentPreview = parent == null ? null : imagesPreviewUrl(parent);
+        mediaPreviewUrl = parentPreview != null ? parentPreview : imagesPreviewUrl(data);
+
+        JsonNode galleryNode = parent != null ? parent : data;
+        hasGallery = galleryNode.has("gallery_data");
+        galleryUrl = hasGallery ? galleryUrl(galleryNode) : null;
+
+        crosspostThumbnail = parent == null ? null : parent.get("thumbnail").asText();
+        crosspostPermalink = parent == null ? null : parent.get("permalink").asText();
+
+        selftextHtml = data.has("selftext_html") ? data.get("selftext_html").asText() : "";
+        String trimmed = selftextHtml.trim();
+        if (s.isSelfPost() && !trimmed.isEmpty() && !trimmed.equals("null")) {
+            selftextPreview =
+                    CompatUtil.fromHtml(
+                                    selftextHtml.substring(
+                                            0,
+                                            selftextHtml.contains("\n")
+                                                    ? selftextHtml.indexOf("\n")
+                                                    : selftextHtml.length()))
+                            .toString()
+                            .replace("<sup>", "<sup><small>")
+                            .replace("</sup>", "</small></sup>");
+        } else {
+            selftextPreview = null;
+        }
+    }
+
+    /** Returns the card for s, reading it now if it wasn't built when the page loaded */
+    public static SubmissionCard get(Submission s) {
+        SubmissionCard card = cards.get(s.getFullName());
+        if (card == null || card.submission != s) {
+            card = new SubmissionCard(s);
+            cards.put(s.getFullName(), card);
+        }
+        return card;
+    }
+
+    /** Builds the cards of a page of submissions; call it off the UI thread */
+    public static void cache(List<Submission> submissions) {
+        for (Submission s : submissions) {
+            try {
+                get(s);
+            } catch (Exception e) {
+                // The view reads it again on bind and handles it there
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static String unescape(String url) {
+        return url == null ? null : CompatUtil.fromHtml(url).toString();
+    }
+
+    /** preview.images[0].source, or null */
+    private static JsonNode previewSource(JsonNode node) {
+        JsonNode preview = node.get("preview");
+        if (preview == null || preview.isNull() || !preview.has("images")) {
+            return null;
+        }
+        JsonNode images = preview.get("images");
+        if (images.size() == 0 || !images.get(0).has("source")) {
+            return null;
+        }
+        return images.get(0).get("source");
+    }
+
+    private static String imagesPreviewUrl(JsonNode node) {
+        JsonNode source = previewSource(node);
+        return source == null || !source.has("url") ? null : source.get("url").asText();
+    }
+
+    private static String galleryUrl(JsonNode node) {
+        try {
+            return firstGalleryUrl(node);
+        } catch (Exception e) {
+            LogUtil.e(e, "Error reading gallery data");
+            return null;
+        }
+    }
+
+    private static String firstGalleryUrl(JsonNode node) {
+        if (!node.has("media_metadata")) {
+            return null;
+        }
+        JsonNode items = node.get("gallery_data").get("items");
+        if (items == null || items.isNull() || items.size() == 0) {
+            return null;
+        }
+        JsonNode first = items.get(0);
+        if (first == null || !first.has("media_id")) {
+            return null;
+        }
+        JsonNode media = node.get("media_metadata").get(first.get("media_id").asText());
+        if (media == null || !media.has("s")) {
+            return null;
+        }
+        return media.get("s").get("u").asText().replace("&amp;", "&");
+    }
+}
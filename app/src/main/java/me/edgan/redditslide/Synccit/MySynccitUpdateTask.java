@@ -7,10 +7,35 @@ public class MySynccitUpdateTask extends SynccitUpdateTask {
 
     private static final String MY_DEV_NAME = "slide_for_reddit";
 
+    /** Max links sent to Synccit in one update call */
+    private static final int BATCH_SIZE = 100;
+
     public MySynccitUpdateTask() {
         super(MY_DEV_NAME);
     }
 
+    /**
+     * Without link ids, drains the queued visited ids from {@link SynccitRead} and uploads them
+     * {@link #BATCH_SIZE} at a time. A failed batch is queued again and stops the run.
+     */
+    @Override
+    protected SynccitResponse doInBackground(String... linkIds) {
+        if (linkIds.length > 0) {
+            return super.doInBackground(linkIds);
+        }
+
+        SynccitResponse result = null;
+        String[] batch;
+        while ((batch = SynccitRead.drainNewVisited(BATCH_SIZE)).length > 0) {
+            result = super.doInBackground(batch);
+            if (result == null || !result.isSuccess()) {
+                SynccitRead.requeueNewVisited(batch);
+                break;
+            }
+        }
+        return result;
+    }
+
     @Override
     protected String getUsername() {
         return SettingValues.synccitName;
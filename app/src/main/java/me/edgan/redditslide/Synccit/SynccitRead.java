@@ -1,9 +1,85 @@
 package me.edgan.redditslide.Synccit;
 
-import java.util.ArrayList;
+import me.edgan.redditslide.Authentication;
+import me.edgan.redditslide.SettingValues;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 /** Created by carlo_000 on 2/16/2016. */
 public class SynccitRead {
-    public static ArrayList<String> visitedIds = new ArrayList<>();
-    public static ArrayList<String> newVisited = new ArrayList<>();
+    private static final int MAX_VISITED_IDS = 20000;
+
+    /**
+     * Ids known to be visited, from Synccit and from this device. Bounded so long sessions don't
+     * grow it forever; evicted ids are still in the read history.
+     */
+    public static final Set<String> visitedIds = Collections.synchronizedSet(newBoundedSet());
+
+    /**
+     * Visited ids not yet uploaded to Synccit, only filled while a Synccit name is set. If uploads
+     * keep failing the oldest ids are dropped.
+     */
+    private static final Set<String> newVisited = newBoundedSet();
+
+    /** Visited ids not yet stored on the reddit account, only filled while logged in */
+    private static final Set<String> newAccountVisits = newBoundedSet();
+
+    public static synchronized void addVisited(String id) {
+        visitedIds.add(id);
+        if (SettingValues.synccitName != null && !SettingValues.synccitName.isEmpty()) {
+            newVisited.add(id);
+        }
+        if (Authentication.isLoggedIn) {
+            newAccountVisits.add(id);
+        }
+    }
+
+    /** Removes and returns up to max ids from the Synccit upload queue, oldest first */
+    public static synchronized String[] drainNewVisited(int max) {
+        return drain(newVisited, max);
+    }
+
+    /** Puts ids from a failed Synccit upload back into the queue */
+    public static synchronized void requeueNewVisited(String[] ids) {
+        Collections.addAll(newVisited, ids);
+    }
+
+    public static synchronized boolean hasAccountVisits() {
+        return !newAccountVisits.isEmpty();
+    }
+
+    /** Removes and returns every id waiting to be stored on the reddit account */
+    public static synchronized String[] drainAccountVisits() {
+        return drain(newAccountVisits, newAccountVisits.size());
+    }
+
+    /** Puts ids that failed to be stored on the reddit account back into the queue */
+    public static synchronized void requeueAccountVisits(String[] ids) {
+        Collections.addAll(newAccountVisits, ids);
+    }
+
+    /** An insertion ordered set that drops its oldest ids past {@link #MAX_VISITED_IDS} */
+    private static Set<String> newBoundedSet() {
+        return Collections.newSetFromMap(
+                new LinkedHashMap<String, Boolean>() {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                        return size() > MAX_VISITED_IDS;
+                    }
+                });
+    }
+
+    private static String[] drain(Set<String> queue, int max) {
+        String[] ids = new String[Math.min(max, queue.size())];
+        Iterator<String> it = queue.iterator();
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = it.next();
+            it.remove();
+        }
+        return ids;
+    }
 }
@@ -29,9 +29,11 @@ public class UserTags {
                 .edit()
                 .putString("user-tag" + username.toLowerCase(Locale.ENGLISH), tag)
                 .apply();
+        SubmissionCache.evictAll();
     }
 
     public static void removeUserTag(final String username) {
         Reddit.tags.edit().remove("user-tag" + username.toLowerCase(Locale.ENGLISH)).apply();
+        SubmissionCache.evictAll();
     }
 }
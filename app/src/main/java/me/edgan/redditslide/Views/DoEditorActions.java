@@ -882,6 +882,9 @@ public class DoEditorActions {
         @Override
         protected void onPostExecute(final String result) {
             dialog.dismiss();
+            if (!reportFailures()) {
+                return;
+            }
             try {
                 int[] attrs = {R.attr.fontColor};
                 TypedArray ta =
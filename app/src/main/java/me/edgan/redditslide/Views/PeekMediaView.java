@@ -54,9 +54,9 @@ import java.io.IOException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.dean.jraw.models.Submission;
 
@@ -288,16 +288,17 @@ public class PeekMediaView extends RelativeLayout {
                                     + " document.getElementsByTagName('video')[0].play(); })()");
                     }
 
-                    private Map<String, Boolean> loadedUrls = new HashMap<>();
+                    private Map<String, Boolean> loadedUrls = new ConcurrentHashMap<>();
 
                     @Override
                     public WebResourceResponse shouldInterceptRequest(WebView view, String url) {
+                        Boolean cached = loadedUrls.get(url);
                         boolean ad;
-                        if (!loadedUrls.containsKey(url)) {
+                        if (cached == null) {
                             ad = AdBlocker.isAd(url, getContext());
                             loadedUrls.put(url, ad);
                         } else {
-                            ad = loadedUrls.get(url);
+                            ad = cached;
                         }
                         return ad
                                 ? AdBlocker.createEmptyResource()
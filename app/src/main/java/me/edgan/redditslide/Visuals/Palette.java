@@ -6,6 +6,7 @@ import android.util.TypedValue;
 
 import me.edgan.redditslide.R;
 import me.edgan.redditslide.Reddit;
+import me.edgan.redditslide.SubmissionCache;
 
 import java.util.Locale;
 
@@ -113,10 +114,12 @@ public class Palette {
 
     public static void setColor(final String subreddit, int color) {
         Reddit.colors.edit().putInt(subreddit.toLowerCase(Locale.ENGLISH), color).apply();
+        SubmissionCache.evictAll();
     }
 
     public static void removeColor(final String subreddit) {
         Reddit.colors.edit().remove(subreddit.toLowerCase(Locale.ENGLISH)).apply();
+        SubmissionCache.evictAll();
     }
 
     public static int getColorUser(final String username) {
@@ -130,10 +133,12 @@ public class Palette {
 
     public static void setColorUser(final String username, int color) {
         Reddit.colors.edit().putInt("USER" + username.toLowerCase(Locale.ENGLISH), color).apply();
+        SubmissionCache.evictAll();
     }
 
     public static void removeUserColor(final String username) {
         Reddit.colors.edit().remove("USER" + username.toLowerCase(Locale.ENGLISH)).apply();
+        SubmissionCache.evictAll();
     }
 
     public static int getDarkerColor(String s) {
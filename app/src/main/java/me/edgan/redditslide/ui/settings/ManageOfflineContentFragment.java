@@ -23,6 +23,7 @@ import me.edgan.redditslide.Reddit;
 import me.edgan.redditslide.SettingValues;
 import me.edgan.redditslide.UserSubscriptions;
 import me.edgan.redditslide.Visuals.ColorPreferences;
+import me.edgan.redditslide.util.MediaCacheManager;
 import me.edgan.redditslide.util.NetworkUtil;
 import me.edgan.redditslide.util.StringUtil;
 import me.edgan.redditslide.util.TimeUtils;
@@ -50,13 +51,17 @@ public class ManageOfflineContentFragment {
                             @Override
                             public void onClick(View v) {
                                 boolean wifi = Reddit.cachedData.getBoolean("wifiOnly", false);
+                                boolean charging =
+                                        Reddit.cachedData.getBoolean("chargingOnly", true);
                                 String sync = Reddit.cachedData.getString("toCache", "");
                                 int hour = (Reddit.cachedData.getInt("hour", 0));
                                 int minute = (Reddit.cachedData.getInt("minute", 0));
                                 Reddit.cachedData.edit().clear().apply();
+                                OfflineSubreddit.clearAll();
                                 Reddit.cachedData
                                         .edit()
                                         .putBoolean("wifiOnly", wifi)
+                                        .putBoolean("chargingOnly", charging)
                                         .putString("toCache", sync)
                                         .putInt("hour", hour)
                                         .putInt("minute", minute)
@@ -90,11 +95,29 @@ public class ManageOfflineContentFragment {
                         @Override
                         public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
                             Reddit.cachedData.edit().putBoolean("wifiOnly", isChecked).apply();
+                            rescheduleAutoCache();
+                        }
+                    });
+        }
+        {
+            SwitchCompat single = context.findViewById(R.id.manage_history_charging);
+
+            single.setChecked(Reddit.cachedData.getBoolean("chargingOnly", true));
+            single.setOnCheckedChangeListener(
+                    new CompoundButton.OnCheckedChangeListener() {
+                        @Override
+                        public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                            Reddit.cachedData
+                                    .edit()
+                                    .putBoolean("chargingOnly", isChecked)
+                                    .apply();
+                            rescheduleAutoCache();
                         }
                     });
         }
         updateBackup();
         updateFilters();
+        MediaCacheManager.showUsage(context.findViewById(R.id.manage_history_storage_text));
         final List<String> commentDepths = ImmutableList.of("2", "4", "6", "8", "10");
         final String[] commentDepthArray = new String[commentDepths.size()];
 
@@ -240,7 +263,6 @@ public class ManageOfflineContentFragment {
                                                         .putInt("minute", d.getMinute())
                                                         .commit();
                                                 Reddit.autoCache = new AutoCacheScheduler(context);
-                                                Reddit.autoCache.start();
                                                 updateTime();
                                                 d.dismiss();
                                             }
@@ -255,6 +277,13 @@ public class ManageOfflineContentFragment {
                         });
     }
 
+    /** Applies changed sync constraints to the scheduled job, if there is one */
+    private void rescheduleAutoCache() {
+        if (Reddit.cachedData.contains("toCache")) {
+            Reddit.autoCache = new AutoCacheScheduler(context);
+        }
+    }
+
     public void updateTime() {
         TextView text = context.findViewById(R.id.manage_history_autocache_time);
         Calendar cal = Calendar.getInstance();
@@ -329,7 +358,7 @@ public class ManageOfflineContentFragment {
                                         @Override
                                         public void onClick(View v) {
                                             domains.remove(name);
-                                            Reddit.cachedData.edit().remove(s).apply();
+                                            OfflineSubreddit.removeSnapshot(s);
                                             updateFilters();
                                         }
                                     });
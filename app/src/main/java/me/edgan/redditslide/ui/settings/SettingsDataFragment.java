@@ -9,6 +9,7 @@ import androidx.appcompat.widget.SwitchCompat;
 
 import me.edgan.redditslide.R;
 import me.edgan.redditslide.SettingValues;
+import me.edgan.redditslide.util.MediaCacheManager;
 
 public class SettingsDataFragment {
 
@@ -160,6 +161,22 @@ public class SettingsDataFragment {
                     SettingValues.lqVideos = checked;
                     editSharedBooleanPreference(SettingValues.PREF_LQ_VIDEOS, checked);
                 });
+
+        // ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        final SwitchCompat datasavingDownscaleUploadsSwitch =
+                context.findViewById(R.id.settings_datasaving_downscale_uploads);
+        datasavingDownscaleUploadsSwitch.setChecked(SettingValues.downscaleUploads);
+        datasavingDownscaleUploadsSwitch.setOnCheckedChangeListener(
+                (v, checked) -> {
+                    SettingValues.downscaleUploads = checked;
+                    editSharedBooleanPreference(SettingValues.PREF_DOWNSCALE_UPLOADS, checked);
+                });
+
+        // ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        final TextView cacheUsageView = context.findViewById(R.id.settings_datasaving_cache_text);
+        if (cacheUsageView != null) {
+            MediaCacheManager.showUsage(cacheUsageView);
+        }
     }
 
     private void setImageQualitySettings(boolean mobile, boolean always) {
@@ -215,5 +215,6 @@ public class SettingsFilter extends BaseActivityAnim {
         e.putStringSet(SettingValues.PREF_FLAIR_FILTERS, SettingValues.flairFilters);
         e.putStringSet(SettingValues.PREF_USER_FILTERS, SettingValues.userFilters);
         e.apply();
+        PostMatch.invalidateFilters();
     }
 }
@@ -20,6 +20,7 @@ import androidx.appcompat.widget.SwitchCompat;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 
+import me.edgan.redditslide.ContentType;
 import me.edgan.redditslide.R;
 import me.edgan.redditslide.Reddit;
 import me.edgan.redditslide.SettingValues;
@@ -115,6 +116,7 @@ public class SettingsHandlingFragment implements CompoundButton.OnCheckedChangeL
                                             .toString()
                                             .toLowerCase(Locale.ENGLISH)
                                             .trim());
+                            ContentType.invalidateTypeCache();
                             domainListEditText.setText("");
                             updateFilters();
                         }
@@ -233,6 +235,7 @@ public class SettingsHandlingFragment implements CompoundButton.OnCheckedChangeL
                 accountTextViewRemove.setOnClickListener(
                         v -> {
                             SettingValues.alwaysExternal.remove(s);
+                            ContentType.invalidateTypeCache();
                             updateFilters();
                         });
                 domainListLayout.addView(t);
@@ -8,6 +8,7 @@ import androidx.appcompat.widget.SwitchCompat;
 
 import com.lusfold.androidkeyvaluestore.KVStore;
 
+import me.edgan.redditslide.HistoryStore;
 import me.edgan.redditslide.R;
 import me.edgan.redditslide.SettingValues;
 import me.edgan.redditslide.UserSubscriptions;
@@ -76,6 +77,7 @@ public class SettingsHistoryFragment {
         clearPostsLayout.setOnClickListener(
                 v -> {
                     KVStore.getInstance().clearTable();
+                    HistoryStore.getInstance().clear();
                     showHistoryClearedDialog();
                 });
         // ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
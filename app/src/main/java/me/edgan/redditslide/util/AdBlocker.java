@@ -6,6 +6,8 @@ import android.webkit.WebResourceResponse;
 
 import androidx.annotation.WorkerThread;
 
+import me.edgan.redditslide.R;
+
 import okio.BufferedSource;
 import okio.Okio;
 
@@ -14,8 +16,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by Carlos on 8/12/2016.
@@ -23,60 +26,98 @@ import java.util.Set;
  * <p>Code adapted from http://www.hidroh.com/2016/05/19/hacking-up-ad-blocker-android/
  */
 public class AdBlocker {
-    private static final String DOMAINS_FILE = "adblocksources.txt";
-    private static final Set<String> DOMAINS = new HashSet<>(); // Use hash set for performance
+    /** Blocked domains, published once fully loaded; null until then */
+    private static volatile DomainTrie domains;
+
+    private static final AtomicBoolean loadStarted = new AtomicBoolean();
 
+    /** Starts loading the block list, once per process */
     public static void init(final Context context) {
+        if (!loadStarted.compareAndSet(false, true)) {
+            return;
+        }
+        final Context appContext = context.getApplicationContext();
         new AsyncTask<Void, Void, Void>() {
             @Override
             protected Void doInBackground(Void... voids) {
                 try {
-                    loadFromAssets(context);
+                    domains =
+                            load(appContext.getResources().openRawResource(R.raw.adblocksources));
                 } catch (IOException e) {
+                    // Without the list nothing is blocked, and there's no point in retrying
                     e.printStackTrace();
+                    domains = new DomainTrie();
                 }
                 return null;
             }
-        }.execute();
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
     }
 
+    /** Reads a block list with one domain per line, closing stream */
     @WorkerThread
-    private static void loadFromAssets(Context context) throws IOException {
-        try {
-            InputStream stream = context.getAssets().open(DOMAINS_FILE);
-            BufferedSource buffer = Okio.buffer(Okio.source(stream));
+    public static DomainTrie load(InputStream stream) throws IOException {
+        DomainTrie trie = new DomainTrie();
+        try (BufferedSource buffer = Okio.buffer(Okio.source(stream))) {
             String line;
             while ((line = buffer.readUtf8Line()) != null) {
-                DOMAINS.add(line);
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    trie.add(line.toLowerCase(Locale.ENGLISH));
+                }
             }
-            buffer.close();
-            stream.close();
-        } catch (Exception ignored) {
-
         }
+        return trie;
     }
 
+    /**
+     * Returns whether url is on a blocked domain or a subdomain of one. Always false until the
+     * list has loaded.
+     */
     public static boolean isAd(String url, Context context) {
-        init(context);
+        DomainTrie trie = domains;
+        if (trie == null) {
+            init(context);
+            return false;
+        }
         try {
             String host = new URL(url).getHost();
-            return host != null && hostMatches(host);
+            return host != null && trie.matches(host.toLowerCase(Locale.ENGLISH), "");
         } catch (MalformedURLException e) {
             e.printStackTrace();
         }
         return false;
     }
 
-    private static boolean hostMatches(String host) {
-        if (host.isEmpty()) return false;
-        int firstPeriod = host.indexOf(".");
-        return DOMAINS.contains(host)
-                || firstPeriod + 1 < host.length()
-                        && DOMAINS.contains(host.substring(firstPeriod + 1));
-    }
-
     public static WebResourceResponse createEmptyResource() {
         return new WebResourceResponse(
                 "text/plain", "utf-8", new ByteArrayInputStream("".getBytes()));
     }
+
+    /** Blocked and allowed request counts of the page loaded in a web view */
+    public static class PageStats {
+        private final AtomicInteger blocked = new AtomicInteger();
+        private final AtomicInteger allowed = new AtomicInteger();
+
+        public void count(boolean ad) {
+            (ad ? blocked : allowed).incrementAndGet();
+        }
+
+        public void reset() {
+            blocked.set(0);
+            allowed.set(0);
+        }
+
+        public int getBlocked() {
+            return blocked.get();
+        }
+
+        public int getAllowed() {
+            return allowed.get();
+        }
+
+        @Override
+        public String toString() {
+            return "Blocked " + blocked.get() + " of " + (blocked.get() + allowed.get());
+        }
+    }
 }
@@ -0,0 +1,219 @@
+package me.edgan.redditslide.util;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSource;
+import com.google.android.exoplayer2.source.dash.manifest.AdaptationSet;
+import com.google.android.exoplayer2.source.dash.manifest.DashManifest;
+import com.google.android.exoplayer2.source.dash.manifest.DashManifestParser;
+import com.google.android.exoplayer2.source.dash.manifest.Representation;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSourceInputStream;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.util.MimeTypes;
+
+import me.edgan.redditslide.R;
+import me.edgan.redditslide.Reddit;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Saves a v.redd.it DASH video into a single mp4. The best video and the audio representation are
+ * read at the same time through the video cache, so whatever the player already loaded isn't
+ * downloaded again, and are muxed once into temp files of their own so saves can run side by
+ * side. Nothing is written to the video cache, so saving doesn't push out the player's videos.
+ */
+public class DashVideoSaver {
+    public interface ProgressListener {
+        void onProgress(int percent);
+    }
+
+    private static final ExecutorService TRACKS = Executors.newCachedThreadPool();
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final Context context;
+    private final DataSource.Factory dataSourceFactory;
+    private final ProgressListener listener;
+
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong bytesTotal = new AtomicLong();
+    private volatile int lastPercent = -1;
+
+    public DashVideoSaver(Context context, ProgressListener listener) {
+        this.context = context;
+        this.listener = listener;
+        DataSource.Factory downloader =
+                new OkHttpDataSource.Factory(Reddit.client)
+                        .setUserAgent(context.getString(R.string.app_name));
+        dataSourceFactory =
+                new CacheDataSource.Factory()
+                        .setCache(Reddit.videoCache)
+                        .setUpstreamDataSourceFactory(downloader)
+                        // Read only, so a save doesn't copy the video into the player's cache
+                        .setCacheWriteDataSinkFactory(null)
+                        .setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR);
+    }
+
+    /**
+     * Downloads and muxes the video described by the manifest at manifestUrl
+     *
+     * @return a temp file in the cache dir holding the video, to be deleted by the caller
+     */
+    public File save(String manifestUrl) throws IOException {
+        Uri manifestUri = Uri.parse(manifestUrl);
+        DashManifest manifest;
+        try (InputStream in =
+                new DataSourceInputStream(
+                        dataSourceFactory.createDataSource(), new DataSpec(manifestUri))) {
+            manifest = new DashManifestParser().parse(manifestUri, in);
+        }
+
+        // Highest bitrate video and any audio
+        String videoUrl = null;
+        String audioUrl = null;
+        int maxBitrate = 0;
+        for (int i = 0; i < manifest.getPeriodCount(); i++) {
+            for (AdaptationSet as : manifest.getPeriod(i).adaptationSets) {
+                for (Representation r : as.representations) {
+                    if (MimeTypes.isAudio(r.format.sampleMimeType)) {
+                        audioUrl = r.baseUrls.get(0).url;
+                    } else if (r.format.bitrate > maxBitrate) {
+                        maxBitrate = r.format.bitrate;
+                        videoUrl = r.baseUrls.get(0).url;
+                    }
+                }
+            }
+        }
+        if (videoUrl == null) {
+            throw new IOException("Could not find video stream in DASH manifest");
+        }
+
+        File dir = context.getCacheDir();
+        File video = File.createTempFile("save_video", ".mp4", dir);
+        File audio = audioUrl == null ? null : File.createTempFile("save_audio", ".mp4", dir);
+        boolean keepVideo = false;
+        try {
+            Future<?> audioDownload = null;
+            if (audio != null) {
+                final String url = audioUrl;
+                audioDownload =
+                        TRACKS.submit(
+                                () -> {
+                                    download(url, audio);
+                                    return null;
+                                });
+            }
+            try {
+                download(videoUrl, video);
+            } catch (IOException e) {
+                if (audioDownload != null) {
+                    audioDownload.cancel(true);
+                }
+                throw e;
+            }
+
+            if (audioDownload == null) {
+                keepVideo = true;
+                return video;
+            }
+            await(audioDownload);
+
+            File output = File.createTempFile("save_output", ".mp4", dir);
+            if (!GifUtils.mux(
+                    video.getAbsolutePath(), audio.getAbsolutePath(), output.getAbsolutePath())) {
+                output.delete();
+                throw new IOException("Failed to mux video and audio");
+            }
+            return output;
+        } finally {
+            if (!keepVideo) {
+                video.delete();
+            }
+            if (audio != null) {
+                audio.delete();
+            }
+        }
+    }
+
+    /** Copies file into the document at destination through file channels */
+    public static void copyTo(Context context, File file, Uri destination) throws IOException {
+        try (ParcelFileDescriptor pfd =
+                context.getContentResolver().openFileDescriptor(destination, "w")) {
+            if (pfd == null) {
+                throw new FileNotFoundException(destination.toString());
+            }
+            try (FileChannel in = new FileInputStream(file).getChannel();
+                    FileChannel out = new FileOutputStream(pfd.getFileDescriptor()).getChannel()) {
+                long size = in.size();
+                long position = 0;
+                while (position < size) {
+                    position += in.transferTo(position, size - position, out);
+                }
+            }
+        }
+    }
+
+    private void download(String url, File file) throws IOException {
+        DataSource source = dataSourceFactory.createDataSource();
+        try (OutputStream out = new FileOutputStream(file)) {
+            long length = source.open(new DataSpec(Uri.parse(url)));
+            if (length != C.LENGTH_UNSET) {
+                bytesTotal.addAndGet(length);
+            }
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = source.read(buffer, 0, buffer.length)) != C.RESULT_END_OF_INPUT) {
+                if (Thread.interrupted()) {
+                    throw new IOException("Download cancelled");
+                }
+                out.write(buffer, 0, read);
+                onRead(read);
+            }
+        } finally {
+            source.close();
+        }
+    }
+
+    private void onRead(int count) {
+        long read = bytesRead.addAndGet(count);
+        long total = bytesTotal.get();
+        if (listener == null || total <= 0) {
+            return;
+        }
+        int percent = (int) Math.min(99, read * 100 / total);
+        if (percent > lastPercent) {
+            lastPercent = percent;
+            listener.onProgress(percent);
+        }
+    }
+
+    private static void await(Future<?> task) throws IOException {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading audio", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
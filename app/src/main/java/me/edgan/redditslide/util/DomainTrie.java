@@ -0,0 +1,98 @@
+package me.edgan.redditslide.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Trie of domains keyed by host label from the top level down, so looking up a host costs one
+ * step per label however many domains are stored. A stored domain matches its own host and every
+ * subdomain of it, with the same label boundaries as {@link
+ * me.edgan.redditslide.ContentType#hostContains}. A domain can be limited to paths that start
+ * with a prefix.
+ */
+public final class DomainTrie {
+    private static final class Node {
+        final HashMap<String, Node> children = new HashMap<>();
+
+        /** Matches any path */
+        boolean whole;
+
+        /** Matches paths starting with one of these, unless whole is set */
+        ArrayList<String> pathPrefixes;
+    }
+
+    private final Node root = new Node();
+    private boolean empty = true;
+
+    /** Adds a host, such as "example.com", that matches on any path */
+    public void add(String host) {
+        Node node = getOrCreate(host);
+        if (node != null) {
+            node.whole = true;
+        }
+    }
+
+    /** Adds a host that only matches paths starting with pathPrefix */
+    public void add(String host, String pathPrefix) {
+        Node node = getOrCreate(host);
+        if (node != null) {
+            if (node.pathPrefixes == null) {
+                node.pathPrefixes = new ArrayList<>();
+            }
+            node.pathPrefixes.add(pathPrefix);
+        }
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /** Returns whether the host, or a parent domain of it, was added with a matching path */
+    public boolean matches(String host, String path) {
+        if (host == null || host.isEmpty()) {
+            return false;
+        }
+        Node node = root;
+        int end = host.length();
+        while (end >= 0) {
+            int start = host.lastIndexOf('.', end - 1);
+            node = node.children.get(host.substring(start + 1, end));
+            if (node == null) {
+                return false;
+            }
+            if (node.whole) {
+                return true;
+            }
+            if (node.pathPrefixes != null) {
+                for (String prefix : node.pathPrefixes) {
+                    if (path.startsWith(prefix)) {
+                        return true;
+                    }
+                }
+            }
+            end = start;
+        }
+        return false;
+    }
+
+    private Node getOrCreate(String host) {
+        if (host == null || host.isEmpty()) {
+            return null;
+        }
+        Node node = root;
+        int end = host.length();
+        while (end >= 0) {
+            int start = host.lastIndexOf('.', end - 1);
+            String label = host.substring(start + 1, end);
+            Node child = node.children.get(label);
+            if (child == null) {
+                child = new Node();
+                node.children.put(label, child);
+            }
+            node = child;
+            end = start;
+        }
+        empty = false;
+        return node;
+    }
+}
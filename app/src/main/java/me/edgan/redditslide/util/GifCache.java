@@ -16,14 +16,17 @@ import java.net.URL;
 /** Created by carlo_000 on 5/5/2016. */
 public class GifCache {
 
-    public static long discCacheSize = 100000000L; // 100mb
     public static DiskCache discCache;
 
     public static void init(Context c) {
-        File dir = ImageLoaderUtils.getCacheDirectoryGif(c);
+        File dir = MediaCacheManager.getDirectory(c, MediaCacheManager.Kind.GIFS);
         try {
             dir.mkdir();
-            discCache = new LruDiskCache(dir, new Md5FileNameGenerator(), discCacheSize);
+            discCache =
+                    new LruDiskCache(
+                            dir,
+                            new Md5FileNameGenerator(),
+                            MediaCacheManager.getQuota(MediaCacheManager.Kind.GIFS));
             ((LruDiskCache) discCache).setBufferSize(5 * 1024);
 
         } catch (IOException e) {
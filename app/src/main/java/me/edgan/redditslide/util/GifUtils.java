@@ -23,9 +23,7 @@ import androidx.core.app.NotificationCompat;
 import androidx.core.content.ContextCompat;
 import androidx.documentfile.provider.DocumentFile;
 
-import android.os.SystemClock;
 import okhttp3.FormBody;
-import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.android.exoplayer2.Player;
 import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSource;
@@ -38,8 +36,6 @@ import com.google.android.exoplayer2.upstream.DataSourceInputStream;
 import com.google.android.exoplayer2.upstream.DataSpec;
 import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
 import com.google.android.exoplayer2.util.MimeTypes;
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
 
 import me.edgan.redditslide.Activities.MediaView;
 import me.edgan.redditslide.Activities.Website;
@@ -66,8 +62,6 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
@@ -81,7 +75,6 @@ import android.media.MediaMuxer;
 import android.media.MediaCodec;
 import android.media.MediaCodec.BufferInfo;
 
-import java.io.FileInputStream;
 import org.apache.commons.io.IOUtils;
 
 /** GIF handling utilities */
@@ -248,17 +241,31 @@ public class GifUtils {
             showFirstDialog(activity);
         } else {
             new AsyncTask<Void, Integer, DocumentFile>() {
-                NotificationManager notifMgr =
+                final NotificationManager notifMgr =
                         ContextCompat.getSystemService(activity, NotificationManager.class);
+                final int notifId = (int) System.currentTimeMillis();
+                NotificationCompat.Builder notifBuilder;
                 Exception saveError;
 
+                @Override
+                protected void onPreExecute() {
+                    if (save && notifMgr != null) {
+                        notifBuilder =
+                                new NotificationCompat.Builder(activity, Reddit.CHANNEL_IMG)
+                                        .setContentTitle(
+                                                activity.getString(R.string.mediaview_notif_video))
+                                        .setContentText(
+                                                activity.getString(R.string.mediaview_notif_text))
+                                        .setSmallIcon(R.drawable.ic_save)
+                                        .setProgress(100, 0, true);
+                        notifMgr.notify(notifId, notifBuilder.build());
+                    }
+                }
+
                 @Override
                 protected DocumentFile doInBackground(Void... voids) {
-                    NotificationManager notifMgr =
-                            ContextCompat.getSystemService(activity, NotificationManager.class);
-                    Exception saveError;
-                    InputStream in = null;
-                    OutputStream out = null;
+                    DocumentFile outDocFile = null;
+                    File muxed = null;
 
                     try {
                         Log.d("GifUtils", "Starting save process for URI: " + uri);
@@ -268,6 +275,8 @@ public class GifUtils {
                             return null;
                         }
 
+                        // Only finding the folder and creating the file is serialized, the
+                        // downloads of concurrent saves run side by side
                         synchronized (DIRECTORY_LOCK) {
                             // Create subreddit subfolder if needed
                             if (SettingValues.imageSubfolders && !subreddit.isEmpty()) {
@@ -313,168 +322,72 @@ public class GifUtils {
                             String fileName =
                                     FileUtil.getValidFileName(submissionTitle, "", ".mp4");
                             Log.d("GifUtils", "Creating output file: " + fileName);
-                            DocumentFile outDocFile = parentDir.createFile("video/mp4", fileName);
+                            outDocFile = parentDir.createFile("video/mp4", fileName);
                             if (outDocFile == null) {
                                 saveError = new Exception("Could not create output file");
                                 return null;
                             }
+                        }
 
-                            // Open output stream first to ensure we have write access
-                            out = activity.getContentResolver().openOutputStream(outDocFile.getUri());
-                            if (out == null) {
-                                saveError = new Exception("Could not open output stream");
-                                return null;
-                            }
-
-                            String urlStr = uri.toString();
-                            if (urlStr.contains("v.redd.it") && urlStr.contains("DASHPlaylist.mpd")) {
-                                // Handle DASH video
-                                DataSource.Factory downloader = new OkHttpDataSource.Factory(Reddit.client)
-                                        .setUserAgent(activity.getString(R.string.app_name));
-                                DataSource.Factory cacheDataSourceFactory = new CacheDataSource.Factory()
-                                        .setCache(Reddit.videoCache)
-                                        .setUpstreamDataSourceFactory(downloader);
-
-                                InputStream dashManifestStream = new DataSourceInputStream(
-                                        cacheDataSourceFactory.createDataSource(),
-                                        new DataSpec(Uri.parse(urlStr)));
-
-                                DashManifest dashManifest = new DashManifestParser().parse(Uri.parse(urlStr), dashManifestStream);
-                                dashManifestStream.close();
-
-                                // Find highest quality video URL and audio URL
-                                String videoUrl = null;
-                                String audioUrl = null;
-                                int maxBitrate = 0;
-
-                                for (int i = 0; i < dashManifest.getPeriodCount(); i++) {
-                                    for (AdaptationSet as : dashManifest.getPeriod(i).adaptationSets) {
-                                        for (Representation r : as.representations) {
-                                            if (MimeTypes.isAudio(r.format.sampleMimeType)) {
-                                                audioUrl = r.baseUrls.get(0).url.toString();
-                                            } else if (r.format.bitrate > maxBitrate) {
-                                                maxBitrate = r.format.bitrate;
-                                                videoUrl = r.baseUrls.get(0).url.toString();
-                                            }
-                                        }
-                                    }
-                                }
-
-                                if (videoUrl == null) {
-                                    saveError = new Exception("Could not find video stream in DASH manifest");
-                                    return null;
-                                }
-
-                                // Create temporary files for video and audio
-                                File videoFile = new File(activity.getCacheDir(), "temp_video.mp4");
-                                File audioFile = audioUrl != null ? new File(activity.getCacheDir(), "temp_audio.mp4") : null;
-                                File outputFile = new File(activity.getCacheDir(), "temp_output.mp4");
-
-                                // Download video
-                                Request videoRequest = new Request.Builder().url(videoUrl).build();
-                                Response videoResponse = Reddit.client.newCall(videoRequest).execute();
+                        String urlStr = uri.toString();
+                        if (urlStr.contains("v.redd.it") && urlStr.contains("DASHPlaylist.mpd")) {
+                            // Handle DASH video
+                            DashVideoSaver saver =
+                                    new DashVideoSaver(
+                                            activity, percent -> publishProgress(percent));
+                            muxed = saver.save(urlStr);
+                            DashVideoSaver.copyTo(activity, muxed, outDocFile.getUri());
+                        } else {
+                            Request videoRequest = new Request.Builder().url(urlStr).build();
+                            try (Response videoResponse =
+                                    Reddit.client.newCall(videoRequest).execute()) {
                                 if (!videoResponse.isSuccessful()) {
-                                    saveError = new Exception("Failed to download video: " + videoResponse);
-                                    return null;
-                                }
-                                FileOutputStream videoOut = new FileOutputStream(videoFile);
-                                IOUtils.copy(videoResponse.body().byteStream(), videoOut);
-                                videoOut.close();
-
-                                // Download audio if available
-                                if (audioUrl != null) {
-                                    Request audioRequest = new Request.Builder().url(audioUrl).build();
-                                    Response audioResponse = Reddit.client.newCall(audioRequest).execute();
-                                    if (!audioResponse.isSuccessful()) {
-                                        saveError = new Exception("Failed to download audio: " + audioResponse);
-                                        return null;
-                                    }
-                                    FileOutputStream audioOut = new FileOutputStream(audioFile);
-                                    IOUtils.copy(audioResponse.body().byteStream(), audioOut);
-                                    audioOut.close();
-                                }
-
-                                // Mux video and audio if needed
-                                boolean muxSuccess;
-                                if (audioFile != null) {
-                                    muxSuccess = mux(videoFile.getAbsolutePath(), audioFile.getAbsolutePath(), outputFile.getAbsolutePath());
-                                } else {
-                                    // Just copy video file if no audio
-                                    try (FileInputStream fis = new FileInputStream(videoFile);
-                                         FileOutputStream fos = new FileOutputStream(outputFile)) {
-                                        byte[] buffer = new byte[8192];
-                                        int bytesRead;
-                                        while ((bytesRead = fis.read(buffer)) != -1) {
-                                            fos.write(buffer, 0, bytesRead);
-                                        }
-                                    }
-                                    muxSuccess = true;
-                                }
-
-                                if (!muxSuccess) {
-                                    saveError = new Exception("Failed to mux video and audio");
-                                    return null;
+                                    throw new IOException(
+                                            "Failed to download video: " + videoResponse);
                                 }
-
-                                // Copy final file to destination using streams
-                                try (FileInputStream fis = new FileInputStream(outputFile)) {
-                                    byte[] buffer = new byte[8192];
-                                    int bytesRead;
-                                    while ((bytesRead = fis.read(buffer)) != -1) {
-                                        out.write(buffer, 0, bytesRead);
+                                try (OutputStream out =
+                                        activity.getContentResolver()
+                                                .openOutputStream(outDocFile.getUri())) {
+                                    if (out == null) {
+                                        throw new IOException("Could not open output stream");
                                     }
-                                    out.flush();
-                                }
-
-                                // Cleanup temp files
-                                videoFile.delete();
-                                if (audioFile != null) audioFile.delete();
-                                outputFile.delete();
-
-                            } else {
-                                // Handle non-DASH video as before
-                                Request videoRequest = new Request.Builder().url(urlStr).build();
-                                Response videoResponse = Reddit.client.newCall(videoRequest).execute();
-
-                                if (!videoResponse.isSuccessful()) {
-                                    saveError = new Exception("Failed to download video: " + videoResponse);
-                                    return null;
-                                }
-
-                                // Copy response to output using streams
-                                in = videoResponse.body().byteStream();
-                                byte[] buffer = new byte[8192];
-                                int bytesRead;
-                                while ((bytesRead = in.read(buffer)) != -1) {
-                                    out.write(buffer, 0, bytesRead);
+                                    IOUtils.copyLarge(
+                                            videoResponse.body().byteStream(),
+                                            out,
+                                            new byte[64 * 1024]);
                                 }
-                                out.flush();
                             }
-
-                            return outDocFile;
                         }
+
+                        return outDocFile;
                     } catch (Exception e) {
                         LogUtil.e(e, "Error saving video");
                         saveError = e;
+                        if (outDocFile != null) {
+                            outDocFile.delete();
+                        }
                         return null;
                     } finally {
-                        try {
-                            if (in != null) in.close();
-                        } catch (IOException e) {
-                            LogUtil.e(e, "Error closing input stream");
-                        }
-                        try {
-                            if (out != null) out.close();
-                        } catch (IOException e) {
-                            LogUtil.e(e, "Error closing output stream");
+                        if (muxed != null) {
+                            muxed.delete();
                         }
                     }
                 }
 
+                @Override
+                protected void onProgressUpdate(Integer... values) {
+                    if (notifBuilder != null) {
+                        notifBuilder.setProgress(100, values[0], false);
+                        notifMgr.notify(notifId, notifBuilder.build());
+                    }
+                }
+
                 @Override
                 protected void onPostExecute(DocumentFile result) {
                     if (save) {
-                        notifMgr.cancel(1);
+                        if (notifMgr != null) {
+                            notifMgr.cancel(notifId);
+                        }
                         if (result != null) {
                             doNotifGif(result, activity);
                         } else {
@@ -574,14 +487,6 @@ public class GifUtils {
             video.stop();
         }
 
-        @Override
-        protected void onPreExecute() {
-            super.onPreExecute();
-            gson = new Gson();
-        }
-
-        Gson gson;
-
         public enum VideoType {
             IMGUR,
             STREAMABLE,
@@ -679,105 +584,14 @@ public class GifUtils {
             return map;
         }
 
-        /**
-         * Get an API response for a given host and gfy name
-         *
-         * @param host the host to send the req to
-         * @param name the name of the gfy
-         * @return the result
-         */
-        JsonObject getApiResponse(String host, String name) {
-            String domain = "api." + host + ".com";
-            String gfycatUrl = "https://" + domain + "/v1/gfycats" + name;
-
-            return HttpUtil.getJsonObject(client, gson, gfycatUrl, makeHeaderMap(domain));
-        }
-
-        /**
-         * Get the correct mp4/mobile url from a given result JsonObject
-         *
-         * @param result the result to check
-         * @return the video url
-         */
-        String getUrlFromApi(JsonObject result) {
-            if (!SettingValues.hqgif && result.getAsJsonObject("gfyItem").has("mobileUrl")) {
-                return result.getAsJsonObject("gfyItem").get("mobileUrl").getAsString();
-            } else {
-                return result.getAsJsonObject("gfyItem").get("mp4Url").getAsString();
-            }
-        }
-
         OkHttpClient client = Reddit.client;
 
-        private static final AtomicReference<AuthToken> TOKEN = new AtomicReference<>(new AuthToken("", 0));
-
-        private static class AuthToken {
-            @NonNull public final String token;
-            private final long expireAt;
-
-            private AuthToken(@NonNull String token, final long expireAt) {
-                this.token = token;
-                this.expireAt = expireAt;
-            }
-
-            public static AuthToken expireIn1day(@NonNull String token) {
-                // 23 not 24 to give an hour leeway
-                long expireTime = 1000 * 60 * 60 * 23;
-                return new AuthToken(token, SystemClock.uptimeMillis() + expireTime);
-            }
-
-            public boolean isValid() {
-                return !token.isEmpty() && expireAt > SystemClock.uptimeMillis();
-            }
-        }
-
-
-        private AuthToken getNewToken(OkHttpClient client) throws IOException {
-            Request tokenRequest = new Request.Builder()
-                .url("https://api.redgifs.com/v2/auth/temporary")
-                .get()
-                .build();
-            Response tokenResponse = client.newCall(tokenRequest).execute();
-            JsonObject tokenResult = gson.fromJson(tokenResponse.body().string(), JsonObject.class);
-            String accessToken = tokenResult.get("token").getAsString();
-            AuthToken newToken = AuthToken.expireIn1day(accessToken);
-            TOKEN.set(newToken);
-            return newToken;
-        }
-
-        private Response makeApiCall(OkHttpClient client, String name, AuthToken currentToken) throws IOException {
-            Request request = new Request.Builder()
-                .url("https://api.redgifs.com/v2/gifs/" + name)
-                .header("Authorization", "Bearer " + currentToken.token)
-                .build();
-            return client.newCall(request).execute();
-        }
-
-        Uri loadRedGifs(String name, String fullUrl) {
+        Uri loadRedGifs(String fullUrl) {
             showProgressBar(c, progressBar, true);
 
-            // Remove leading slash if present
-            if (name.startsWith("/")) name = name.substring(1);
-
             try {
-                // Check if existing token is valid
-                AuthToken currentToken = TOKEN.get();
-                if (!currentToken.isValid()) {
-                    currentToken = getNewToken(client);
-                }
-
-                // Call RedGifs API with token
-                Response response = makeApiCall(client, name, currentToken);
-
-                // If we get a 401, try once more with a new token
-                if (response.code() == 401) {
-                    currentToken = getNewToken(client);
-                    response = makeApiCall(client, name, currentToken);
-                }
-
-                // Process the response
-                JsonObject result = gson.fromJson(response.body().string(), JsonObject.class);
-                if (result == null || !result.has("gif")) {
+                String url = MediaUrlResolver.resolve(fullUrl);
+                if (url == null) {
                     onError();
                     if (closeIfNull) {
                         c.runOnUiThread(() -> {
@@ -786,11 +600,6 @@ public class GifUtils {
                     }
                     return null;
                 }
-
-                JsonObject gif = result.getAsJsonObject("gif");
-                String url = !SettingValues.hqgif && gif.getAsJsonObject("urls").has("sd") ?
-                    gif.getAsJsonObject("urls").get("sd").getAsString() :
-                    gif.getAsJsonObject("urls").get("hd").getAsString();
                 return Uri.parse(url);
             } catch (Exception e) {
                 LogUtil.e(e, "Error loading RedGifs video url = [" + fullUrl + "]");
@@ -805,46 +614,13 @@ public class GifUtils {
         /**
          * Load the correct URL for a gfycat gif
          *
-         * @param name Name of the gfycat gif
          * @param fullUrl full URL to the gfycat
-         * @param gson
          * @return Correct URL
          */
-        Uri loadGfycat(String name, String fullUrl, Gson gson) {
+        Uri loadGfycat(String fullUrl) throws IOException {
             showProgressBar(c, progressBar, true);
-            String host = "gfycat";
-            if (fullUrl.contains("redgifs")) {
-                host = "redgifs";
-            }
-            if (!name.startsWith("/")) name = "/" + name;
-            if (name.contains("-")) {
-                name = name.split("-")[0];
-            }
-            final JsonObject result = getApiResponse(host, name);
-            if (result == null
-                    || result.get("gfyItem") == null
-                    || result.getAsJsonObject("gfyItem").get("mp4Url").isJsonNull()) {
-                // If the result null, the gfycat link may be redirecting to gifdeliverynetwork
-                // which is powered by redgifs.
-                // Try getting the redirected url from gfycat and check if redirected url is
-                // gifdeliverynetwork and if it is,
-                // we fetch the actual .mp4/.webm url from the redgifs api
-                if (result == null) {
-                    try {
-                        URL newUrl = new URL(fullUrl);
-                        HttpURLConnection ucon = (HttpURLConnection) newUrl.openConnection();
-                        ucon.setInstanceFollowRedirects(false);
-                        String secondURL = new URL(ucon.getHeaderField("location")).toString();
-                        if (secondURL.contains("gifdeliverynetwork")) {
-                            return Uri.parse(
-                                    getUrlFromApi(getApiResponse("redgifs", name.toLowerCase())));
-                        }
-
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                }
-
+            String url = MediaUrlResolver.resolve(fullUrl);
+            if (url == null) {
                 onError();
                 if (closeIfNull) {
                     c.runOnUiThread(
@@ -876,7 +652,7 @@ public class GifUtils {
                 return null;
             }
 
-            return Uri.parse(getUrlFromApi(result));
+            return Uri.parse(url);
         }
 
         // Handles failures of loading a DASH mp4 or muxing a Reddit video
@@ -908,7 +684,6 @@ public class GifUtils {
         @Override
         protected Uri doInBackground(String... sub) {
             MediaView.didLoadGif = false;
-            Gson gson = new Gson();
             final String url = formatUrl(sub[0]);
             VideoType videoType = getVideoType(url);
             LogUtil.v(url + ", VideoType: " + videoType);
@@ -921,7 +696,7 @@ public class GifUtils {
                     String redgifsUrl = "https://api.redgifs.com/v2/gifs/" + id;
 
                     try {
-                        Uri uri = loadRedGifs(id, url);
+                        Uri uri = loadRedGifs(url);
                         return uri;
                     } catch (Exception e) {
                         LogUtil.e(
@@ -942,7 +717,7 @@ public class GifUtils {
                     // Check if resolved gfycat link is gifdeliverynetwork. If it is
                     // gifdeliverynetwork, open the link externally
                     try {
-                        Uri uri = loadGfycat(name, url, gson);
+                        Uri uri = loadGfycat(url);
                         if (uri.toString().contains("gifdeliverynetwork")) {
                             openWebsite(url);
                             return null;
@@ -993,16 +768,9 @@ public class GifUtils {
                 case STREAMABLE:
                     String hash = url.substring(url.lastIndexOf("/") + 1);
                     String streamableUrl = "https://api.streamable.com/videos/" + hash;
-                    LogUtil.v(streamableUrl);
                     try {
-                        final JsonObject result =
-                                HttpUtil.getJsonObject(client, gson, streamableUrl);
-                        String obj;
-                        if (result == null
-                                || result.get("files") == null
-                                || !(result.getAsJsonObject("files").has("mp4")
-                                        || result.getAsJsonObject("files").has("mp4-mobile"))) {
-
+                        String obj = MediaUrlResolver.resolve(url);
+                        if (obj == null) {
                             onError();
                             if (closeIfNull) {
                                 c.runOnUiThread(
@@ -1022,36 +790,6 @@ public class GifUtils {
                                         });
                             }
                         } else {
-                            if (result.getAsJsonObject()
-                                            .get("files")
-                                            .getAsJsonObject()
-                                            .has("mp4-mobile")
-                                    && !result.getAsJsonObject()
-                                            .get("files")
-                                            .getAsJsonObject()
-                                            .get("mp4-mobile")
-                                            .getAsJsonObject()
-                                            .get("url")
-                                            .getAsString()
-                                            .isEmpty()) {
-                                obj =
-                                        result.getAsJsonObject()
-                                                .get("files")
-                                                .getAsJsonObject()
-                                                .get("mp4-mobile")
-                                                .getAsJsonObject()
-                                                .get("url")
-                                                .getAsString();
-                            } else {
-                                obj =
-                                        result.getAsJsonObject()
-                                                .get("files")
-                                                .getAsJsonObject()
-                                                .get("mp4")
-                                                .getAsJsonObject()
-                                                .get("url")
-                                                .getAsString();
-                            }
                             return Uri.parse(obj);
                         }
                     } catch (Exception e) {
@@ -1310,7 +1048,7 @@ public class GifUtils {
      * @param outputFile Output file path
      * @return Whether the muxing completed successfully
      */
-    private static boolean mux(String videoFile, String audioFile, String outputFile) {
+    static boolean mux(String videoFile, String audioFile, String outputFile) {
         MediaMuxer muxer = null;
         MediaExtractor videoExtractor = null;
         MediaExtractor audioExtractor = null;
@@ -3,22 +3,32 @@ package me.edgan.redditslide.util;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.os.Environment;
+import android.os.SystemClock;
 
 import com.nostra13.universalimageloader.cache.disc.DiskCache;
 import com.nostra13.universalimageloader.cache.disc.impl.UnlimitedDiskCache;
 import com.nostra13.universalimageloader.cache.disc.impl.ext.LruDiskCache;
 import com.nostra13.universalimageloader.cache.disc.naming.Md5FileNameGenerator;
+import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.LruMemoryCache;
 import com.nostra13.universalimageloader.core.DisplayImageOptions;
 import com.nostra13.universalimageloader.core.ImageLoader;
 import com.nostra13.universalimageloader.core.ImageLoaderConfiguration;
 import com.nostra13.universalimageloader.core.assist.ImageScaleType;
+import com.nostra13.universalimageloader.core.decode.BaseImageDecoder;
+import com.nostra13.universalimageloader.core.decode.ImageDecodingInfo;
 import com.nostra13.universalimageloader.core.display.FadeInBitmapDisplayer;
+import com.nostra13.universalimageloader.utils.IoUtils;
 
+import me.edgan.redditslide.BuildConfig;
 import me.edgan.redditslide.SettingValues;
 import me.edgan.redditslide.Views.SubsamplingScaleImageView;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
 
 /** Created by carlo_000 on 10/19/2015. */
 /*Adapted from https://github.com/Kennyc1012/Opengur */
@@ -28,6 +38,16 @@ public class ImageLoaderUtils {
     public static ImageLoaderUnescape imageLoader;
     public static DisplayImageOptions options;
 
+    private static final int THREAD_POOL_SIZE = 4;
+
+    /** How many decodes between the stats logged in debug builds */
+    private static final int STATS_INTERVAL = 100;
+
+    private static final AtomicLong memoryHits = new AtomicLong();
+    private static final AtomicLong memoryMisses = new AtomicLong();
+    private static final AtomicLong decodes = new AtomicLong();
+    private static final AtomicLong decodeMillis = new AtomicLong();
+
     private ImageLoaderUtils() {}
 
     public static File getCacheDirectory(Context context) {
@@ -38,30 +58,11 @@ public class ImageLoaderUtils {
         return context.getCacheDir();
     }
 
-    public static File getCacheDirectoryGif(Context context) {
-        if (Environment.getExternalStorageState().equals(Environment.MEDIA_MOUNTED)
-                && context.getExternalCacheDir() != null) {
-            return new File(context.getExternalCacheDir() + File.separator + "gifs");
-        }
-        return new File(context.getCacheDir() + File.separator + "gifs");
-    }
-
     public static void initImageLoader(Context context) {
-        long discCacheSize = 1024 * 1024;
-        DiskCache discCache;
-        File dir = getCacheDirectory(context);
-        discCacheSize *= 100;
-        int threadPoolSize = 7;
-        if (discCacheSize > 0) {
-            try {
-                dir.mkdir();
-                discCache = new LruDiskCache(dir, new Md5FileNameGenerator(), discCacheSize);
-            } catch (IOException e) {
-                discCache = new UnlimitedDiskCache(dir);
-            }
-        } else {
-            discCache = new UnlimitedDiskCache(dir);
-        }
+        DiskCache discCache =
+                new SplitDiskCache(
+                        openDiskCache(context, MediaCacheManager.Kind.THUMBNAILS),
+                        openDiskCache(context, MediaCacheManager.Kind.IMAGES));
 
         options =
                 new DisplayImageOptions.Builder()
@@ -73,8 +74,8 @@ public class ImageLoaderUtils {
                         .imageScaleType(
                                 SettingValues.highColorspaceImages
                                         ? ImageScaleType.NONE_SAFE
-                                        : ImageScaleType.IN_SAMPLE_POWER_OF_2)
-                        .cacheInMemory(false)
+                                        : ImageScaleType.EXACTLY)
+                        .cacheInMemory(true)
                         .resetViewBeforeLoading(false)
                         .displayer(new FadeInBitmapDisplayer(250))
                         .build();
@@ -84,10 +85,13 @@ public class ImageLoaderUtils {
         }
         ImageLoaderConfiguration config =
                 new ImageLoaderConfiguration.Builder(context)
-                        .threadPoolSize(threadPoolSize)
+                        .threadPoolSize(THREAD_POOL_SIZE)
                         .denyCacheImageMultipleSizesInMemory()
+                        .memoryCache(
+                                new CountingMemoryCache(
+                                        (int) (Runtime.getRuntime().maxMemory() / 8)))
+                        .imageDecoder(new TimedImageDecoder())
                         .diskCache(discCache)
-                        .threadPoolSize(4)
                         .imageDownloader(new OkHttpImageDownloader(context))
                         .defaultDisplayImageOptions(options)
                         .build();
@@ -99,4 +103,145 @@ public class ImageLoaderUtils {
         imageLoader = ImageLoaderUnescape.getInstance();
         imageLoader.init(config);
     }
+
+    private static DiskCache openDiskCache(Context context, MediaCacheManager.Kind kind) {
+        File dir = MediaCacheManager.getDirectory(context, kind);
+        try {
+            dir.mkdirs();
+            return new LruDiskCache(
+                    dir, new Md5FileNameGenerator(), MediaCacheManager.getQuota(kind));
+        } catch (IOException e) {
+            return new UnlimitedDiskCache(dir);
+        }
+    }
+
+    /** Share of memory cache lookups that found a bitmap, from 0 to 1 */
+    public static float getMemoryHitRate() {
+        long hits = memoryHits.get();
+        long total = hits + memoryMisses.get();
+        return total == 0 ? 0 : (float) hits / total;
+    }
+
+    public static long getAverageDecodeMillis() {
+        long count = decodes.get();
+        return count == 0 ? 0 : decodeMillis.get() / count;
+    }
+
+    /** LRU bitmap cache limited by bitmap bytes, counting hits and misses */
+    private static class CountingMemoryCache implements MemoryCache {
+        private final LruMemoryCache cache;
+
+        CountingMemoryCache(int maxBytes) {
+            cache = new LruMemoryCache(maxBytes);
+        }
+
+        @Override
+        public boolean put(String key, Bitmap value) {
+            return cache.put(key, value);
+        }
+
+        @Override
+        public Bitmap get(String key) {
+            Bitmap bitmap = cache.get(key);
+            if (bitmap == null) {
+                memoryMisses.incrementAndGet();
+            } else {
+                memoryHits.incrementAndGet();
+            }
+            return bitmap;
+        }
+
+        @Override
+        public Bitmap remove(String key) {
+            return cache.remove(key);
+        }
+
+        @Override
+        public Collection<String> keys() {
+            return cache.keys();
+        }
+
+        @Override
+        public void clear() {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Keeps thumbnails and small previews in a cache of their own, so opening full size images
+     * doesn't evict the ones the feeds show.
+     */
+    private static class SplitDiskCache implements DiskCache {
+        private final DiskCache thumbnails;
+        private final DiskCache images;
+
+        SplitDiskCache(DiskCache thumbnails, DiskCache images) {
+            this.thumbnails = thumbnails;
+            this.images = images;
+        }
+
+        private DiskCache cacheFor(String imageUri) {
+            return MediaCacheManager.isThumbnail(imageUri) ? thumbnails : images;
+        }
+
+        @Override
+        public File getDirectory() {
+            return images.getDirectory();
+        }
+
+        @Override
+        public File get(String imageUri) {
+            return cacheFor(imageUri).get(imageUri);
+        }
+
+        @Override
+        public boolean save(String imageUri, InputStream imageStream, IoUtils.CopyListener listener)
+                throws IOException {
+            return cacheFor(imageUri).save(imageUri, imageStream, listener);
+        }
+
+        @Override
+        public boolean save(String imageUri, Bitmap bitmap) throws IOException {
+            return cacheFor(imageUri).save(imageUri, bitmap);
+        }
+
+        @Override
+        public boolean remove(String imageUri) {
+            return cacheFor(imageUri).remove(imageUri);
+        }
+
+        @Override
+        public void close() {
+            thumbnails.close();
+            images.close();
+        }
+
+        @Override
+        public void clear() {
+            thumbnails.clear();
+            images.clear();
+        }
+    }
+
+    private static class TimedImageDecoder extends BaseImageDecoder {
+        TimedImageDecoder() {
+            super(false);
+        }
+
+        @Override
+        public Bitmap decode(ImageDecodingInfo decodingInfo) throws IOException {
+            long start = SystemClock.elapsedRealtime();
+            Bitmap bitmap = super.decode(decodingInfo);
+            decodeMillis.addAndGet(SystemClock.elapsedRealtime() - start);
+            if (decodes.incrementAndGet() % STATS_INTERVAL == 0 && BuildConfig.DEBUG) {
+                LogUtil.v(
+                        "Images: "
+                                + Math.round(getMemoryHitRate() * 100)
+                                + "% memory hits, "
+                                + getAverageDecodeMillis()
+                                + " ms per decode");
+            }
+            return bitmap;
+        }
+    }
 }
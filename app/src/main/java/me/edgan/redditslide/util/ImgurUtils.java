@@ -2,14 +2,19 @@ package me.edgan.redditslide.util;
 
 import android.content.ContentResolver;
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
 import android.net.Uri;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.exifinterface.media.ExifInterface;
 
 import me.edgan.redditslide.Reddit;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -58,6 +63,75 @@ public class ImgurUtils {
         return null;
     }
 
+    /**
+     * Returns the image at uri re-encoded as a JPEG no larger than maxDimension on either side, or
+     * null if it's already small enough, is a GIF, or can't be decoded. The re-encoded image has no
+     * EXIF data, so it is turned the way its orientation tag says first.
+     */
+    @Nullable
+    public static byte[] downscale(Uri uri, @NonNull Context context, int maxDimension) {
+        ContentResolver resolver = context.getContentResolver();
+        if ("image/gif".equals(resolver.getType(uri))) {
+            return null;
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            BitmapFactory.decodeStream(in, null, options);
+        } catch (IOException e) {
+            return null;
+        }
+        int largest = Math.max(options.outWidth, options.outHeight);
+        if (largest <= maxDimension) {
+            return null;
+        }
+
+        // Decode at the smallest power of two that still covers maxDimension, then scale exactly
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = 1;
+        while (largest / (options.inSampleSize * 2) >= maxDimension) {
+            options.inSampleSize *= 2;
+        }
+        Bitmap decoded;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            decoded = BitmapFactory.decodeStream(in, null, options);
+        } catch (IOException e) {
+            return null;
+        }
+        if (decoded == null) {
+            return null;
+        }
+        float scale = (float) maxDimension / Math.max(decoded.getWidth(), decoded.getHeight());
+        Matrix matrix = new Matrix();
+        if (scale < 1) {
+            matrix.postScale(scale, scale);
+        }
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in != null) {
+                ExifInterface exif = new ExifInterface(in);
+                if (exif.isFlipped()) {
+                    matrix.postScale(-1, 1);
+                }
+                matrix.postRotate(exif.getRotationDegrees());
+            }
+        } catch (IOException e) {
+            LogUtil.e(e, "Couldn't read the orientation of " + uri);
+        }
+        Bitmap scaled = decoded;
+        if (!matrix.isIdentity()) {
+            scaled =
+                    Bitmap.createBitmap(
+                            decoded, 0, 0, decoded.getWidth(), decoded.getHeight(), matrix, true);
+            if (scaled != decoded) {
+                decoded.recycle();
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        scaled.compress(Bitmap.CompressFormat.JPEG, 90, out);
+        scaled.recycle();
+        return out.toByteArray();
+    }
+
     public static boolean writeInputStreamToFile(@NonNull InputStream in, @NonNull File file) {
         BufferedOutputStream buffer = null;
         boolean didFinish = false;
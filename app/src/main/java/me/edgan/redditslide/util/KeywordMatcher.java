@@ -0,0 +1,123 @@
+package me.edgan.redditslide.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton that tells whether a text contains any of a set of keywords, in one pass
+ * over the text regardless of how many keywords there are. Matching is case sensitive; callers
+ * lowercase both sides.
+ */
+public final class KeywordMatcher {
+    private static final int ROOT = 0;
+
+    /** Sorted transition characters of each state, with their target states in next */
+    private final char[][] keys;
+
+    private final int[][] next;
+    private final int[] fail;
+    private final boolean[] accepts;
+
+    /** An empty keyword is contained in every text */
+    private final boolean matchesEverything;
+
+    public KeywordMatcher(Collection<String> keywords) {
+        ArrayList<TreeMap<Character, Integer>> edges = new ArrayList<>();
+        ArrayList<Boolean> terminal = new ArrayList<>();
+        edges.add(new TreeMap<Character, Integer>());
+        terminal.add(false);
+
+        boolean empty = false;
+        for (String keyword : keywords) {
+            if (keyword.isEmpty()) {
+                empty = true;
+                continue;
+            }
+            int state = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                Integer target = edges.get(state).get(keyword.charAt(i));
+                if (target == null) {
+                    target = edges.size();
+                    edges.get(state).put(keyword.charAt(i), target);
+                    edges.add(new TreeMap<Character, Integer>());
+                    terminal.add(false);
+                }
+                state = target;
+            }
+            terminal.set(state, true);
+        }
+        matchesEverything = empty;
+
+        int size = edges.size();
+        keys = new char[size][];
+        next = new int[size][];
+        fail = new int[size];
+        accepts = new boolean[size];
+        for (int state = 0; state < size; state++) {
+            TreeMap<Character, Integer> out = edges.get(state);
+            keys[state] = new char[out.size()];
+            next[state] = new int[out.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : out.entrySet()) {
+                keys[state][i] = edge.getKey();
+                next[state][i] = edge.getValue();
+                i++;
+            }
+            accepts[state] = terminal.get(state);
+        }
+
+        // Breadth first, so every failure target is finished before the states that use it
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : next[ROOT]) {
+            fail[child] = ROOT;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < keys[state].length; i++) {
+                int child = next[state][i];
+                int f = fail[state];
+                int target;
+                while ((target = step(f, keys[state][i])) < 0 && f != ROOT) {
+                    f = fail[f];
+                }
+                fail[child] = target < 0 ? ROOT : target;
+                accepts[child] |= accepts[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return !matchesEverything && keys[ROOT].length == 0;
+    }
+
+    /** Returns whether text contains at least one of the keywords */
+    public boolean containsAny(String text) {
+        if (matchesEverything) {
+            return true;
+        }
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int target;
+            while ((target = step(state, c)) < 0 && state != ROOT) {
+                state = fail[state];
+            }
+            state = target < 0 ? ROOT : target;
+            if (accepts[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int step(int state, char c) {
+        int i = Arrays.binarySearch(keys[state], c);
+        return i < 0 ? -1 : next[state][i];
+    }
+}
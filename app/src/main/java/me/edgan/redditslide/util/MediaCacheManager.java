@@ -0,0 +1,220 @@
+package me.edgan.redditslide.util;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.widget.TextView;
+
+import me.edgan.redditslide.OfflineStore;
+import me.edgan.redditslide.R;
+import me.edgan.redditslide.Reddit;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One byte budget for everything the app keeps in its cache dir. The offline store is counted
+ * first, up to its share, and the rest is split between the thumbnail, image, GIF and video caches,
+ * each of which evicts its least recently used files to stay within its quota. Offline content is
+ * never evicted here, only removed from the offline settings, so a large offline store shrinks the
+ * media caches instead.
+ */
+public class MediaCacheManager {
+    public static final long BUDGET = 512L * 1024 * 1024;
+
+    /** The most the offline store can take from the media caches, out of 100 */
+    private static final int OFFLINE_SHARE = 25;
+
+    /** No media cache gets less than this */
+    private static final long MIN_QUOTA = 16L * 1024 * 1024;
+
+    /** Previews at or below this width are kept with the thumbnails */
+    private static final int THUMBNAIL_WIDTH = 320;
+
+    private static final Pattern WIDTH = Pattern.compile("[?&]width=(\\d{1,5})(?:&|$)");
+
+    /** Files of the image cache that used to live in the cache root */
+    private static final Pattern LEGACY_IMAGE_FILE = Pattern.compile("[0-9a-z]+\\.(0|tmp)");
+
+    public enum Kind {
+        THUMBNAILS("thumbs", 10, R.string.media_cache_thumbnails),
+        IMAGES("images", 30, R.string.media_cache_images),
+        GIFS("gifs", 20, R.string.media_cache_gifs),
+        VIDEO("video-cache", 40, R.string.media_cache_video),
+        OFFLINE(null, 0, R.string.media_cache_offline);
+
+        final String directory;
+
+        /** Share of the budget left after offline content, out of 100 */
+        final int weight;
+
+        final int label;
+
+        Kind(String directory, int weight, int label) {
+            this.directory = directory;
+            this.weight = weight;
+            this.label = label;
+        }
+    }
+
+    public static class Usage {
+        public final Kind kind;
+        public final long bytes;
+        public final long quota;
+
+        Usage(Kind kind, long bytes, long quota) {
+            this.kind = kind;
+            this.bytes = bytes;
+            this.quota = quota;
+        }
+    }
+
+    private static long[] quotas;
+
+    private MediaCacheManager() {}
+
+    /**
+     * Splits the budget using the current size of the offline store, and starts removing the image
+     * cache from its old place in the cache root. Call it before any of the caches is created.
+     */
+    public static synchronized void init(Context context) {
+        quotas = getQuotas(BUDGET, OfflineStore.getStoredBytes(context));
+        final File root = ImageLoaderUtils.getCacheDirectory(context);
+        if (new File(root, "journal").exists()) {
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(() -> removeLegacyImageCache(root));
+        }
+    }
+
+    public static File getDirectory(Context context, Kind kind) {
+        if (kind == Kind.OFFLINE) {
+            throw new IllegalArgumentException("The offline store has no single directory");
+        }
+        return new File(ImageLoaderUtils.getCacheDirectory(context), kind.directory);
+    }
+
+    public static synchronized long getQuota(Kind kind) {
+        if (quotas == null) {
+            quotas = getQuotas(BUDGET, 0);
+        }
+        return quotas[kind.ordinal()];
+    }
+
+    /**
+     * Quota of each kind, by ordinal. The offline entry is the most it is counted for, not a limit.
+     */
+    public static long[] getQuotas(long budget, long offlineBytes) {
+        long[] quotas = new long[Kind.values().length];
+        long offlineQuota = budget * OFFLINE_SHARE / 100;
+        long left = budget - Math.min(Math.max(offlineBytes, 0), offlineQuota);
+        for (Kind kind : Kind.values()) {
+            quotas[kind.ordinal()] =
+                    kind == Kind.OFFLINE
+                            ? offlineQuota
+                            : Math.max(MIN_QUOTA, left * kind.weight / 100);
+        }
+        return quotas;
+    }
+
+    /** Whether an image url points at a thumbnail or a small preview */
+    public static boolean isThumbnail(String url) {
+        if (url == null) {
+            return false;
+        }
+        if (url.contains("thumbs.redditmedia.com")) {
+            return true;
+        }
+        Matcher width = WIDTH.matcher(url);
+        return width.find() && Integer.parseInt(width.group(1)) <= THUMBNAIL_WIDTH;
+    }
+
+    /** Reads how much each kind takes up now, walking the cache directories */
+    public static List<Usage> getUsage(Context context) {
+        List<Usage> usage = new ArrayList<>();
+        for (Kind kind : Kind.values()) {
+            long bytes;
+            if (kind == Kind.OFFLINE) {
+                bytes = OfflineStore.getStoredBytes(context);
+            } else if (kind == Kind.VIDEO && Reddit.videoCache != null) {
+                bytes = Reddit.videoCache.getCacheSpace();
+            } else {
+                bytes = directorySize(getDirectory(context, kind));
+            }
+            usage.add(new Usage(kind, bytes, getQuota(kind)));
+        }
+        return usage;
+    }
+
+    /** One line per kind and a total, as "Images: 12 MB of 150 MB" */
+    public static String describeUsage(Context context) {
+        StringBuilder text = new StringBuilder();
+        long total = 0;
+        for (Usage usage : getUsage(context)) {
+            total += usage.bytes;
+            text.append(
+                            context.getString(
+                                    R.string.media_cache_usage,
+                                    context.getString(usage.kind.label),
+                                    FileUtil.readableFileSize(usage.bytes),
+                                    FileUtil.readableFileSize(usage.quota)))
+                    .append('\n');
+        }
+        text.append(
+                context.getString(
+                        R.string.media_cache_usage,
+                        context.getString(R.string.media_cache_total),
+                        FileUtil.readableFileSize(total),
+                        FileUtil.readableFileSize(BUDGET)));
+        return text.toString();
+    }
+
+    /** Fills view with {@link #describeUsage} once it has been read in the background */
+    public static void showUsage(final TextView view) {
+        final Context context = view.getContext().getApplicationContext();
+        new AsyncTask<Void, Void, String>() {
+            @Override
+            protected String doInBackground(Void... voids) {
+                return describeUsage(context);
+            }
+
+            @Override
+            protected void onPostExecute(String usage) {
+                view.setText(usage);
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    private static long directorySize(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (File file : files) {
+            bytes += file.isDirectory() ? directorySize(file) : file.length();
+        }
+        return bytes;
+    }
+
+    /**
+     * The image cache used the cache root itself, where clearing it would have deleted the other
+     * caches too. Its files are removed once it has moved to its own directory.
+     */
+    private static void removeLegacyImageCache(File root) {
+        File[] files = root.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isFile()
+                    && (name.equals("journal")
+                            || name.equals("journal.tmp")
+                            || name.equals("journal.bkp")
+                            || LEGACY_IMAGE_FILE.matcher(name).matches())) {
+                file.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,509 @@
+package me.edgan.redditslide.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import me.edgan.redditslide.ContentType;
+import me.edgan.redditslide.Reddit;
+import me.edgan.redditslide.SettingValues;
+import me.edgan.redditslide.SubmissionViews.SubmissionCard;
+import me.edgan.redditslide.util.GifUtils.AsyncLoadGif.VideoType;
+
+import net.dean.jraw.models.Submission;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Turns redgifs, gfycat and streamable links into the url of the video itself. Results are kept
+ * in memory and in shared preferences until the host's links are likely to expire, and concurrent
+ * lookups of the same link share one request. Feeds call {@link #prefetch(Submission)} for the
+ * posts coming up so opening them doesn't wait on the API. Prefetches are queued once per link,
+ * the queue is bounded, and links that weren't found or failed aren't prefetched again for a
+ * while.
+ */
+public class MediaUrlResolver {
+    private static final String PREFS = "RESOLVED_MEDIA";
+
+    private static final long REDGIFS_TTL = 1000 * 60 * 60 * 6;
+    private static final long STREAMABLE_TTL = 1000 * 60 * 60;
+    private static final long GFYCAT_TTL = 1000 * 60 * 60 * 24;
+
+    /** Signed links are dropped this long before they say they expire */
+    private static final long EXPIRY_MARGIN = 1000 * 60 * 5;
+
+    /** How long a link the host answered 404 or 410 for isn't prefetched again */
+    private static final long MISSING_TTL = 1000 * 60 * 10;
+
+    /** How long prefetches of a link that failed to resolve are held off */
+    private static final long FAILED_TTL = 1000 * 60;
+
+    private static final int MAX_QUEUED_PREFETCHES = 16;
+
+    private static final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private static final Map<String, FutureTask<String>> inFlight = new ConcurrentHashMap<>();
+
+    /** Links the host said are gone, by when to prefetch them again */
+    private static final Map<String, Long> missing = new ConcurrentHashMap<>();
+
+    /** Links whose prefetch failed, by when to prefetch them again */
+    private static final Map<String, Long> failed = new ConcurrentHashMap<>();
+
+    /** Keys of the prefetches that are waiting or running */
+    private static final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+    /** When the queue is full the oldest prefetch goes, as it has likely scrolled out of view */
+    private static final ThreadPoolExecutor prefetcher =
+            new ThreadPoolExecutor(
+                    2,
+                    2,
+                    0,
+                    TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(MAX_QUEUED_PREFETCHES),
+                    (task, executor) -> {
+                        Runnable oldest = executor.getQueue().poll();
+                        if (oldest instanceof Prefetch) {
+                            queued.remove(((Prefetch) oldest).key);
+                        }
+                        if (!executor.getQueue().offer(task) && task instanceof Prefetch) {
+                            queued.remove(((Prefetch) task).key);
+                        }
+                    });
+
+    private static final Gson gson = new Gson();
+    private static final AtomicReference<AuthToken> TOKEN =
+            new AtomicReference<>(new AuthToken("", 0));
+
+    private static SharedPreferences prefs;
+
+    private MediaUrlResolver() {}
+
+    /** Whether links of this type have to go through an API before they can be played */
+    public static boolean needsLookup(VideoType type) {
+        return type == VideoType.REDGIFS
+                || type == VideoType.GFYCAT
+                || type == VideoType.STREAMABLE;
+    }
+
+    /**
+     * Returns the video url for a link formatted by {@link GifUtils.AsyncLoadGif#formatUrl}, doing
+     * the lookup if it isn't cached. Call it off the UI thread.
+     *
+     * @return the video url, the link itself if it needs no lookup, or null if the host doesn't
+     *     know the video
+     * @throws IOException if the host couldn't be reached or answered with an error
+     */
+    @Nullable
+    public static String resolve(String url) throws IOException {
+        final VideoType type = GifUtils.AsyncLoadGif.getVideoType(url);
+        if (!needsLookup(type)) {
+            return url;
+        }
+        final String key = key(url);
+        Entry cached = getCached(key);
+        if (cached != null) {
+            return cached.url;
+        }
+
+        // The hold-offs only keep prefetches back, a link that was asked for is always looked up
+        FutureTask<String> task =
+                new FutureTask<>(
+                        () -> {
+                            String resolved;
+                            try {
+                                resolved = lookup(url, type);
+                            } catch (NotFoundException e) {
+                                missing.put(key, SystemClock.elapsedRealtime() + MISSING_TTL);
+                                return null;
+                            }
+                            if (resolved != null) {
+                                put(key, new Entry(resolved, expiry(resolved, type)));
+                            }
+                            return resolved;
+                        });
+        FutureTask<String> running = inFlight.putIfAbsent(key, task);
+        if (running == null) {
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+            running = task;
+        }
+
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while resolving " + url, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /** Resolves the video of a GIF post in the background, if it needs a lookup */
+    public static void prefetch(Submission submission) {
+        if (SubmissionCard.get(submission).type != ContentType.Type.GIF) {
+            return;
+        }
+        final String url = GifUtils.AsyncLoadGif.formatUrl(submission.getUrl());
+        if (!needsLookup(GifUtils.AsyncLoadGif.getVideoType(url))) {
+            return;
+        }
+        // Stored entries are checked by resolve, off the UI thread
+        String key = key(url);
+        if (cache.containsKey(key)
+                || inFlight.containsKey(key)
+                || isHeldOff(missing, key)
+                || isHeldOff(failed, key)
+                || !queued.add(key)) {
+            return;
+        }
+        prefetcher.execute(new Prefetch(key, url));
+    }
+
+    /** Whether key is in a map of retry times and its time hasn't come yet */
+    private static boolean isHeldOff(Map<String, Long> retryAt, String key) {
+        Long at = retryAt.get(key);
+        if (at == null) {
+            return false;
+        }
+        if (at > SystemClock.elapsedRealtime()) {
+            return true;
+        }
+        retryAt.remove(key, at);
+        return false;
+    }
+
+    private static class Prefetch implements Runnable {
+        final String key;
+        final String url;
+
+        Prefetch(String key, String url) {
+            this.key = key;
+            this.url = url;
+        }
+
+        @Override
+        public void run() {
+            try {
+                // Some hosts give no answer at all for a missing video, so back off from those too
+                if (resolve(url) == null) {
+                    failed.put(key, SystemClock.elapsedRealtime() + FAILED_TTL);
+                }
+            } catch (IOException e) {
+                failed.put(key, SystemClock.elapsedRealtime() + FAILED_TTL);
+                LogUtil.v("Couldn't prefetch " + url + ": " + e.getMessage());
+            } finally {
+                queued.remove(key);
+            }
+        }
+    }
+
+    /** Which video a link resolves to depends on the quality setting */
+    private static String key(String url) {
+        return (SettingValues.hqgif ? "hq " : "sd ") + url;
+    }
+
+    private static Entry getCached(String key) {
+        Entry entry = cache.get(key);
+        if (entry == null) {
+            String stored = getPrefs().getString(key, null);
+            entry = stored == null ? null : Entry.parse(stored);
+            if (entry != null) {
+                cache.put(key, entry);
+            }
+        }
+        if (entry != null && entry.expireAt <= System.currentTimeMillis()) {
+            cache.remove(key);
+            getPrefs().edit().remove(key).apply();
+            return null;
+        }
+        return entry;
+    }
+
+    private static void put(String key, Entry entry) {
+        cache.put(key, entry);
+        getPrefs().edit().putString(key, entry.toString()).apply();
+    }
+
+    private static synchronized SharedPreferences getPrefs() {
+        if (prefs == null) {
+            prefs = Reddit.getAppContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+            // Entries are only read back on demand, so clear out the expired ones once
+            long now = System.currentTimeMillis();
+            SharedPreferences.Editor editor = prefs.edit();
+            for (Map.Entry<String, ?> stored : prefs.getAll().entrySet()) {
+                Entry entry =
+                        stored.getValue() instanceof String
+                                ? Entry.parse((String) stored.getValue())
+                                : null;
+                if (entry == null || entry.expireAt <= now) {
+                    editor.remove(stored.getKey());
+                }
+            }
+            editor.apply();
+        }
+        return prefs;
+    }
+
+    /** How long a resolved url can be used, going by its signature if it has one */
+    private static long expiry(String resolved, VideoType type) {
+        long ttl =
+                type == VideoType.REDGIFS
+                        ? REDGIFS_TTL
+                        : type == VideoType.STREAMABLE ? STREAMABLE_TTL : GFYCAT_TTL;
+        long expireAt = System.currentTimeMillis() + ttl;
+        try {
+            Uri uri = Uri.parse(resolved);
+            String expires = uri.getQueryParameter("Expires");
+            if (expires == null) {
+                expires = uri.getQueryParameter("expires");
+            }
+            if (expires != null) {
+                expireAt = Math.min(expireAt, Long.parseLong(expires) * 1000 - EXPIRY_MARGIN);
+            }
+        } catch (NumberFormatException | UnsupportedOperationException ignored) {
+        }
+        return expireAt;
+    }
+
+    private static String lookup(String url, VideoType type) throws IOException {
+        OkHttpClient client = Reddit.client;
+        switch (type) {
+            case REDGIFS:
+                return lookupRedGifs(client, url.substring(url.lastIndexOf("/") + 1));
+            case GFYCAT:
+                return lookupGfycat(client, url.substring(url.lastIndexOf("/")), url);
+            case STREAMABLE:
+                return lookupStreamable(client, url.substring(url.lastIndexOf("/") + 1));
+            default:
+                return url;
+        }
+    }
+
+    private static String lookupRedGifs(OkHttpClient client, String name) throws IOException {
+        // Check if existing token is valid
+        AuthToken currentToken = TOKEN.get();
+        if (!currentToken.isValid()) {
+            currentToken = getNewToken(client);
+        }
+
+        // Call RedGifs API with token
+        Response response = makeApiCall(client, name, currentToken);
+
+        // If we get a 401, try once more with a new token
+        if (response.code() == 401) {
+            response.close();
+            currentToken = getNewToken(client);
+            response = makeApiCall(client, name, currentToken);
+        }
+
+        JsonObject result;
+        try {
+            // Rate limits and server errors say nothing about the video, only these do
+            if (response.code() == 404 || response.code() == 410) {
+                throw new NotFoundException(name);
+            }
+            if (!response.isSuccessful()) {
+                throw new IOException("Unexpected code " + response);
+            }
+            result = gson.fromJson(response.body().string(), JsonObject.class);
+        } finally {
+            response.close();
+        }
+        if (result == null || !result.has("gif")) {
+            return null;
+        }
+        JsonObject urls = result.getAsJsonObject("gif").getAsJsonObject("urls");
+        return !SettingValues.hqgif && urls.has("sd")
+                ? urls.get("sd").getAsString()
+                : urls.get("hd").getAsString();
+    }
+
+    private static AuthToken getNewToken(OkHttpClient client) throws IOException {
+        Request tokenRequest =
+                new Request.Builder()
+                        .url("https://api.redgifs.com/v2/auth/temporary")
+                        .get()
+                        .build();
+        JsonObject tokenResult;
+        try (Response tokenResponse = client.newCall(tokenRequest).execute()) {
+            if (!tokenResponse.isSuccessful()) {
+                throw new IOException("Unexpected code " + tokenResponse);
+            }
+            tokenResult = gson.fromJson(tokenResponse.body().string(), JsonObject.class);
+        }
+        String accessToken = tokenResult.get("token").getAsString();
+        AuthToken newToken = AuthToken.expireIn1day(accessToken);
+        TOKEN.set(newToken);
+        return newToken;
+    }
+
+    private static Response makeApiCall(OkHttpClient client, String name, AuthToken currentToken)
+            throws IOException {
+        Request request =
+                new Request.Builder()
+                        .url("https://api.redgifs.com/v2/gifs/" + name)
+                        .header("Authorization", "Bearer " + currentToken.token)
+                        .build();
+        return client.newCall(request).execute();
+    }
+
+    private static String lookupGfycat(OkHttpClient client, String name, String fullUrl) {
+        String host = "gfycat";
+        if (fullUrl.contains("redgifs")) {
+            host = "redgifs";
+        }
+        if (!name.startsWith("/")) name = "/" + name;
+        if (name.contains("-")) {
+            name = name.split("-")[0];
+        }
+        final JsonObject result = getGfycatApiResponse(client, host, name);
+        if (result == null
+                || result.get("gfyItem") == null
+                || result.getAsJsonObject("gfyItem").get("mp4Url").isJsonNull()) {
+            // If the result null, the gfycat link may be redirecting to gifdeliverynetwork
+            // which is powered by redgifs.
+            // Try getting the redirected url from gfycat and check if redirected url is
+            // gifdeliverynetwork and if it is,
+            // we fetch the actual .mp4/.webm url from the redgifs api
+            if (result == null) {
+                try {
+                    URL newUrl = new URL(fullUrl);
+                    HttpURLConnection ucon = (HttpURLConnection) newUrl.openConnection();
+                    ucon.setInstanceFollowRedirects(false);
+                    String secondURL = new URL(ucon.getHeaderField("location")).toString();
+                    if (secondURL.contains("gifdeliverynetwork")) {
+                        return getGfycatUrl(
+                                getGfycatApiResponse(client, "redgifs", name.toLowerCase()));
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            return null;
+        }
+        return getGfycatUrl(result);
+    }
+
+    /**
+     * Get an API response for a given host and gfy name
+     *
+     * @param host the host to send the req to
+     * @param name the name of the gfy
+     * @return the result
+     */
+    private static JsonObject getGfycatApiResponse(OkHttpClient client, String host, String name) {
+        String domain = "api." + host + ".com";
+        String gfycatUrl = "https://" + domain + "/v1/gfycats" + name;
+
+        return HttpUtil.getJsonObject(
+                client, gson, gfycatUrl, GifUtils.AsyncLoadGif.makeHeaderMap(domain));
+    }
+
+    /** Get the correct mp4/mobile url from a given result JsonObject */
+    private static String getGfycatUrl(JsonObject result) {
+        if (!SettingValues.hqgif && result.getAsJsonObject("gfyItem").has("mobileUrl")) {
+            return result.getAsJsonObject("gfyItem").get("mobileUrl").getAsString();
+        } else {
+            return result.getAsJsonObject("gfyItem").get("mp4Url").getAsString();
+        }
+    }
+
+    private static String lookupStreamable(OkHttpClient client, String hash) {
+        String streamableUrl = "https://api.streamable.com/videos/" + hash;
+        LogUtil.v(streamableUrl);
+        final JsonObject result = HttpUtil.getJsonObject(client, gson, streamableUrl);
+        if (result == null
+                || result.get("files") == null
+                || !(result.getAsJsonObject("files").has("mp4")
+                        || result.getAsJsonObject("files").has("mp4-mobile"))) {
+            return null;
+        }
+        JsonObject files = result.getAsJsonObject("files");
+        if (files.has("mp4-mobile")
+                && !files.getAsJsonObject("mp4-mobile").get("url").getAsString().isEmpty()) {
+            return files.getAsJsonObject("mp4-mobile").get("url").getAsString();
+        }
+        return files.getAsJsonObject("mp4").get("url").getAsString();
+    }
+
+    /** Thrown when the host answers that a video doesn't exist */
+    private static class NotFoundException extends IOException {
+        NotFoundException(String name) {
+            super(name + " not found");
+        }
+    }
+
+    private static class AuthToken {
+        @NonNull public final String token;
+        private final long expireAt;
+
+        private AuthToken(@NonNull String token, final long expireAt) {
+            this.token = token;
+            this.expireAt = expireAt;
+        }
+
+        public static AuthToken expireIn1day(@NonNull String token) {
+            // 23 not 24 to give an hour leeway
+            long expireTime = 1000 * 60 * 60 * 23;
+            return new AuthToken(token, SystemClock.uptimeMillis() + expireTime);
+        }
+
+        public boolean isValid() {
+            return !token.isEmpty() && expireAt > SystemClock.uptimeMillis();
+        }
+    }
+
+    /** A resolved url and the wall clock time it stops being used at */
+    private static class Entry {
+        final String url;
+        final long expireAt;
+
+        Entry(String url, long expireAt) {
+            this.url = url;
+            this.expireAt = expireAt;
+        }
+
+        static Entry parse(String stored) {
+            int split = stored.indexOf(' ');
+            try {
+                return new Entry(
+                        stored.substring(split + 1), Long.parseLong(stored.substring(0, split)));
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return expireAt + " " + url;
+        }
+    }
+}
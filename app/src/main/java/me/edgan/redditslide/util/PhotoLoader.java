@@ -15,7 +15,15 @@ import java.util.List;
 public class PhotoLoader {
 
     public static void loadPhoto(final Context c, final Submission submission) {
-        String url;
+        final String url = getPhotoUrl(c, submission);
+        if (url != null) {
+            loadImage(c, url);
+        }
+    }
+
+    /** Returns the url of the image shown for submission, or null if it has none */
+    public static String getPhotoUrl(final Context c, final Submission submission) {
+        String url = null;
         final ContentType.Type type = ContentType.getContentType(submission);
         final Thumbnails thumbnails = submission.getThumbnails();
         final Submission.ThumbnailType thumbnailType = submission.getThumbnailType();
@@ -87,9 +95,9 @@ public class PhotoLoader {
                         url = getThumbnailUrl(thumbnails.getSource());
                     }
                 }
-                loadImage(c, url);
             }
         }
+        return url;
     }
 
     private static String getThumbnailUrl(final Thumbnails.Image thumbnail) {
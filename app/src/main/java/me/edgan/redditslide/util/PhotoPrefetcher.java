@@ -0,0 +1,311 @@
+package me.edgan.redditslide.util;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.ConnectivityManager;
+import android.os.SystemClock;
+import android.view.View;
+
+import androidx.core.content.ContextCompat;
+import androidx.core.net.ConnectivityManagerCompat;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.StaggeredGridLayoutManager;
+
+import com.nostra13.universalimageloader.core.DisplayImageOptions;
+import com.nostra13.universalimageloader.core.ImageLoader;
+import com.nostra13.universalimageloader.core.assist.FailReason;
+import com.nostra13.universalimageloader.core.assist.ImageScaleType;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.assist.ViewScaleType;
+import com.nostra13.universalimageloader.core.imageaware.NonViewAware;
+import com.nostra13.universalimageloader.core.listener.SimpleImageLoadingListener;
+import com.nostra13.universalimageloader.utils.DiskCacheUtils;
+
+import me.edgan.redditslide.Adapters.SubmissionList;
+import me.edgan.redditslide.Reddit;
+import me.edgan.redditslide.SettingValues;
+
+import net.dean.jraw.models.Submission;
+
+import org.apache.commons.text.StringEscapeUtils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Downloads the images of the posts just past the visible ones, in the direction the list is
+ * scrolled, to the disk cache. Only a couple of prefetches are handed to the image loader at a
+ * time, nearest first, so the images of rows being bound never queue behind them. Requests that
+ * end up far from the visible posts are cancelled, and urls that are already cached or on their
+ * way are skipped. The video urls of GIF posts in the
+ * same range are resolved ahead through {@link MediaUrlResolver}, and posts far above the visible
+ * ones are parked if the feed is a {@link SubmissionList}. Only call it from the UI thread.
+ */
+public class PhotoPrefetcher {
+    public static final int DEFAULT_WINDOW = 10;
+
+    /** Window used on mobile data and metered wifi */
+    public static final int METERED_WINDOW = 4;
+
+    /** Prefetches are only decoded to check them, so decode them small */
+    private static final ImageSize DECODE_SIZE = new ImageSize(64, 64);
+
+    /** How long a metered check is reused, since scrolling calls in many times a second */
+    private static final long METERED_CHECK_MS = 5000;
+
+    /** Prefetches the image loader works on at once, leaving the rest of its threads to views */
+    private static final int MAX_RUNNING = 2;
+
+    private static DisplayImageOptions prefetchOptions;
+
+    private final Context context;
+    private final int window;
+    private final int meteredWindow;
+
+    /** Waiting and running requests by unescaped url, in the order they were asked for */
+    private final LinkedHashMap<String, Request> inFlight = new LinkedHashMap<>();
+
+    private int running;
+
+    private boolean forward = true;
+
+    private boolean metered;
+    private long meteredCheckedAt = -METERED_CHECK_MS;
+
+    public PhotoPrefetcher(Context context) {
+        this(context, DEFAULT_WINDOW, METERED_WINDOW);
+    }
+
+    /**
+     * @param window how many posts to prefetch past the visible ones
+     * @param meteredWindow the same when not on unmetered wifi
+     */
+    public PhotoPrefetcher(Context context, int window, int meteredWindow) {
+        this.context = context.getApplicationContext();
+        this.window = window;
+        this.meteredWindow = meteredWindow;
+    }
+
+    /**
+     * Prefetches around the posts visible in a list with a header at adapter position 0.
+     *
+     * @param dy last scroll distance, 0 to keep the previous direction
+     */
+    public void onScrolled(
+            List<Submission> posts, StaggeredGridLayoutManager layoutManager, int dy) {
+        int first = Integer.MAX_VALUE;
+        int last = -1;
+        for (int position : layoutManager.findFirstVisibleItemPositions(null)) {
+            if (position != RecyclerView.NO_POSITION) {
+                first = Math.min(first, position);
+            }
+        }
+        for (int position : layoutManager.findLastVisibleItemPositions(null)) {
+            last = Math.max(last, position);
+        }
+        onScrolled(posts, Math.max(first - 1, 0), last - 1, dy);
+    }
+
+    /**
+     * Prefetches around the visible posts.
+     *
+     * @param first position in posts of the first visible post
+     * @param last position in posts of the last visible post
+     * @param dy last scroll distance, 0 to keep the previous direction
+     */
+    public void onScrolled(List<Submission> posts, int first, int last, int dy) {
+        if (dy != 0) {
+            forward = dy > 0;
+        }
+        if (posts == null || first < 0 || last < first) {
+            cancelAll();
+            return;
+        }
+        if (posts instanceof SubmissionList) {
+            ((SubmissionList) posts).park(first);
+        }
+        boolean images = shouldPrefetch();
+        int ahead = isMetered() ? meteredWindow : window;
+
+        // Keep what's still within two windows, so flinging back and forth doesn't refetch
+        if (images) {
+            cancelOutside(first - 2 * ahead, last + 2 * ahead);
+        } else {
+            cancelAll();
+        }
+
+        // Nearest first, as that is the order they start in
+        for (int step = 1; step <= ahead; step++) {
+            int i = forward ? last + step : first - step;
+            if (i < 0 || i >= posts.size()) {
+                break;
+            }
+            Submission post = posts.get(i);
+            MediaUrlResolver.prefetch(post);
+            if (images) {
+                prefetch(post, i);
+            }
+        }
+        startWaiting();
+    }
+
+    public void cancelAll() {
+        for (Request request : inFlight.values()) {
+            cancel(request);
+        }
+        inFlight.clear();
+    }
+
+    /**
+     * Asks the system whether the active network is metered. NetworkUtil's wifi check can't be
+     * used here, as it reports every connection as wifi.
+     */
+    private boolean isMetered() {
+        long now = SystemClock.elapsedRealtime();
+        if (now - meteredCheckedAt >= METERED_CHECK_MS) {
+            ConnectivityManager cm =
+                    ContextCompat.getSystemService(context, ConnectivityManager.class);
+            metered = cm == null || ConnectivityManagerCompat.isActiveNetworkMetered(cm);
+            meteredCheckedAt = now;
+        }
+        return metered;
+    }
+
+    private boolean shouldPrefetch() {
+        return !(SettingValues.noImages
+                && ((!NetworkUtil.isConnectedWifi(context) && SettingValues.lowResMobile)
+                        || SettingValues.lowResAlways));
+    }
+
+    private void cancelOutside(int from, int to) {
+        Iterator<Map.Entry<String, Request>> it = inFlight.entrySet().iterator();
+        while (it.hasNext()) {
+            Request request = it.next().getValue();
+            if (request.position < from || request.position > to) {
+                cancel(request);
+                it.remove();
+            }
+        }
+    }
+
+    private void cancel(Request request) {
+        if (request.started && !request.done) {
+            ((Reddit) context).getImageLoader().cancelDisplayTask(request.aware);
+            request.done = true;
+            running--;
+        }
+    }
+
+    private void prefetch(Submission submission, int position) {
+        String url = PhotoLoader.getPhotoUrl(context, submission);
+        if (url == null || url.isEmpty()) {
+            return;
+        }
+        // The loader caches under the unescaped url
+        final String key = StringEscapeUtils.unescapeHtml4(url);
+        Request existing = inFlight.get(key);
+        if (existing != null) {
+            existing.position = position;
+            return;
+        }
+        ImageLoader loader = ((Reddit) context).getImageLoader();
+        if (DiskCacheUtils.findInCache(key, loader.getDiskCache()) != null) {
+            return;
+        }
+
+        inFlight.put(
+                key,
+                new Request(key, new NonViewAware(key, DECODE_SIZE, ViewScaleType.CROP), position));
+    }
+
+    /** Hands waiting requests to the image loader while fewer than MAX_RUNNING are running */
+    private void startWaiting() {
+        // Collected first, as a request can finish while it is being started
+        List<Request> next = new ArrayList<>();
+        for (Request request : inFlight.values()) {
+            if (running + next.size() >= MAX_RUNNING) {
+                break;
+            }
+            if (!request.started) {
+                next.add(request);
+            }
+        }
+        for (Request request : next) {
+            start(request);
+        }
+    }
+
+    private void start(final Request request) {
+        if (request.started || inFlight.get(request.key) != request) {
+            return;
+        }
+        request.started = true;
+        running++;
+        ((Reddit) context)
+                .getImageLoader()
+                .displayImage(
+                        request.key,
+                        request.aware,
+                        getPrefetchOptions(),
+                        new SimpleImageLoadingListener() {
+                            @Override
+                            public void onLoadingComplete(
+                                    String imageUri, View view, Bitmap loaded) {
+                                finished(request);
+                            }
+
+                            @Override
+                            public void onLoadingFailed(
+                                    String imageUri, View view, FailReason failReason) {
+                                finished(request);
+                            }
+
+                            @Override
+                            public void onLoadingCancelled(String imageUri, View view) {
+                                finished(request);
+                            }
+                        });
+    }
+
+    private void finished(Request request) {
+        if (request.done) {
+            return;
+        }
+        request.done = true;
+        running--;
+        if (inFlight.get(request.key) == request) {
+            inFlight.remove(request.key);
+        }
+        startWaiting();
+    }
+
+    private static DisplayImageOptions getPrefetchOptions() {
+        if (prefetchOptions == null) {
+            prefetchOptions =
+                    new DisplayImageOptions.Builder()
+                            .cacheOnDisk(true)
+                            .cacheInMemory(false)
+                            .imageScaleType(ImageScaleType.IN_SAMPLE_POWER_OF_2)
+                            .bitmapConfig(Bitmap.Config.RGB_565)
+                            .build();
+        }
+        return prefetchOptions;
+    }
+
+    private static class Request {
+        final String key;
+        final NonViewAware aware;
+        int position;
+        boolean started;
+        boolean done;
+
+        Request(String key, NonViewAware aware, int position) {
+            this.key = key;
+            this.aware = aware;
+            this.position = position;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package me.edgan.redditslide.util;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Request body that streams a content Uri, so an upload doesn't need a temp copy of the file. The
+ * Uri is opened again on every write, so a failed request can be retried with the same body.
+ */
+public class UriRequestBody extends RequestBody {
+    private final ContentResolver resolver;
+    private final Uri uri;
+    private final MediaType contentType;
+    private final long contentLength;
+
+    public UriRequestBody(Context context, Uri uri) {
+        this.resolver = context.getContentResolver();
+        this.uri = uri;
+        String type = resolver.getType(uri);
+        this.contentType = MediaType.parse(type == null ? "image/*" : type);
+        this.contentLength = querySize();
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    /** Size of the content, or -1 if the provider doesn't say */
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        InputStream in = resolver.openInputStream(uri);
+        if (in == null) {
+            throw new FileNotFoundException(uri.toString());
+        }
+        try (Source source = Okio.source(in)) {
+            sink.writeAll(source);
+        }
+    }
+
+    private long querySize() {
+        try (AssetFileDescriptor fd = resolver.openAssetFileDescriptor(uri, "r")) {
+            return fd == null ? -1 : fd.getLength();
+        } catch (IOException | SecurityException e) {
+            return -1;
+        }
+    }
+}
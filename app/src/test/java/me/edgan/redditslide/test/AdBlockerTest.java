@@ -0,0 +1,24 @@
+package me.edgan.redditslide.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import me.edgan.redditslide.util.AdBlocker;
+import me.edgan.redditslide.util.DomainTrie;
+
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+
+public class AdBlockerTest {
+    @Test
+    public void blocksDomainsFromTheBundledList() throws IOException {
+        DomainTrie domains =
+                AdBlocker.load(new FileInputStream("src/main/res/raw/adblocksources.txt"));
+
+        assertThat(domains.matches("goatse.cx", ""), is(true));
+        assertThat(domains.matches("www.goatse.cx", ""), is(true));
+        assertThat(domains.matches("reddit.com", ""), is(false));
+    }
+}
@@ -0,0 +1,68 @@
+package me.edgan.redditslide.test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import me.edgan.redditslide.util.DomainTrie;
+import me.edgan.redditslide.util.KeywordMatcher;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class FilterMatcherTest {
+
+    @Test
+    public void matchesKeywords() {
+        KeywordMatcher matcher = new KeywordMatcher(Arrays.asList("he", "she", "his", "hers"));
+        assertTrue(matcher.containsAny("ushers"));
+        assertTrue(matcher.containsAny("she"));
+        assertTrue(matcher.containsAny("this"));
+        assertTrue(matcher.containsAny("ahishers"));
+
+        assertFalse(matcher.containsAny("hi"));
+        assertFalse(matcher.containsAny("s h e"));
+        assertFalse(matcher.containsAny(""));
+    }
+
+    @Test
+    public void followsFailureLinks() {
+        KeywordMatcher matcher = new KeywordMatcher(Arrays.asList("abcd", "bce"));
+        assertTrue(matcher.containsAny("abce"));
+        assertFalse(matcher.containsAny("abcb"));
+    }
+
+    @Test
+    public void emptyKeywordMatchesEverything() {
+        assertTrue(new KeywordMatcher(Collections.singletonList("")).containsAny("anything"));
+        assertTrue(new KeywordMatcher(Collections.singletonList("")).containsAny(""));
+        assertTrue(new KeywordMatcher(Collections.<String>emptyList()).isEmpty());
+        assertFalse(new KeywordMatcher(Collections.<String>emptyList()).containsAny("text"));
+    }
+
+    @Test
+    public void matchesDomains() {
+        DomainTrie trie = new DomainTrie();
+        trie.add("example.com");
+        assertTrue(trie.matches("example.com", "/"));
+        assertTrue(trie.matches("www.example.com", "/"));
+        assertTrue(trie.matches("example.com.www.example.com", "/"));
+
+        assertFalse(trie.matches("notexample.com", "/"));
+        assertFalse(trie.matches("example.com.au", "/"));
+        assertFalse(trie.matches("com", "/"));
+        assertFalse(trie.matches("", "/"));
+    }
+
+    @Test
+    public void matchesDomainPaths() {
+        DomainTrie trie = new DomainTrie();
+        trie.add("example.com", "/path");
+        assertTrue(trie.matches("example.com", "/path/that/matches"));
+        assertTrue(trie.matches("www.example.com", "/path"));
+
+        assertFalse(trie.matches("example.com", "/other"));
+        assertFalse(trie.matches("example.org", "/path"));
+    }
+}
@@ -0,0 +1,53 @@
+package me.edgan.redditslide.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import me.edgan.redditslide.Adapters.CommentObject;
+import me.edgan.redditslide.Adapters.HiddenComments;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class HiddenCommentsTest {
+
+    private static List<CommentObject> comments(int count) {
+        List<CommentObject> comments = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            CommentObject comment = new CommentObject();
+            comment.name = "t1_" + i;
+            comments.add(comment);
+        }
+        return comments;
+    }
+
+    @Test
+    public void mapsVisiblePositions() {
+        HiddenComments hidden = new HiddenComments();
+        hidden.setComments(comments(6));
+        hidden.add("t1_1");
+        hidden.add("t1_2");
+        hidden.add("t1_4");
+
+        assertThat(hidden.getVisibleCount(), is(3));
+        assertThat(hidden.getRealPosition(0), is(0));
+        assertThat(hidden.getRealPosition(1), is(3));
+        assertThat(hidden.getRealPosition(2), is(5));
+        assertThat(hidden.getHiddenCountUpTo(3), is(2));
+    }
+
+    @Test
+    public void keepsHiddenNamesAcrossNewLists() {
+        HiddenComments hidden = new HiddenComments();
+        hidden.add("t1_0");
+        hidden.setComments(comments(3));
+        assertThat(hidden.getVisibleCount(), is(2));
+        assertThat(hidden.getRealPosition(0), is(1));
+
+        hidden.remove("t1_0");
+        assertThat(hidden.getVisibleCount(), is(3));
+        assertThat(hidden.getRealPosition(0), is(0));
+    }
+}
@@ -0,0 +1,44 @@
+package me.edgan.redditslide.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import me.edgan.redditslide.util.MediaCacheManager;
+import me.edgan.redditslide.util.MediaCacheManager.Kind;
+
+import org.junit.Test;
+
+public class MediaCacheManagerTest {
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    public void splitsTheBudgetBetweenMediaCaches() {
+        long[] quotas = MediaCacheManager.getQuotas(1000 * MB, 0);
+
+        assertThat(quotas[Kind.THUMBNAILS.ordinal()], is(100 * MB));
+        assertThat(quotas[Kind.IMAGES.ordinal()], is(300 * MB));
+        assertThat(quotas[Kind.VIDEO.ordinal()], is(400 * MB));
+    }
+
+    @Test
+    public void offlineContentShrinksMediaCachesUpToItsShare() {
+        long[] some = MediaCacheManager.getQuotas(1000 * MB, 100 * MB);
+        long[] lots = MediaCacheManager.getQuotas(1000 * MB, 900 * MB);
+
+        assertThat(some[Kind.IMAGES.ordinal()], is(270 * MB));
+        assertThat(lots[Kind.IMAGES.ordinal()], is(225 * MB));
+    }
+
+    @Test
+    public void keepsSmallPreviewsWithThumbnails() {
+        assertThat(
+                MediaCacheManager.isThumbnail("https://b.thumbs.redditmedia.com/a.jpg"), is(true));
+        assertThat(
+                MediaCacheManager.isThumbnail("https://preview.redd.it/a.jpg?width=216&s=x"),
+                is(true));
+        assertThat(
+                MediaCacheManager.isThumbnail("https://preview.redd.it/a.jpg?width=1080&s=x"),
+                is(false));
+        assertThat(MediaCacheManager.isThumbnail("https://i.redd.it/a.jpg"), is(false));
+    }
+}
@@ -0,0 +1,51 @@
+package me.edgan.redditslide.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import me.edgan.redditslide.OfflineStore;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class OfflineStoreTest {
+    @Test
+    public void keepsPostsListedByAnOverlappingSnapshot() {
+        // "pics,1" stored all three posts; "pics,2" skipped the two it shared with it
+        Map<String, String> others = new HashMap<>();
+        others.put("pics,2", "t3_b,t3_c,t3_d");
+
+        LinkedHashMap<String, String> shared =
+                OfflineStore.getSharedIds(Arrays.asList("t3_a", "t3_b", "t3_c"), others);
+
+        assertThat(shared.size(), is(2));
+        assertThat(shared.get("t3_b"), is("pics,2"));
+        assertThat(shared.get("t3_c"), is("pics,2"));
+        assertThat(shared.containsKey("t3_a"), is(false));
+    }
+
+    @Test
+    public void readsManifestsWithoutPrefixes() {
+        Map<String, String> others = new HashMap<>();
+        others.put("pics,2", "b,,c");
+
+        LinkedHashMap<String, String> shared =
+                OfflineStore.getSharedIds(Arrays.asList("t3_a", "t3_c"), others);
+
+        assertThat(shared.keySet().toString(), is("[t3_c]"));
+    }
+
+    @Test
+    public void compactsSegmentsThatAreMostlyOldCopies() {
+        long mb = 1024 * 1024;
+
+        assertThat(OfflineStore.shouldCompact(3 * mb, mb), is(true));
+        assertThat(OfflineStore.shouldCompact(3 * mb, 2 * mb), is(false));
+        // Small segments aren't worth rewriting, however much of them is unreferenced
+        assertThat(OfflineStore.shouldCompact(mb / 2, 0), is(false));
+    }
+}
@@ -0,0 +1,131 @@
+package me.edgan.redditslide.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import me.edgan.redditslide.Adapters.SubmissionList;
+
+import net.dean.jraw.models.Submission;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class SubmissionListTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static Submission submission(String id) {
+        return new Submission(MAPPER.createObjectNode().put("name", "t3_" + id).put("id", id));
+    }
+
+    @Test
+    public void skipsPostsAlreadyInTheFeed() {
+        SubmissionList posts =
+                new SubmissionList(Arrays.asList(submission("a"), submission("b")));
+
+        assertThat(posts.appendNew(Arrays.asList(submission("b"), submission("c"))), is(1));
+        assertThat(posts.size(), is(3));
+        assertThat(posts.get(2).getFullName(), is("t3_c"));
+    }
+
+    @Test
+    public void seesRemovalsBeforeTheNextPage() {
+        SubmissionList posts =
+                new SubmissionList(Arrays.asList(submission("a"), submission("b")));
+        posts.remove(0);
+
+        assertThat(posts.appendNew(Arrays.asList(submission("a"))), is(1));
+        assertThat(posts.get(1).getFullName(), is("t3_a"));
+    }
+
+    @Test
+    public void wrapsPlainLists() {
+        List<Submission> plain = new ArrayList<>(Arrays.asList(submission("a"), submission("a")));
+
+        SubmissionList posts = SubmissionList.append(plain, Arrays.asList(submission("b")));
+        assertThat(posts.size(), is(2));
+        assertThat(SubmissionList.append(null, plain).size(), is(1));
+    }
+
+    private static List<Submission> page(int count) {
+        List<Submission> page = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            page.add(
+                    new Submission(
+                            MAPPER.createObjectNode()
+                                    .put("name", "t3_" + i)
+                                    .put("id", String.valueOf(i))
+                                    .put("selftext", "text " + i)));
+        }
+        return page;
+    }
+
+    @Test
+    public void parksCopiesOfPostsFarAboveTheViewport() throws Exception {
+        List<Submission> page = page(300);
+        SubmissionList posts = new SubmissionList(page);
+        posts.park(250).get();
+        posts.park(250);
+
+        assertThat(page.get(0).getDataNode().has("selftext"), is(true));
+        assertThat(posts.copyParked().get(0).getDataNode().has("selftext"), is(false));
+        assertThat(posts.copyParked().get(0).getFullName(), is("t3_0"));
+        assertThat(posts.copyParked().get(150) == page.get(150), is(true));
+
+        assertThat(posts.get(0).getSelftext(), is("text 0"));
+        assertThat(posts.copyParked().get(0).getDataNode().has("selftext"), is(false));
+        assertThat(new ArrayList<>(posts).get(1).getSelftext(), is("text 1"));
+        assertThat(posts.subList(0, 2).get(1).getSelftext(), is("text 1"));
+        assertThat(posts.stream().filter(s -> s.getSelftext() != null).count(), is(300L));
+        assertThat(posts.indexOf(page.get(1)), is(1));
+    }
+
+    @Test
+    public void restoresPostsThatComeBackNearTheViewport() throws Exception {
+        List<Submission> page = page(300);
+        SubmissionList posts = new SubmissionList(page);
+        posts.park(250).get();
+        posts.park(150).get();
+        posts.park(150);
+
+        assertThat(posts.copyParked().get(10).getDataNode().has("selftext"), is(false));
+        assertThat(posts.copyParked().get(100).getDataNode().has("selftext"), is(true));
+    }
+
+    @Test
+    public void readsWhileParkingSeeWholePosts() throws Exception {
+        final List<Submission> page = page(300);
+        final SubmissionList posts = new SubmissionList(page);
+        final AtomicBoolean gutted = new AtomicBoolean();
+        Thread reader =
+                new Thread(
+                        () -> {
+                            for (int round = 0; round < 50; round++) {
+                                for (Submission s : page) {
+                                    if (!s.getDataNode().toString().contains("selftext")) {
+                                        gutted.set(true);
+                                    }
+                                }
+                            }
+                        });
+        reader.start();
+        for (int first = 101; first < 300; first += 10) {
+            Future<?> parking = posts.park(first);
+            if (parking != null) {
+                parking.get();
+            }
+        }
+        reader.join();
+
+        assertThat(gutted.get(), is(false));
+        for (int i = 0; i < 300; i++) {
+            assertThat(posts.get(i).getSelftext(), is("text " + i));
+        }
+    }
+}